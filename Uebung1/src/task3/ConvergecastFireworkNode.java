@@ -0,0 +1,122 @@
+package org.oxoo2a.sim4da.task3;
+
+import org.oxoo2a.sim4da.Node;
+import org.oxoo2a.sim4da.UnknownNodeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Feuerwerk-Node mit Rundenprotokoll über einen Spannbaum statt Broadcast an alle.
+ * Die Nodes bilden einen vollständigen Baum mit {@code fanout} Kindern pro Node
+ * (Eltern von i: (i-1)/fanout), der Coordinator (0) ist die Wurzel.
+ * Pro Runde schickt jeder Node die Rundennummer an seine Kinder, entscheidet über sein
+ * Feuerwerk und meldet die Anzahl der Feuerwerke seines Teilbaums an den Eltern-Node,
+ * sobald alle Kinder gemeldet haben (Convergecast). Das sind 2(n-1) Nachrichten und
+ * eine Tiefe von O(log n) pro Runde statt O(n²) Nachrichten beim Broadcast.
+ * Der Coordinator kennt damit nach jeder Runde, ob irgendwo gezündet wurde, und beendet
+ * nach k Runden ohne Feuerwerk.
+ * @ author simon
+ */
+public class ConvergecastFireworkNode extends Node {
+    private static final Logger logger = LoggerFactory.getLogger(ConvergecastFireworkNode.class);
+
+    // Parameter:
+    private final boolean isCoordinator;
+    private final FireworkProtocol protocol;
+
+    // Baum:
+    private final String parent;
+    private final List<String> children = new ArrayList<>();
+
+    // Coordinator: Dauer einer Runde; übrige Nodes: Zeit zwischen zwei Rundennachrichten
+    private final RoundTimeHistogram roundTimes = new RoundTimeHistogram();
+    private long lastRoundStart;
+
+    public ConvergecastFireworkNode(int id, int n, double startP, int k, int fanout) {
+        super(String.valueOf(id));
+        this.isCoordinator = (id == 0);
+        this.protocol = new FireworkProtocol(startP, k, new Random());
+        this.parent = isCoordinator ? null : String.valueOf(FireworkProtocol.parent(id, fanout));
+        int firstChild = FireworkProtocol.firstChild(id, fanout);
+        for (int child = firstChild; child < firstChild + FireworkProtocol.childCount(id, n, fanout); child++) {
+            children.add(String.valueOf(child));
+        }
+    }
+
+    /**
+     * Startet die Simulation, wenn alle Nodes instanziiert sind.
+     * @see org.oxoo2a.sim4da.Simulator#simulate()
+     */
+    @Override
+    protected void engage() {
+        int round = 1;
+        while (true) {
+            long roundStart = System.nanoTime();
+            if (!isCoordinator) {
+                // Auf die nächste Runde (oder das Ende) vom Eltern-Node warten
+                FireworkMessage m = (FireworkMessage) receive();
+                if (m.isEnd()) {
+                    sendToChildren(m);
+                    logger.info("Ende empfangen, beende Node {}", NodeName());
+                    break;
+                }
+                round = m.getRound();
+                if (lastRoundStart != 0) {
+                    roundTimes.record(roundStart - lastRoundStart);
+                }
+                lastRoundStart = roundStart;
+            }
+
+            // Runde nach unten weitergeben und über das eigene Feuerwerk entscheiden
+            sendToChildren(new FireworkMessage(FireworkMessage.Kind.ROUND, round, 0, NodeName()));
+            protocol.startRound(round, children.size());
+            if (protocol.getSubtreeFireworks() > 0) {
+                logger.info(">> FEUERWERK in Runde {}!", round);
+            }
+
+            // Meldungen der Kinder einsammeln
+            while (!protocol.isSubtreeComplete()) {
+                FireworkMessage report = (FireworkMessage) receive();
+                protocol.report(report.getFireworks());
+            }
+            int fireworks = protocol.getSubtreeFireworks();
+
+            if (!isCoordinator) {
+                try {
+                    send(new FireworkMessage(FireworkMessage.Kind.REPORT, round, fireworks, NodeName()), parent);
+                } catch (UnknownNodeException e) {
+                    logger.error("Meldung an {} fehlgeschlagen", parent, e);
+                }
+                continue;
+            }
+
+            roundTimes.record(System.nanoTime() - roundStart);
+            logger.info("Runde {} abgeschlossen, {} Feuerwerk(e)", round, fireworks);
+            if (protocol.completeRound(fireworks)) {
+                FireworkNode.writeSummary(protocol.getRounds(), protocol.getTotalFireworks(), roundTimes);
+                sendToChildren(new FireworkMessage(FireworkMessage.Kind.END, round, 0, NodeName()));
+                logger.info("Abbruchbedingung erreicht, sende 'end'.");
+                break;
+            }
+            round++;
+        }
+    }
+
+    public RoundTimeHistogram getRoundTimes() {
+        return roundTimes;
+    }
+
+    private void sendToChildren(FireworkMessage m) {
+        for (String child : children) {
+            try {
+                send(m, child);
+            } catch (UnknownNodeException e) {
+                logger.error("Senden an {} fehlgeschlagen", child, e);
+            }
+        }
+    }
+}
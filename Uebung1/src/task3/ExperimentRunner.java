@@ -0,0 +1,157 @@
+package org.oxoo2a.sim4da.task3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parameterstudie der Feuerwerk-Simulation in einer einzigen JVM.
+ * Jeder Punkt (Protokoll, n, p, k) wird mit mehreren Seeds wiederholt; alle Läufe sind
+ * unabhängige {@link FireworkTrial}s und laufen parallel auf allen Kernen. Pro Punkt werden
+ * Mittelwert und 95%-Konfidenzintervall (Student-t) nach data/experiments_task3.csv geschrieben.
+ * Die Seeds hängen nur vom Punkt und der Wiederholung ab, ein erneuter Lauf liefert dieselben
+ * Runden- und Feuerwerkszahlen. Die Zeitspalten messen die Warteschlange von {@link FireworkTrial},
+ * nicht die Zustellung in sim4da. Am Nachrichtenlimit abgebrochene Läufe gehen nicht in die
+ * Mittelwerte ein; die Spalte truncated zählt sie, trials nur die ausgewerteten.
+ * Aufruf: {@code ExperimentRunner [wiederholungen=30] [threads=Kerne] [fanout=2]}
+ * @ author simon
+ */
+public class ExperimentRunner {
+    // Parameter wie in run_task3.sh, Convergecast zusätzlich mit großen n; safra läuft auf
+    // denselben Punkten wie broadcast, die Nachrichtenspalten sind direkt vergleichbar
+    private static final double[] PS = {0.8, 0.5, 0.2};
+    private static final int[] KS = {2, 3, 5};
+    private static final int[] NS = {5, 10, 25, 50};
+    private static final int[] NS_CONVERGECAST = {5, 10, 25, 50, 250, 1000, 5000};
+    private static final String[] PROTOCOLS = {"broadcast", "safra", "convergecast"};
+    private static final long BASE_SEED = 20250501L;
+
+    // t-Quantile (97,5%) für 1..30 Freiheitsgrade, darüber Normalverteilung
+    private static final double[] T_975 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        int repetitions = (args.length > 0 ? Integer.parseInt(args[0]) : 30);
+        int threads = (args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors());
+        int fanout = (args.length > 2 ? Integer.parseInt(args[2]) : 2);
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Point> points = new ArrayList<>();
+        try {
+            // Erst alle Läufe einreihen, damit lange Punkte die Kerne nicht allein belegen
+            for (String protocol : PROTOCOLS) {
+                for (double p : PS) {
+                    for (int k : KS) {
+                        for (int n : "convergecast".equals(protocol) ? NS_CONVERGECAST : NS) {
+                            Point point = new Point(protocol, n, p, k);
+                            long pointSeed = BASE_SEED + 1_000_003L * points.size();
+                            for (int rep = 0; rep < repetitions; rep++) {
+                                FireworkTrial trial = new FireworkTrial(n, p, k, protocol, fanout, pointSeed + rep);
+                                point.trials.add(pool.submit(trial::run));
+                            }
+                            points.add(point);
+                        }
+                    }
+                }
+            }
+            writeResults(points, Paths.get("data", "experiments_task3.csv"));
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.printf("Task3-Experimente beendet: %d Punkte x %d Läufe in %.2f s, Ergebnis in data/experiments_task3.csv%n",
+                points.size(), repetitions, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void writeResults(List<Point> points, Path out) throws IOException, InterruptedException, ExecutionException {
+        Files.createDirectories(out.getParent());
+        try (BufferedWriter w = Files.newBufferedWriter(out)) {
+            w.write("protocol,n,p,k,trials,truncated,rounds_mean,rounds_ci95,fireworks_mean,fireworks_ci95,"
+                    + "messages_mean,messages_ci95,avg_round_time_mean,avg_round_time_ci95,max_round_time_mean,"
+                    + "p50_round_time_mean,p99_round_time_mean\n");
+            for (Point point : points) {
+                List<FireworkTrial.Result> results = new ArrayList<>();
+                for (Future<FireworkTrial.Result> trial : point.trials) {
+                    FireworkTrial.Result result = trial.get();
+                    if (!result.isTruncated()) {
+                        results.add(result);
+                    }
+                }
+                int truncated = point.trials.size() - results.size();
+                int size = results.size();
+                double[] rounds = new double[size];
+                double[] fireworks = new double[size];
+                double[] messages = new double[size];
+                double[] roundTimes = new double[size];
+                double[] maxRoundTimes = new double[size];
+                double[] p50RoundTimes = new double[size];
+                double[] p99RoundTimes = new double[size];
+                for (int i = 0; i < size; i++) {
+                    FireworkTrial.Result result = results.get(i);
+                    rounds[i] = result.getRounds();
+                    fireworks[i] = result.getFireworks();
+                    messages[i] = result.getMessages();
+                    // Nanosekunden → Sekunden
+                    roundTimes[i] = result.getAvgRoundTime() / 1e9;
+                    maxRoundTimes[i] = result.getMaxRoundTime() / 1e9;
+                    p50RoundTimes[i] = result.getP50RoundTime() / 1e9;
+                    p99RoundTimes[i] = result.getP99RoundTime() / 1e9;
+                }
+                w.write(String.format(Locale.ROOT, "%s,%d,%.3f,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.1f,%.1f,%.6f,%.6f,%.6f,%.6f,%.6f\n",
+                        point.protocol, point.n, point.p, point.k, size, truncated,
+                        mean(rounds), ci95(rounds), mean(fireworks), ci95(fireworks),
+                        mean(messages), ci95(messages), mean(roundTimes), ci95(roundTimes), mean(maxRoundTimes),
+                        mean(p50RoundTimes), mean(p99RoundTimes)));
+            }
+        }
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double v : values) sum += v;
+        return values.length == 0 ? 0 : sum / values.length;
+    }
+
+    /**
+     * Halbe Breite des 95%-Konfidenzintervalls des Mittelwerts.
+     */
+    private static double ci95(double[] values) {
+        int size = values.length;
+        if (size < 2) return 0;
+        double mean = mean(values);
+        double squares = 0;
+        for (double v : values) squares += (v - mean) * (v - mean);
+        double stdDev = Math.sqrt(squares / (size - 1));
+        double t = size - 1 <= T_975.length ? T_975[size - 2] : 1.96;
+        return t * stdDev / Math.sqrt(size);
+    }
+
+    /**
+     * Ein Parameterpunkt samt seinen laufenden Wiederholungen.
+     */
+    private static class Point {
+        final String protocol;
+        final int n;
+        final double p;
+        final int k;
+        final List<Future<FireworkTrial.Result>> trials = new ArrayList<>();
+
+        Point(String protocol, int n, double p, int k) {
+            this.protocol = protocol;
+            this.n = n;
+            this.p = p;
+            this.k = k;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.oxoo2a.sim4da.task3;
+
+import org.oxoo2a.sim4da.Message;
+
+/**
+ * Nachricht der Feuerwerk-Simulation mit typisierten Feldern statt String-Payload.
+ * Rundennummer und Anzahl der Feuerwerke liegen als int vor, der Empfänger muss nichts
+ * parsen und der Sender keine Strings erzeugen (bei O(n²) Nachrichten pro Runde im Broadcast).
+ * @ author simon
+ */
+public class FireworkMessage extends Message {
+    private final Kind kind;
+    private final int round;
+    private final int fireworks;
+
+    public FireworkMessage(Kind kind, int round, int fireworks, String senderId) {
+        this.kind = kind;
+        this.round = round;
+        this.fireworks = fireworks;
+        this.setSender(senderId);
+    }
+
+    protected FireworkMessage(FireworkMessage original) {
+        super(original);
+        this.kind = original.kind;
+        this.round = original.round;
+        this.fireworks = original.fireworks;
+    }
+
+    @Override
+    public Message copy() {
+        return new FireworkMessage(this);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isEnd() {
+        return kind == Kind.END;
+    }
+
+    /**
+     * Rundennummer (Token), bei END ohne Bedeutung.
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * ROUND: 1, wenn der Sender gezündet hat; REPORT: Anzahl der Feuerwerke im Teilbaum.
+     */
+    public int getFireworks() {
+        return fireworks;
+    }
+
+    public enum Kind {
+        ROUND, REPORT, END
+    }
+}
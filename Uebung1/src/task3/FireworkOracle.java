@@ -0,0 +1,251 @@
+package org.oxoo2a.sim4da.task3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Monte-Carlo-Schätzer für die Rundenzahl direkt aus dem statistischen Modell, ohne Nachrichten.
+ * Modell: in Runde r zündet jeder der n Nodes unabhängig mit p0 / 2^(r-1), die Runde ist still,
+ * wenn keiner zündet, nach k stillen Runden in Folge ist Schluss. Für die Rundenzahl zählt nur,
+ * ob eine Runde still ist, das passiert mit (1 - p)^n: pro Runde genügt eine Zufallszahl,
+ * unabhängig von n. Der Erwartungswert der Feuerwerke folgt exakt aus der Verteilung der
+ * Rundenzahl (Summe über P(Runde r wird gespielt)·n·p_r). Die Läufe landen in einem int-Array
+ * und werden blockweise mit parallelen Streams berechnet. Die Seeds der Blöcke werden vorab
+ * sequentiell abgespalten, das Ergebnis hängt also nicht von der Threadzahl ab.
+ * Das Modell entspricht Runden mit Rückmeldung aller Nodes ({@link ConvergecastFireworkNode}).
+ * Beim Broadcast hängt das Token, das der Coordinator sieht, von der Zustellreihenfolge ab;
+ * dessen Ergebnisse weichen daher systematisch ab.
+ * Aufruf:
+ * {@code FireworkOracle n p k [läufe=1000000]} gibt die Verteilung für einen Punkt aus,
+ * {@code FireworkOracle check [results=data/results_task3_convergecast.csv] [läufe=1000000] [alpha=0.001]}
+ * vergleicht jede Zeile der verteilten Läufe mit dem Modell und schreibt data/oracle_task3.csv.
+ * @ author simon
+ */
+public class FireworkOracle {
+    private static final int BLOCK_SIZE = 16_384;
+    // Danach ist p_r so klein, dass eine Runde praktisch immer still ist
+    private static final int TABLE_ROUNDS = 64;
+    private static final long BASE_SEED = 20250501L;
+
+    private final int n;
+    private final double p0;
+    private final int k;
+    // Wahrscheinlichkeit einer stillen Runde, Index = Rundennummer
+    private final double[] silent = new double[TABLE_ROUNDS + 1];
+
+    public FireworkOracle(int n, double p0, int k) {
+        this.n = n;
+        this.p0 = p0;
+        this.k = k;
+        for (int round = 1; round <= TABLE_ROUNDS; round++) {
+            silent[round] = silentProbability(round);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && !"check".equals(args[0])) {
+            int n = Integer.parseInt(args[0]);
+            double p = Double.parseDouble(args[1]);
+            int k = Integer.parseInt(args[2]);
+            int trials = (args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000);
+            long start = System.nanoTime();
+            Estimate e = new FireworkOracle(n, p, k).estimate(trials, BASE_SEED);
+            System.out.printf(Locale.ROOT, "n=%d p=%.3f k=%d: %d Läufe in %.1f ms%n",
+                    n, p, k, trials, (System.nanoTime() - start) / 1e6);
+            System.out.printf(Locale.ROOT, "Runden: mean=%.3f p50=%d p99=%d max=%d, Feuerwerke: mean=%.3f%n",
+                    e.getRoundsMean(), e.getRoundsPercentile(50), e.getRoundsPercentile(99),
+                    e.getMaxRounds(), e.getFireworksMean());
+            System.out.println("runden,anteil");
+            for (int r = k; r <= e.getMaxRounds(); r++) {
+                System.out.printf(Locale.ROOT, "%d,%.6f%n", r, e.getProbability(r));
+            }
+            return;
+        }
+        Path results = Paths.get(args.length > 1 ? args[1] : "data/results_task3_convergecast.csv");
+        int trials = (args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000);
+        double alpha = (args.length > 3 ? Double.parseDouble(args[3]) : 0.001);
+        check(results, trials, alpha, Paths.get("data", "oracle_task3.csv"));
+    }
+
+    /**
+     * Vergleicht die Rundenzahlen der verteilten Läufe mit dem Modell. Eine Zeile wird markiert,
+     * wenn die beobachtete Rundenzahl im Modell seltener als alpha vorkommt: SLOWER (zu viele
+     * Runden, der verteilte Lauf dauert länger als er sollte) oder FASTER (zu früh beendet).
+     */
+    static void check(Path results, int trials, double alpha, Path out) throws IOException {
+        if (!Files.exists(results)) {
+            System.err.println(results + " nicht gefunden, erst run_task3.sh ausführen");
+            return;
+        }
+        long start = System.nanoTime();
+        List<String> lines = Files.readAllLines(results);
+        Map<String, Estimate> estimates = new HashMap<>();
+        int rows = 0;
+        int flagged = 0;
+        Files.createDirectories(out.getParent());
+        try (BufferedWriter w = Files.newBufferedWriter(out)) {
+            w.write("n,p,k,observed_rounds,rounds_mean,rounds_p50,rounds_p99,p_upper,p_lower,"
+                    + "observed_fireworks,fireworks_mean,flag\n");
+            for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+                // Nur n,p,k,total_rounds,total_fireworks; die Zeitspalten werden nicht gebraucht
+                String[] fields = line.split(",");
+                if (fields.length < 5) continue;
+                int n, k, rounds, fireworks;
+                double p;
+                try {
+                    n = Integer.parseInt(fields[0].trim());
+                    p = Double.parseDouble(fields[1].trim());
+                    k = Integer.parseInt(fields[2].trim());
+                    rounds = Integer.parseInt(fields[3].trim());
+                    fireworks = Integer.parseInt(fields[4].trim());
+                } catch (NumberFormatException e) {
+                    System.err.println("Zeile übersprungen: " + line);
+                    continue;
+                }
+                Estimate e = estimates.computeIfAbsent(n + "," + p + "," + k,
+                        key -> new FireworkOracle(n, p, k).estimate(trials, BASE_SEED));
+                double upper = e.getProbabilityAtLeast(rounds);
+                double lower = e.getProbabilityAtMost(rounds);
+                String flag = upper < alpha ? "SLOWER" : lower < alpha ? "FASTER" : "";
+                if (!flag.isEmpty()) {
+                    flagged++;
+                    System.out.printf(Locale.ROOT, "%s: n=%d p=%.3f k=%d mit %d Runden (Modell: mean=%.2f, p99=%d)%n",
+                            flag, n, p, k, rounds, e.getRoundsMean(), e.getRoundsPercentile(99));
+                }
+                w.write(String.format(Locale.ROOT, "%d,%.3f,%d,%d,%.3f,%d,%d,%.6f,%.6f,%d,%.3f,%s\n",
+                        n, p, k, rounds, e.getRoundsMean(), e.getRoundsPercentile(50), e.getRoundsPercentile(99),
+                        upper, lower, fireworks, e.getFireworksMean(), flag));
+                rows++;
+            }
+        }
+        System.out.printf(Locale.ROOT, "Oracle: %d Zeilen, %d markiert (alpha=%s), %d Läufe pro Punkt in %.2f s, Ergebnis in %s%n",
+                rows, flagged, alpha, trials, (System.nanoTime() - start) / 1e9, out);
+    }
+
+    /**
+     * Simuliert {@code trials} unabhängige Läufe des Modells.
+     */
+    public Estimate estimate(int trials, long seed) {
+        int[] rounds = new int[trials];
+        int blocks = (trials + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] random = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++) {
+            random[b] = root.split();
+        }
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            int end = Math.min(trials, (b + 1) * BLOCK_SIZE);
+            for (int i = b * BLOCK_SIZE; i < end; i++) {
+                rounds[i] = sample(random[b]);
+            }
+        });
+        return new Estimate(rounds, n, p0);
+    }
+
+    private int sample(SplittableRandom random) {
+        int round = 0;
+        int zeroRounds = 0;
+        while (zeroRounds < k) {
+            round++;
+            double q = round <= TABLE_ROUNDS ? silent[round] : silentProbability(round);
+            if (random.nextDouble() < q) zeroRounds++;
+            else zeroRounds = 0;
+        }
+        return round;
+    }
+
+    private double silentProbability(int round) {
+        double p = Math.scalb(p0, 1 - round);
+        return p >= 1 ? 0 : Math.exp(n * Math.log1p(-p));
+    }
+
+    /**
+     * Verteilung der Rundenzahl und der Feuerwerke über alle Läufe.
+     */
+    public static class Estimate {
+        private final int trials;
+        private final long[] roundCounts;
+        private final double roundsMean;
+        private final double fireworksMean;
+
+        Estimate(int[] rounds, int n, double p0) {
+            this.trials = rounds.length;
+            int max = 0;
+            long roundSum = 0;
+            for (int r : rounds) {
+                max = Math.max(max, r);
+                roundSum += r;
+            }
+            this.roundCounts = new long[max + 1];
+            for (int r : rounds) {
+                roundCounts[r]++;
+            }
+            this.roundsMean = trials == 0 ? 0 : (double) roundSum / trials;
+            // Runde r wird in allen Läufen mit mindestens r Runden gespielt, je n·p_r Feuerwerke
+            double fireworks = 0;
+            long played = trials;
+            for (int r = 1; r < roundCounts.length; r++) {
+                fireworks += (double) played / trials * n * Math.min(1, Math.scalb(p0, 1 - r));
+                played -= roundCounts[r];
+            }
+            this.fireworksMean = trials == 0 ? 0 : fireworks;
+        }
+
+        public int getTrials() {
+            return trials;
+        }
+
+        public double getRoundsMean() {
+            return roundsMean;
+        }
+
+        public double getFireworksMean() {
+            return fireworksMean;
+        }
+
+        public int getMaxRounds() {
+            return roundCounts.length - 1;
+        }
+
+        /**
+         * Anteil der Läufe mit genau {@code rounds} Runden.
+         */
+        public double getProbability(int rounds) {
+            return rounds < 0 || rounds >= roundCounts.length ? 0 : (double) roundCounts[rounds] / trials;
+        }
+
+        public double getProbabilityAtLeast(int rounds) {
+            long count = 0;
+            for (int r = Math.max(rounds, 0); r < roundCounts.length; r++) count += roundCounts[r];
+            return (double) count / trials;
+        }
+
+        public double getProbabilityAtMost(int rounds) {
+            long count = 0;
+            for (int r = 0; r <= Math.min(rounds, roundCounts.length - 1); r++) count += roundCounts[r];
+            return (double) count / trials;
+        }
+
+        /**
+         * Kleinste Rundenzahl, bis zu der mindestens {@code percentile} Prozent der Läufe beendet sind.
+         */
+        public int getRoundsPercentile(double percentile) {
+            long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * trials));
+            long cumulative = 0;
+            for (int r = 0; r < roundCounts.length; r++) {
+                cumulative += roundCounts[r];
+                if (cumulative >= target) return r;
+            }
+            return getMaxRounds();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.oxoo2a.sim4da.task3;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Protokollschritt eines einzelnen Feuerwerk-Nodes, unabhängig davon, wie Nachrichten
+ * transportiert werden. Die sim4da-Nodes ({@link FireworkNode}, {@link ConvergecastFireworkNode},
+ * {@link SafraFireworkNode}) und {@link FireworkTrial} rufen dieselben Schritte auf und
+ * unterscheiden sich nur im Senden und Empfangen.
+ * Zünden: in Runde r mit p0 / 2^(r-1). Abbruch: nach k Runden ohne Feuerwerk in Folge.
+ * Für den Convergecast führt der Schritt zusätzlich die laufende Runde im eigenen Teilbaum
+ * (ausstehende Meldungen der Kinder, Feuerwerke im Teilbaum).
+ * @ author simon
+ */
+public class FireworkProtocol {
+    private final double p0;
+    private final int k;
+    private final RandomGenerator random;
+
+    // abgeschlossene Runden
+    private int zeroRounds = 0;
+    private int rounds = 0;
+    private int totalFireworks = 0;
+
+    // Convergecast: laufende Runde im Teilbaum
+    private int round = 0;
+    private int pendingReports = 0;
+    private int subtreeFireworks = 0;
+
+    public FireworkProtocol(double p0, int k, RandomGenerator random) {
+        this.p0 = p0;
+        this.k = k;
+        this.random = random;
+    }
+
+    /**
+     * Entscheidet, ob der Node in der Runde zündet.
+     */
+    public boolean fires(int round) {
+        return random.nextDouble() < p0 / Math.pow(2, round - 1);
+    }
+
+    /**
+     * Schließt eine Runde mit der Anzahl der Feuerwerke ab, die der Node von ihr kennt.
+     * @return true, wenn damit k stille Runden in Folge erreicht sind
+     */
+    public boolean completeRound(int fireworks) {
+        rounds++;
+        totalFireworks += fireworks;
+        if (fireworks > 0) zeroRounds = 0;
+        else zeroRounds++;
+        return zeroRounds >= k;
+    }
+
+    /**
+     * Convergecast: beginnt die Runde im eigenen Teilbaum, nachdem die Rundennummer an die
+     * {@code children} Kinder weitergegeben wurde, und entscheidet über das eigene Feuerwerk.
+     */
+    public void startRound(int round, int children) {
+        this.round = round;
+        this.pendingReports = children;
+        this.subtreeFireworks = fires(round) ? 1 : 0;
+    }
+
+    /**
+     * Convergecast: verbucht die Meldung eines Kindes.
+     * @return true, wenn damit alle Kinder gemeldet haben
+     */
+    public boolean report(int fireworks) {
+        subtreeFireworks += fireworks;
+        return --pendingReports == 0;
+    }
+
+    public boolean isSubtreeComplete() {
+        return pendingReports == 0;
+    }
+
+    public int getSubtreeFireworks() {
+        return subtreeFireworks;
+    }
+
+    /**
+     * Convergecast: Nummer der laufenden Runde.
+     */
+    public int getRound() {
+        return round;
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public int getTotalFireworks() {
+        return totalFireworks;
+    }
+
+    // Baum mit fanout Kindern pro Node, Wurzel ist der Coordinator (0)
+
+    public static int parent(int id, int fanout) {
+        return (id - 1) / fanout;
+    }
+
+    public static int firstChild(int id, int fanout) {
+        return id * fanout + 1;
+    }
+
+    public static int childCount(int id, int n, int fanout) {
+        return Math.max(0, Math.min(fanout, n - firstChild(id, fanout)));
+    }
+}
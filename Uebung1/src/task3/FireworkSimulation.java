@@ -2,7 +2,12 @@ package org.oxoo2a.sim4da.task3;
 
 import org.oxoo2a.sim4da.Simulator;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
 
 /**
  * Hauptklasse für die Feuerwerk-Simulation.
@@ -11,14 +16,25 @@ import java.io.IOException;
  */
 public class FireworkSimulation {
     public static void main(String[] args) throws IOException {
-        // Parameter: n p k, default simple values, sonst gemäß Test-Matrix
+        // Parameter: n p k [protokoll] [fanout], default simple values, sonst gemäß Test-Matrix
         int    n = (args.length > 0 ? Integer.parseInt(args[0]) : 5);
         double p = (args.length > 1 ? Double.parseDouble(args[1]) : 0.5);
         int    k = (args.length > 2 ? Integer.parseInt(args[2]) : 3);
+        // broadcast: Token an alle (O(n²) pro Runde), convergecast: Spannbaum (O(n) pro Runde),
+        // safra: Fluss wie broadcast, jeder Node hört nach k stillen Runden selbst auf,
+        // das Ende erkennt der Coordinator nach Safra
+        String protocol = (args.length > 3 ? args[3] : "broadcast");
+        int    fanout = (args.length > 4 ? Integer.parseInt(args[4]) : 2);
 
-        // Erstellen der Nodes
+        // Erstellen der Nodes, die Rundenzeiten jedes Nodes werden nach dem Lauf ausgewertet
+        RoundTimeHistogram[] roundTimes = new RoundTimeHistogram[n];
         for (int i = 0; i < n; i++) {
-            new FireworkNode(i, n, p, k);
+            roundTimes[i] = switch (protocol) {
+                case "broadcast" -> new FireworkNode(i, n, p, k).getRoundTimes();
+                case "convergecast" -> new ConvergecastFireworkNode(i, n, p, k, fanout).getRoundTimes();
+                case "safra" -> new SafraFireworkNode(i, n, p, k).getRoundTimes();
+                default -> throw new IllegalArgumentException("Unbekanntes Protokoll: " + protocol);
+            };
         }
 
         // Simulation starten
@@ -26,6 +42,29 @@ public class FireworkSimulation {
         sim.simulate();
         sim.shutdown();
 
-        System.out.println("Task3 beendet. Zusammenfassung in data/summary_task3.csv");
+        writeNodeStats(roundTimes, Paths.get("data", "nodes_task3.csv"));
+        System.out.println("Task3 beendet. Zusammenfassung in data/summary_task3.csv, pro Node in data/nodes_task3.csv");
+    }
+
+    /**
+     * Schreibt die Rundenzeiten pro Node (Sekunden) und eine Zeile "all" über alle Nodes.
+     */
+    private static void writeNodeStats(RoundTimeHistogram[] roundTimes, Path out) throws IOException {
+        Files.createDirectories(out.getParent());
+        RoundTimeHistogram all = new RoundTimeHistogram();
+        try (BufferedWriter w = Files.newBufferedWriter(out)) {
+            w.write("node,count,min_round_time,avg_round_time,p50_round_time,p99_round_time,max_round_time\n");
+            for (int i = 0; i < roundTimes.length; i++) {
+                writeNodeLine(w, String.valueOf(i), roundTimes[i]);
+                all.add(roundTimes[i]);
+            }
+            writeNodeLine(w, "all", all);
+        }
+    }
+
+    private static void writeNodeLine(BufferedWriter w, String node, RoundTimeHistogram h) throws IOException {
+        w.write(String.format(Locale.ROOT, "%s,%d,%.6f,%.6f,%.6f,%.6f,%.6f\n",
+                node, h.getCount(), h.getMin() / 1e9, h.getMean() / 1e9,
+                h.getValueAtPercentile(50) / 1e9, h.getValueAtPercentile(99) / 1e9, h.getMax() / 1e9));
     }
 }
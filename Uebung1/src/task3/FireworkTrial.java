@@ -0,0 +1,267 @@
+package org.oxoo2a.sim4da.task3;
+
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+
+/**
+ * Ein einzelner Feuerwerk-Lauf in einem eigenen, isolierten Kontext ohne sim4da.
+ * Alle Nodes leben in einem Thread; Nachrichten laufen über eine gemeinsame FIFO-Warteschlange
+ * und werden der Reihe nach zugestellt. Jeder Node ist ein {@link FireworkProtocol}, derselbe
+ * Protokollschritt wie in {@link FireworkNode} (broadcast), {@link ConvergecastFireworkNode}
+ * (convergecast) und {@link SafraFireworkNode} (safra); nur Senden und Empfangen laufen über die
+ * Warteschlange statt über sim4da.
+ * Die Rundenzeiten messen daher diese Warteschlange, nicht die Zustellung in sim4da.
+ * Bei gleichem Seed ist der Lauf reproduzierbar (bis auf die gemessenen Zeiten), mehrere
+ * Läufe können parallel in einer JVM laufen.
+ * @ author simon
+ */
+public class FireworkTrial {
+
+    // Schutz gegen entartete Parameter (z.B. p=1 mit großem n beim Broadcast)
+    private static final long MAX_MESSAGES = 50_000_000L;
+    // Nachrichten: {Empfänger, Art, Wert}; Wert ist die Rundennummer bzw. die gemeldete Anzahl
+    private static final int ROUND = 0;
+    private static final int REPORT = 1;
+    // Safra-Token, Wert ist die aufsummierte Bilanz
+    private static final int TOKEN_WHITE = 2;
+    private static final int TOKEN_BLACK = 3;
+
+    private final int n;
+    private final double p0;
+    private final int k;
+    private final String protocol;
+    private final int fanout;
+    private final long seed;
+
+    private final ArrayDeque<long[]> queue = new ArrayDeque<>();
+    // Rundenzeiten des Coordinators
+    private final RoundTimeHistogram roundTimes = new RoundTimeHistogram();
+    private long messages = 0;
+
+    public FireworkTrial(int n, double p0, int k, String protocol, int fanout, long seed) {
+        this.n = n;
+        this.p0 = p0;
+        this.k = k;
+        this.protocol = protocol;
+        this.fanout = fanout;
+        this.seed = seed;
+    }
+
+    /**
+     * Führt den Lauf bis zur Abbruchbedingung des Coordinators aus, höchstens bis
+     * {@link #MAX_MESSAGES} Nachrichten ({@link Result#isTruncated()}).
+     */
+    public Result run() {
+        SplittableRandom root = new SplittableRandom(seed);
+        FireworkProtocol[] nodes = new FireworkProtocol[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = new FireworkProtocol(p0, k, root.split());
+        }
+        return switch (protocol) {
+            case "broadcast" -> runBroadcast(nodes);
+            case "convergecast" -> runConvergecast(nodes);
+            case "safra" -> runSafra(nodes);
+            default -> throw new IllegalArgumentException("Unbekanntes Protokoll: " + protocol);
+        };
+    }
+
+    private void send(int receiver, int kind, int value) {
+        messages++;
+        queue.add(new long[]{receiver, kind, value});
+    }
+
+    /**
+     * @param truncated true, wenn der Lauf an {@link #MAX_MESSAGES} abgebrochen wurde
+     */
+    private Result result(FireworkProtocol coordinator, boolean truncated) {
+        return new Result(coordinator.getRounds(), coordinator.getTotalFireworks(), messages, roundTimes, truncated);
+    }
+
+    // --- broadcast: wie FireworkNode, jede empfangene Nachricht wird an alle weitergereicht ---
+
+    private Result runBroadcast(FireworkProtocol[] nodes) {
+        long lastRoundStart = System.nanoTime();
+        broadcast(0, 1);
+
+        while (!queue.isEmpty() && messages < MAX_MESSAGES) {
+            long[] m = queue.poll();
+            int node = (int) m[0];
+            int token = (int) m[2];
+            boolean fired = nodes[node].fires(token);
+            if (node == 0) {
+                long now = System.nanoTime();
+                roundTimes.record(now - lastRoundStart);
+                lastRoundStart = now;
+                if (nodes[0].completeRound(fired ? 1 : 0)) {
+                    return result(nodes[0], false);
+                }
+            }
+            broadcast(node, token + 1);
+        }
+        return result(nodes[0], messages >= MAX_MESSAGES);
+    }
+
+    private void broadcast(int sender, int token) {
+        for (int receiver = 0; receiver < n; receiver++) {
+            if (receiver != sender) {
+                send(receiver, ROUND, token);
+            }
+        }
+    }
+
+    // --- safra: wie SafraFireworkNode, Fluss wie broadcast, lokales Aufhören, Ende per Token ---
+
+    private Result runSafra(FireworkProtocol[] nodes) {
+        int[] counter = new int[n];
+        boolean[] black = new boolean[n];
+        boolean[] stopped = new boolean[n];
+        long lastRoundStart = System.nanoTime();
+        broadcast(0, 1);
+        counter[0] += n - 1;
+        if (n == 1) {
+            return result(nodes[0], false);
+        }
+        send(1, TOKEN_WHITE, 0);
+
+        while (!queue.isEmpty() && messages < MAX_MESSAGES) {
+            long[] m = queue.poll();
+            int node = (int) m[0];
+            int value = (int) m[2];
+            if (m[1] != ROUND) {
+                boolean tokenBlack = m[1] == TOKEN_BLACK;
+                if (node != 0) {
+                    send((node + 1) % n, tokenBlack || black[node] ? TOKEN_BLACK : TOKEN_WHITE, value + counter[node]);
+                    black[node] = false;
+                } else if (!tokenBlack && !black[0] && value + counter[0] == 0) {
+                    // Terminierung erkannt: 'end' an alle, es ist keine Rundennachricht mehr unterwegs
+                    messages += n - 1;
+                    return result(nodes[0], false);
+                } else {
+                    black[0] = false;
+                    send(1, TOKEN_WHITE, 0);
+                }
+                continue;
+            }
+            counter[node]--;
+            black[node] = true;
+            if (stopped[node]) {
+                continue;
+            }
+            boolean fired = nodes[node].fires(value);
+            if (node == 0) {
+                long now = System.nanoTime();
+                roundTimes.record(now - lastRoundStart);
+                lastRoundStart = now;
+            }
+            if (nodes[node].completeRound(fired ? 1 : 0)) {
+                stopped[node] = true;
+            } else {
+                broadcast(node, value + 1);
+                counter[node] += n - 1;
+            }
+        }
+        return result(nodes[0], messages >= MAX_MESSAGES);
+    }
+
+    // --- convergecast: wie ConvergecastFireworkNode, Runde den Baum hinunter, Feuerwerke hinauf ---
+
+    private Result runConvergecast(FireworkProtocol[] nodes) {
+        long roundStart = System.nanoTime();
+        startRound(0, 1, nodes);
+
+        while (true) {
+            // Der Coordinator hat alle Meldungen: Runde abschließen
+            if (nodes[0].isSubtreeComplete()) {
+                roundTimes.record(System.nanoTime() - roundStart);
+                if (nodes[0].completeRound(nodes[0].getSubtreeFireworks())) {
+                    // 'end' den Baum hinunter, ohne weitere Verarbeitung
+                    messages += n - 1;
+                    return result(nodes[0], false);
+                }
+                roundStart = System.nanoTime();
+                startRound(0, nodes[0].getRounds() + 1, nodes);
+                continue;
+            }
+            long[] m = queue.poll();
+            if (m == null || messages >= MAX_MESSAGES) {
+                return result(nodes[0], messages >= MAX_MESSAGES);
+            }
+            int node = (int) m[0];
+            int value = (int) m[2];
+            if (m[1] == REPORT) {
+                if (nodes[node].report(value) && node != 0) {
+                    send(FireworkProtocol.parent(node, fanout), REPORT, nodes[node].getSubtreeFireworks());
+                }
+            } else {
+                startRound(node, value, nodes);
+            }
+        }
+    }
+
+    private void startRound(int node, int round, FireworkProtocol[] nodes) {
+        int firstChild = FireworkProtocol.firstChild(node, fanout);
+        int children = FireworkProtocol.childCount(node, n, fanout);
+        for (int child = firstChild; child < firstChild + children; child++) {
+            send(child, ROUND, round);
+        }
+        nodes[node].startRound(round, children);
+        if (children == 0 && node != 0) {
+            send(FireworkProtocol.parent(node, fanout), REPORT, nodes[node].getSubtreeFireworks());
+        }
+    }
+
+    /**
+     * Ergebnis eines Laufs, Zeiten in Nanosekunden.
+     */
+    public static class Result {
+        private final int rounds;
+        private final int fireworks;
+        private final long messages;
+        private final RoundTimeHistogram roundTimes;
+        private final boolean truncated;
+
+        Result(int rounds, int fireworks, long messages, RoundTimeHistogram roundTimes, boolean truncated) {
+            this.rounds = rounds;
+            this.fireworks = fireworks;
+            this.messages = messages;
+            this.roundTimes = roundTimes;
+            this.truncated = truncated;
+        }
+
+        /**
+         * true, wenn der Lauf am Nachrichtenlimit abgebrochen wurde; Runden und Feuerwerke sind
+         * dann nur der Stand bis dahin, nicht das Ergebnis des Protokolls.
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public int getRounds() {
+            return rounds;
+        }
+
+        public int getFireworks() {
+            return fireworks;
+        }
+
+        public long getMessages() {
+            return messages;
+        }
+
+        public double getAvgRoundTime() {
+            return roundTimes.getMean();
+        }
+
+        public long getMaxRoundTime() {
+            return roundTimes.getMax();
+        }
+
+        public long getP50RoundTime() {
+            return roundTimes.getValueAtPercentile(50);
+        }
+
+        public long getP99RoundTime() {
+            return roundTimes.getValueAtPercentile(99);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.oxoo2a.sim4da.task3;
+
+/**
+ * Histogramm der Rundenzeiten eines Nodes, ohne die einzelnen Messwerte zu speichern.
+ * Pro Zweierpotenz gibt es 32 lineare Unter-Buckets (relativer Fehler unter 3,2 %), der
+ * Speicherbedarf ist fest (ca. 9 KB) und unabhängig von der Rundenzahl. record() legt keine
+ * Objekte an. Nicht threadsicher: jeder Node zeichnet nur in sein eigenes Histogramm auf.
+ * Werte in Nanosekunden, alles oberhalb von ca. 73 Minuten wird gekappt.
+ * @ author simon
+ */
+public class RoundTimeHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+    private static final int MAX_EXPONENT = 41;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count = 0;
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        buckets[bucketIndex(value)]++;
+        count++;
+        sum += value;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Addiert ein anderes Histogramm (z.B. alle Nodes eines Laufs).
+     */
+    public void add(RoundTimeHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] += other.buckets[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Wert am gegebenen Perzentil (0-100): obere Grenze des Buckets, höchstens das Maximum.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += buckets[i];
+            if (cumulative >= target) {
+                return Math.max(Math.min(highestEquivalentValue(i), max), getMin());
+            }
+        }
+        return max;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int block = index >>> SUB_BUCKET_BITS;
+        int shift = block - 1;
+        long lower = (1L << (shift + SUB_BUCKET_BITS)) | ((long) (index & SUB_BUCKET_MASK) << shift);
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,188 @@
+package org.oxoo2a.sim4da.task3;
+
+import org.oxoo2a.sim4da.Message;
+import org.oxoo2a.sim4da.Node;
+import org.oxoo2a.sim4da.UnknownNodeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+
+/**
+ * Feuerwerk-Node mit demselben Nachrichtenfluss wie {@link FireworkNode}, aber ohne zentrale
+ * Abbruchentscheidung: jede empfangene Rundennachricht ist ein Zug, danach geht die nächste
+ * Runde an alle. Jeder Node zählt die stillen Runden an seinen eigenen Zügen und reicht nach k
+ * stillen Runden in Folge nichts mehr weiter; spätere Rundennachrichten verbucht er nur noch.
+ * Sobald alle Nodes aufgehört haben, versiegt die Flut von selbst.
+ * Dass keine Rundennachricht mehr unterwegs ist, erkennt der Coordinator mit Safras Algorithmus:
+ * ein Token läuft über den Ring 0 → 1 → … → n-1 → 0 und sammelt die Bilanz gesendet minus
+ * empfangen; ein Node, der seit dem letzten Token etwas empfangen hat, färbt es schwarz. Zwischen
+ * zwei Nachrichten ist jeder Node untätig und reicht das Token sofort weiter. Ist es weiß und die
+ * Bilanz 0, ist die Berechnung beendet, sonst startet der Coordinator einen neuen Umlauf. Das
+ * 'end' danach trifft keine Rundennachricht mehr an und gibt nur die wartenden Nodes frei.
+ * @ author simon
+ */
+public class SafraFireworkNode extends Node {
+    private static final Logger logger = LoggerFactory.getLogger(SafraFireworkNode.class);
+
+    // Parameter:
+    private final int n;
+    private final boolean isCoordinator;
+    private final String successor;
+    private final FireworkProtocol protocol;
+
+    // Zeit zwischen zwei empfangenen Rundennachrichten, solange der Node noch weiterreicht
+    private final RoundTimeHistogram roundTimes = new RoundTimeHistogram();
+    private long lastRoundStart;
+    private boolean stopped = false;  // k stille Runden erreicht, nichts mehr weiterreichen
+
+    // Safra:
+    private int counter = 0;          // gesendete minus empfangene Rundennachrichten
+    private boolean black = false;    // seit dem letzten Token etwas empfangen
+    private boolean terminated = false;
+    private int probes = 0;
+
+    public SafraFireworkNode(int id, int n, double startP, int k) {
+        super(String.valueOf(id));
+        this.n = n;
+        this.protocol = new FireworkProtocol(startP, k, new Random());
+        this.isCoordinator = (id == 0);
+        this.successor = String.valueOf((id + 1) % n);
+    }
+
+    /**
+     * Startet die Simulation, wenn alle Nodes instanziiert sind.
+     * @see org.oxoo2a.sim4da.Simulator#simulate()
+     */
+    @Override
+    protected void engage() {
+        // Erste Runde und erstes Token nur vom Coordinator
+        if (isCoordinator) {
+            lastRoundStart = System.nanoTime();
+            broadcast(new FireworkMessage(FireworkMessage.Kind.ROUND, 1, 0, NodeName()));
+            counter += n - 1;
+            if (n == 1) {
+                terminated = true;
+            } else {
+                startProbe();
+            }
+        }
+
+        while (!terminated) {
+            handle(receive());
+        }
+
+        if (isCoordinator) {
+            logger.info("Terminierung erkannt nach {} Token-Umläufen", probes);
+            FireworkNode.writeSummary(protocol.getRounds(), protocol.getTotalFireworks(), roundTimes);
+            broadcast(new FireworkMessage(FireworkMessage.Kind.END, protocol.getRounds(), 0, NodeName()));
+        }
+        logger.info("Beende Node {}", NodeName());
+    }
+
+    public RoundTimeHistogram getRoundTimes() {
+        return roundTimes;
+    }
+
+    private void handle(Message m) {
+        if (m instanceof Token token) {
+            // Zwischen zwei Nachrichten ist der Node untätig
+            if (isCoordinator) {
+                evaluate(token);
+            } else {
+                forward(token);
+            }
+            return;
+        }
+        FireworkMessage fm = (FireworkMessage) m;
+        if (fm.isEnd()) {
+            terminated = true;
+            return;
+        }
+        counter--;
+        black = true;
+        if (stopped) {
+            return;
+        }
+
+        int token = fm.getRound();
+        long now = System.nanoTime();
+        if (lastRoundStart != 0) {
+            roundTimes.record(now - lastRoundStart);
+        }
+        lastRoundStart = now;
+
+        // Berechne, ob Feuerwerk gezündet wird, und zähle die stillen Runden selbst
+        boolean fired = protocol.fires(token);
+        if (protocol.completeRound(fired ? 1 : 0)) {
+            stopped = true;
+            logger.info("Node {} hört nach {} Runden auf", NodeName(), protocol.getRounds());
+            return;
+        }
+        // Token weiterreichen
+        broadcast(new FireworkMessage(FireworkMessage.Kind.ROUND, token + 1, fired ? 1 : 0, NodeName()));
+        counter += n - 1;
+    }
+
+    private void startProbe() {
+        probes++;
+        black = false;
+        sendToken(new Token(0, false, NodeName()));
+    }
+
+    private void forward(Token token) {
+        Token next = new Token(token.getCount() + counter, token.isBlack() || black, NodeName());
+        black = false;
+        sendToken(next);
+    }
+
+    private void evaluate(Token token) {
+        if (!token.isBlack() && !black && token.getCount() + counter == 0) {
+            terminated = true;
+        } else {
+            logger.info("Token-Umlauf {} erfolglos (Bilanz {}), starte neu", probes, token.getCount() + counter);
+            startProbe();
+        }
+    }
+
+    private void sendToken(Token token) {
+        try {
+            send(token, successor);
+        } catch (UnknownNodeException e) {
+            logger.error("Token an {} fehlgeschlagen", successor, e);
+        }
+    }
+
+    /**
+     * Safra-Token: aufsummierte Bilanz und Farbe.
+     */
+    static class Token extends Message {
+        private final int count;
+        private final boolean black;
+
+        Token(int count, boolean black, String senderId) {
+            this.count = count;
+            this.black = black;
+            this.setSender(senderId);
+        }
+
+        Token(Token original) {
+            super(original);
+            this.count = original.count;
+            this.black = original.black;
+        }
+
+        @Override
+        public Message copy() {
+            return new Token(this);
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        boolean isBlack() {
+            return black;
+        }
+    }
+}
@@ -1,15 +1,30 @@
 #!/usr/bin/env bash
 set -euo pipefail
 
+# Ein JVM-Start pro Kombination und ein Lauf pro Punkt. Für Wiederholungen mit
+# Konfidenzintervallen in einer JVM: org.oxoo2a.sim4da.task3.ExperimentRunner
+# Abgleich der Rundenzahlen mit dem Modell (Convergecast-Ergebnisse):
+# org.oxoo2a.sim4da.task3.FireworkOracle check
+
 # Parameter-Arrays
 PS=(0.8 0.5 0.2)
 KS=(2 3 5)
 NS=(5 10 25 50)
 
+# Rundenprotokoll: broadcast (Token an alle), convergecast (Spannbaum) oder safra
+# (wie broadcast, lokales Aufhören, Terminierungserkennung nach Safra), z.B.
+# PROTOCOL=convergecast FANOUT=4 ./run_task3.sh
+PROTOCOL="${PROTOCOL:-broadcast}"
+FANOUT="${FANOUT:-2}"
+
 # Summary und Results
 DATA_DIR="data"
 SUMMARY="$DATA_DIR/summary_task3.csv"
-RESULTS="$DATA_DIR/results_task3.csv"
+if [ "$PROTOCOL" = "broadcast" ]; then
+  RESULTS="$DATA_DIR/results_task3.csv"
+else
+  RESULTS="$DATA_DIR/results_task3_${PROTOCOL}.csv"
+fi
 
 # Java und Classpath
 JAVA_CMD="/Users/simonhaebenbrock/Library/Java/JavaVirtualMachines/graalvm-ce-24.0.1/Contents/Home/bin/java"
@@ -20,10 +35,17 @@ CP="${OUT}:${LIB}/*"
 # Projekt-Root
 cd "$(dirname "$0")"
 
-# Results-File initialisieren
+# Results-File initialisieren; eine Datei mit anderem Header (z.B. ältere Spalten) wird
+# beiseitegelegt, damit keine Zeilen mit unterschiedlicher Spaltenzahl gemischt werden
+HEADER="n,p,k,total_rounds,total_fireworks,min_round_time,avg_round_time,max_round_time,p50_round_time,p99_round_time"
 mkdir -p "$DATA_DIR"
+if [ -f "$RESULTS" ] && [ "$(head -n 1 "$RESULTS")" != "$HEADER" ]; then
+  OLD="${RESULTS%.csv}.$(date +%Y%m%d_%H%M%S).csv"
+  mv "$RESULTS" "$OLD"
+  echo "Header von $RESULTS passt nicht, alte Ergebnisse nach $OLD verschoben"
+fi
 if [ ! -f "$RESULTS" ]; then
-  echo "n,p,k,total_rounds,total_fireworks,min_round_time,avg_round_time,max_round_time" > "$RESULTS"
+  echo "$HEADER" > "$RESULTS"
 fi
 
 # compile
@@ -35,18 +57,18 @@ fi
 for p in "${PS[@]}"; do
   for k in "${KS[@]}"; do
     for n in "${NS[@]}"; do
-      echo "→ Simuliere n=$n, p=$p, k=$k …"
+      echo "→ Simuliere n=$n, p=$p, k=$k ($PROTOCOL) …"
 
       # altes Summary löschen
       rm -f "$SUMMARY"
 
       # Simulation starten
-      "$JAVA_CMD" -cp "$CP" org.oxoo2a.sim4da.task3.FireworkSimulation "$n" "$p" "$k"
+      "$JAVA_CMD" -cp "$CP" org.oxoo2a.sim4da.task3.FireworkSimulation "$n" "$p" "$k" "$PROTOCOL" "$FANOUT"
 
       # Ergebnis parsen und in results_task3.csv anhängen
       if [ -f "$SUMMARY" ]; then
         tail -n +2 "$SUMMARY" | \
-        awk -v n="$n" -v p="$p" -v k="$k" -F, '{ printf("%d,%.3f,%d,%s,%s,%s,%s\n", n, p, k, $1,$2,$3,$4,$5) }' \
+        awk -v n="$n" -v p="$p" -v k="$k" -F, '{ printf("%d,%.3f,%d,%s,%s,%s,%s,%s,%s,%s\n", n, p, k, $1,$2,$3,$4,$5,$6,$7) }' \
           >> "$RESULTS"
         echo " angehängt an $RESULTS"
       else
@@ -1,12 +1,18 @@
 package main.java.app;
 
+import main.java.check.OperationHistory;
 import main.java.dsm.DSMLogger;
+import main.java.dsm.ChangeEvent;
 import main.java.dsm.DistributedSharedMemory;
+import main.java.dsm.ScanIterator;
+import main.java.dsm.Watch;
 import org.oxoo2a.sim4da.Node;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 /**
@@ -15,6 +21,9 @@ import java.util.logging.Logger;
  */
 public class CounterApp extends Node {
 
+    private static final String COUNTER_PREFIX = "counter_";
+    private static final int SCAN_PAGE_SIZE = 64;
+
     private final DistributedSharedMemory dsm;
     private final String nodeId;
     private final Random random;
@@ -23,16 +32,39 @@ public class CounterApp extends Node {
     private final Map<String, Integer> lastKnownValues;
     private final int totalIterations;
     private final String dsmType;
+    private final OperationHistory history;
+    private final boolean watchCounters;
+    private final Map<String, Integer> watchedValues = new ConcurrentHashMap<>();
+    private volatile Watch counterWatch;
+    private volatile long lastSeenRevision = 0;
 
     private int currentIteration = 0;
-    private int readOperations = 0;
-    private int writeOperations = 0;
-    private int detectedInconsistencies = 0;
+    private final AtomicInteger readOperations = new AtomicInteger();
+    private final AtomicInteger writeOperations = new AtomicInteger();
+    private final AtomicInteger detectedInconsistencies = new AtomicInteger();
     private boolean initialized = false;
     private volatile boolean applicationRunning = false;
     private Thread simulationThread = null;
 
     public CounterApp(String nodeName, DistributedSharedMemory dsm, String[] allNodeIds, int totalIterations, String dsmType) {
+        this(nodeName, dsm, allNodeIds, totalIterations, dsmType, null);
+    }
+
+    /**
+     * @param history optionale Aufzeichnung aller Operationen für die Linearisierbarkeitsprüfung
+     */
+    public CounterApp(String nodeName, DistributedSharedMemory dsm, String[] allNodeIds, int totalIterations,
+                      String dsmType, OperationHistory history) {
+        this(nodeName, dsm, allNodeIds, totalIterations, dsmType, history, false);
+    }
+
+    /**
+     * @param watchCounters true: Zähler der anderen Knoten per {@link DistributedSharedMemory#watch}
+     *                      verfolgen statt sie in jedem Schritt zu lesen; die Historie enthält dann
+     *                      nur die Schreib- und Inkrementierzugriffe
+     */
+    public CounterApp(String nodeName, DistributedSharedMemory dsm, String[] allNodeIds, int totalIterations,
+                      String dsmType, OperationHistory history, boolean watchCounters) {
         super(nodeName);
         this.dsm = dsm;
         this.nodeId = nodeName;
@@ -42,6 +74,8 @@ public class CounterApp extends Node {
         this.lastKnownValues = new HashMap<>();
         this.totalIterations = totalIterations;
         this.dsmType = dsmType;
+        this.history = history;
+        this.watchCounters = watchCounters;
 
         for (String id : allNodeIds) {
             lastKnownValues.put(id, 0);
@@ -55,8 +89,8 @@ public class CounterApp extends Node {
         try {
             logger.warning("Initialisiere Zähler für " + nodeId);
             String counterKey = getCounterKey(nodeId);
-            dsm.write(counterKey, "0");
-            writeOperations++;
+            recordedWrite(counterKey, "0");
+            writeOperations.incrementAndGet();
             logger.warning("Zähler initialisiert: " + counterKey + " = 0");
             initialized = true;
         } catch (Exception e) {
@@ -99,18 +133,20 @@ public class CounterApp extends Node {
         }
     }
 
+    /**
+     * Inkrementiert den eigenen Zähler atomar auf dessen Heimatknoten (ein Round-Trip statt Lesen + Schreiben).
+     */
     private void incrementOwnCounter() {
         try {
             String counterKey = getCounterKey(nodeId);
-            String currentValueStr = dsm.read(counterKey);
-            readOperations++;
-
-            int currentValue = parseValue(currentValueStr);
-            int newValue = currentValue + 1;
+            Long newValue = recordedAdd(counterKey, 1);
+            writeOperations.incrementAndGet();
 
-            dsm.write(counterKey, String.valueOf(newValue));
-            writeOperations++;
-            lastKnownValues.put(nodeId, newValue);
+            if (newValue == null) {
+                logger.warning("Inkrementieren fehlgeschlagen: " + counterKey);
+                return;
+            }
+            lastKnownValues.put(nodeId, newValue.intValue());
 
             logger.info("Zähler inkrementiert: " + counterKey + " = " + newValue);
         } catch (Exception e) {
@@ -119,33 +155,117 @@ public class CounterApp extends Node {
     }
 
     private void checkAllCounters() {
-        Map<String, Integer> currentValues = new HashMap<>();
+        Map<String, Integer> currentValues = watchCounters ? watchedCounters() : readCounters();
+        if (watchCounters) {
+            // Den eigenen Zähler kennt das letzte Inkrementieren; die Benachrichtigung kann hinterherhinken
+            currentValues.merge(nodeId, lastKnownValues.getOrDefault(nodeId, 0), Math::max);
+        }
         int maxValue = 0;
+        for (int value : currentValues.values()) {
+            maxValue = Math.max(maxValue, value);
+        }
 
-        for (String id : allNodeIds) {
-            String counterKey = getCounterKey(id);
-            try {
-                String valueStr = dsm.read(counterKey);
-                readOperations++;
+        for (Map.Entry<String, Integer> entry : currentValues.entrySet()) {
+            String id = entry.getKey();
+            int lastValue = lastKnownValues.getOrDefault(id, 0);
+            int currentValue = entry.getValue();
 
+            checkForInconsistencies(id, lastValue, currentValue, maxValue);
+            lastKnownValues.put(id, currentValue);
+        }
+    }
+
+    /**
+     * Liest alle Zähler in einer seitenweisen Bereichsabfrage über den Präfix. Für die Historie
+     * zählt jeder bekannte Zähler als Lesezugriff über die Dauer des Scans.
+     */
+    private Map<String, Integer> readCounters() {
+        Map<String, Integer> currentValues = new HashMap<>();
+        Map<String, String> scanned = new HashMap<>();
+        Map<String, Long> readIds = invokeCounterReads();
+        boolean complete = false;
+
+        try {
+            ScanIterator counters = dsm.scanAll(COUNTER_PREFIX, SCAN_PAGE_SIZE);
+            while (counters.hasNext()) {
+                Map.Entry<String, String> entry = counters.next();
+                String valueStr = entry.getValue();
+                scanned.put(entry.getKey(), valueStr);
                 if (valueStr != null && !valueStr.isEmpty()) {
-                    int currentValue = parseValue(valueStr);
-                    currentValues.put(id, currentValue);
-                    maxValue = Math.max(maxValue, currentValue);
+                    currentValues.put(entry.getKey().substring(COUNTER_PREFIX.length()), parseValue(valueStr));
                 }
-            } catch (Exception e) {
-                logger.warning("Fehler beim Lesen von " + counterKey + ": " + e.getMessage());
             }
+            readOperations.incrementAndGet();
+            complete = counters.isComplete();
+            if (!complete) {
+                logger.warning("Zähler-Scan unvollständig");
+            }
+        } catch (Exception e) {
+            logger.warning("Fehler beim Lesen der Zähler: " + e.getMessage());
+        } finally {
+            completeCounterReads(readIds, scanned, complete);
         }
+        return currentValues;
+    }
 
-        for (String id : allNodeIds) {
-            if (!currentValues.containsKey(id)) continue;
+    private Map<String, Long> invokeCounterReads() {
+        Map<String, Long> readIds = new HashMap<>();
+        if (history != null) {
+            for (String id : allNodeIds) {
+                String counterKey = getCounterKey(id);
+                readIds.put(counterKey, history.invoke(nodeId, OperationHistory.OpType.READ, counterKey, null));
+            }
+        }
+        return readIds;
+    }
 
-            int lastValue = lastKnownValues.getOrDefault(id, 0);
-            int currentValue = currentValues.get(id);
+    /**
+     * Fehlt ein Zähler in einem vollständigen Scan, wurde "" gelesen; bei unvollständigem Scan
+     * ist das Ergebnis unbekannt (null).
+     */
+    private void completeCounterReads(Map<String, Long> readIds, Map<String, String> scanned, boolean complete) {
+        for (Map.Entry<String, Long> read : readIds.entrySet()) {
+            String value = scanned.get(read.getKey());
+            history.complete(read.getValue(), value != null ? value : complete ? "" : null);
+        }
+    }
 
-            checkForInconsistencies(id, lastValue, currentValue, maxValue);
-            lastKnownValues.put(id, currentValue);
+    /**
+     * Stand der Zähler aus den Änderungsbenachrichtigungen; kostet keine Leseoperationen.
+     */
+    private Map<String, Integer> watchedCounters() {
+        return new HashMap<>(watchedValues);
+    }
+
+    private void onCounterChange(ChangeEvent event) {
+        if (event.isReset()) {
+            // Danach folgt der vollständige Stand; entfernte Zähler kämen sonst nie weg
+            watchedValues.clear();
+            return;
+        }
+        String id = event.getKey().substring(COUNTER_PREFIX.length());
+        if (event.getValue() == null || event.getValue().isEmpty()) {
+            watchedValues.remove(id);
+        } else {
+            watchedValues.put(id, parseValue(event.getValue()));
+        }
+    }
+
+    /**
+     * Meldet die Beobachtung an; nach einem Stopp wird ab der zuletzt gesehenen Revision fortgesetzt.
+     */
+    private void startWatching() {
+        if (watchCounters && counterWatch == null) {
+            counterWatch = dsm.watch(COUNTER_PREFIX, true, lastSeenRevision, this::onCounterChange);
+        }
+    }
+
+    private void stopWatching() {
+        Watch watch = counterWatch;
+        if (watch != null) {
+            watch.cancel();
+            lastSeenRevision = watch.getLastRevision();
+            counterWatch = null;
         }
     }
 
@@ -154,26 +274,55 @@ public class CounterApp extends Node {
 
         // Rücksprünge
         if (currentValue < lastValue) {
-            detectedInconsistencies++;
+            detectedInconsistencies.incrementAndGet();
             logInconsistency("Zähler " + counterKey + " ist zurückgesprungen von " + lastValue + " auf " + currentValue);
         }
         // Unerwartete Sprünge
         else if (id.equals(nodeId) && currentValue > lastValue + 1) {
-            detectedInconsistencies++;
+            detectedInconsistencies.incrementAndGet();
             logInconsistency("Eigener Zähler " + counterKey + " hat unerwarteten Sprung von " + lastValue + " auf " + currentValue);
         }
         // Divergenzen bei AP
         else if (dsmType.equals("AP") && currentValue < maxValue - 2) {
-            detectedInconsistencies++;
+            detectedInconsistencies.incrementAndGet();
             logInconsistency("Divergenz - Zähler " + counterKey + " hat Wert " + currentValue + ", Maximum ist " + maxValue);
         }
         // Inkonsistenz bei CP/CA
         else if ((dsmType.equals("CP") || dsmType.equals("CA")) && currentValue != maxValue && maxValue > 0) {
-            detectedInconsistencies++;
+            detectedInconsistencies.incrementAndGet();
             logInconsistency("Konsistenz verletzt - Zähler " + counterKey + " hat Wert " + currentValue + ", sollte " + maxValue + " sein");
         }
     }
 
+    private void recordedWrite(String key, String value) {
+        if (history == null) {
+            dsm.write(key, value);
+            return;
+        }
+        long operationId = history.invoke(nodeId, OperationHistory.OpType.WRITE, key, value);
+        boolean completed = false;
+        try {
+            dsm.write(key, value);
+            completed = true;
+        } finally {
+            history.complete(operationId, completed ? value : null);
+        }
+    }
+
+    private Long recordedAdd(String key, long delta) {
+        if (history == null) {
+            return dsm.addAndGet(key, delta);
+        }
+        long operationId = history.invoke(nodeId, OperationHistory.OpType.ADD, key, String.valueOf(delta));
+        Long result = null;
+        try {
+            result = dsm.addAndGet(key, delta);
+            return result;
+        } finally {
+            history.complete(operationId, result == null ? null : String.valueOf(result));
+        }
+    }
+
     private void logInconsistency(String message) {
         String fullMessage = "[" + dsmType + "] INKONSISTENZ ERKANNT: " + message;
         logger.severe(fullMessage);
@@ -193,7 +342,7 @@ public class CounterApp extends Node {
     }
 
     private String getCounterKey(String nodeId) {
-        return "counter_" + nodeId;
+        return COUNTER_PREFIX + nodeId;
     }
 
     public void startApplication() {
@@ -206,6 +355,7 @@ public class CounterApp extends Node {
         applicationRunning = true;
 
         stopExistingThread();
+        startWatching();
 
         simulationThread = new Thread(() -> {
             try {
@@ -243,6 +393,7 @@ public class CounterApp extends Node {
         logger.warning("Stoppe Anwendung auf " + nodeId);
         applicationRunning = false;
         stopExistingThread();
+        stopWatching();
     }
 
     private void stopExistingThread() {
@@ -278,14 +429,18 @@ public class CounterApp extends Node {
     }
 
     public int getDetectedInconsistencies() {
-        return detectedInconsistencies;
+        return detectedInconsistencies.get();
     }
 
     public int getReadOperations() {
-        return readOperations;
+        return readOperations.get();
     }
 
     public int getWriteOperations() {
-        return writeOperations;
+        return writeOperations.get();
+    }
+
+    public DistributedSharedMemory getDsm() {
+        return dsm;
     }
 }
@@ -0,0 +1,458 @@
+package main.java.check;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prüft eine mit {@link OperationHistory} aufgezeichnete Historie auf Linearisierbarkeit
+ * bezüglich eines Registers pro Schlüssel.
+ * <p>
+ * Nach P-Kompositionalität ist die Historie genau dann linearisierbar, wenn jede Teilhistorie
+ * pro Schlüssel es ist. Jede Teilhistorie wird zusätzlich an Ruhepunkten (keine offene Operation
+ * auf dem Schlüssel) in Segmente zerlegt; über die Segmentgrenze wird nur die Menge der möglichen
+ * Registerwerte weitergereicht. Jedes Segment wird mit der Wing–Gong-Suche in der Variante von
+ * Lowe (Zustandscache über linearisierte Menge + Registerwert) geprüft. Atomare Additionen
+ * werden als Lese-Schreib-Operation auf dem numerisch interpretierten Register modelliert. Der Speicherbedarf hängt
+ * damit nur von der Nebenläufigkeit pro Schlüssel ab, nicht von der Länge der Historie; der
+ * Zustandscache eines Segments ist zusätzlich auf geschätzt 64 MB begrenzt. Segmente, deren Suche
+ * die Grenze erreicht, zählen als unbekannt.
+ */
+public class LinearizabilityChecker {
+
+    private static final int DEFAULT_MAX_SEARCH_STATES = 1_000_000;
+    private static final int DEFAULT_MAX_SEGMENT_OPERATIONS = 4096;
+    private static final long DEFAULT_MAX_SEARCH_BYTES = 64L << 20;
+    private static final int MAX_REPORTED_VIOLATIONS = 100;
+    private static final String INITIAL_VALUE = "";
+
+    private final int maxSearchStates;
+    private final int maxSegmentOperations;
+    private final long maxSearchBytes;
+
+    public LinearizabilityChecker() {
+        this(DEFAULT_MAX_SEARCH_STATES, DEFAULT_MAX_SEGMENT_OPERATIONS);
+    }
+
+    /**
+     * @param maxSearchStates      Obergrenze für besuchte Suchzustände pro Segment
+     * @param maxSegmentOperations Obergrenze für Operationen pro Segment
+     */
+    public LinearizabilityChecker(int maxSearchStates, int maxSegmentOperations) {
+        this(maxSearchStates, maxSegmentOperations, DEFAULT_MAX_SEARCH_BYTES);
+    }
+
+    /**
+     * @param maxSearchBytes geschätzter Speicher für den Zustandscache eines Segments; bei breiten
+     *                       Segmenten ist ein Zustand größer und die Suche bricht entsprechend früher ab
+     */
+    public LinearizabilityChecker(int maxSearchStates, int maxSegmentOperations, long maxSearchBytes) {
+        this.maxSearchStates = maxSearchStates;
+        this.maxSegmentOperations = maxSegmentOperations;
+        this.maxSearchBytes = maxSearchBytes;
+    }
+
+    public Result check(String fileName) throws IOException {
+        try (InputStream in = new FileInputStream(fileName)) {
+            return check(in);
+        }
+    }
+
+    /**
+     * Liest den Ereignisstrom vollständig und prüft ihn dabei segmentweise.
+     */
+    public Result check(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+        Result result = new Result();
+        Map<String, KeyState> keys = new HashMap<>();
+        Map<Long, Operation> open = new HashMap<>();
+        long sequence = 0;
+
+        while (true) {
+            byte event;
+            try {
+                event = in.readByte();
+            } catch (EOFException e) {
+                break;
+            }
+            sequence++;
+
+            if (event == OperationHistory.EVENT_INVOKE) {
+                long operationId = in.readLong();
+                in.readLong();
+                OperationHistory.OpType type = OperationHistory.OpType.values()[in.readByte()];
+                String nodeId = in.readUTF();
+                String key = in.readUTF();
+                String value = readNullable(in);
+
+                Operation operation = type == OperationHistory.OpType.ADD
+                        ? new Operation(type, nodeId, key, null, sequence, Long.parseLong(value))
+                        : new Operation(type, nodeId, key, value, sequence, 0);
+                open.put(operationId, operation);
+                keys.computeIfAbsent(key, k -> new KeyState()).openOperations++;
+                result.maxOpenOperations = Math.max(result.maxOpenOperations, open.size());
+            } else if (event == OperationHistory.EVENT_COMPLETE) {
+                long operationId = in.readLong();
+                in.readLong();
+                String value = readNullable(in);
+
+                Operation operation = open.remove(operationId);
+                if (operation == null) {
+                    continue;
+                }
+                result.operations++;
+                operation.completeSequence = sequence;
+                KeyState state = keys.get(operation.key);
+                addToSegment(state, operation, value);
+                state.openOperations--;
+                if (state.openOperations == 0) {
+                    checkSegment(operation.key, state, result, false);
+                } else if (state.segment.size() >= maxSegmentOperations) {
+                    // Kein Ruhepunkt in Sicht: Schnitt erzwingen, Ergebnis gilt nur als Näherung
+                    checkSegment(operation.key, state, result, true);
+                }
+            } else {
+                throw new IOException("Unbekannter Ereignistyp: " + event);
+            }
+        }
+
+        // Nie abgeschlossene Operationen: Schreiboperationen bleiben optional, Leseoperationen entfallen
+        for (Operation operation : open.values()) {
+            operation.completeSequence = Long.MAX_VALUE;
+            addToSegment(keys.get(operation.key), operation, null);
+        }
+        for (Map.Entry<String, KeyState> entry : keys.entrySet()) {
+            if (!entry.getValue().segment.isEmpty()) {
+                checkSegment(entry.getKey(), entry.getValue(), result, false);
+            }
+        }
+        result.keys = keys.size();
+        return result;
+    }
+
+    private void addToSegment(KeyState state, Operation operation, String completedValue) {
+        if (operation.type == OperationHistory.OpType.READ) {
+            if (completedValue == null) {
+                return;
+            }
+            operation.value = completedValue;
+        } else if (operation.type == OperationHistory.OpType.ADD) {
+            operation.value = completedValue;
+            operation.optional = completedValue == null;
+        } else {
+            operation.optional = completedValue == null;
+        }
+        state.segment.add(operation);
+    }
+
+    private void checkSegment(String key, KeyState state, Result result, boolean forcedCut) {
+        List<Operation> segment = state.segment;
+        result.segments++;
+        if (segment.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> valueIds = new HashMap<>();
+        List<String> values = new ArrayList<>();
+        int n = segment.size();
+        int[] valueOf = new int[n];
+        OperationHistory.OpType[] types = new OperationHistory.OpType[n];
+        long[] deltas = new long[n];
+        boolean[] optional = new boolean[n];
+        long[] invoke = new long[n];
+        long[] complete = new long[n];
+        for (int i = 0; i < n; i++) {
+            Operation operation = segment.get(i);
+            valueOf[i] = operation.value == null ? -1 : intern(operation.value, valueIds, values);
+            types[i] = operation.type;
+            deltas[i] = operation.delta;
+            optional[i] = operation.optional;
+            invoke[i] = operation.invokeSequence;
+            complete[i] = operation.completeSequence;
+        }
+
+        Set<Integer> startStates = new HashSet<>();
+        for (String value : state.possibleValues) {
+            startStates.add(intern(value, valueIds, values));
+        }
+
+        SearchOutcome outcome = search(n, valueOf, types, deltas, optional, invoke, complete, startStates,
+                valueIds, values);
+        Set<String> nextValues = new LinkedHashSet<>();
+        if (outcome.exhausted || (forcedCut && outcome.endStates.isEmpty())) {
+            result.unknownSegments++;
+            nextValues.addAll(state.possibleValues);
+            for (Operation operation : segment) {
+                if (operation.value != null) {
+                    nextValues.add(operation.value);
+                }
+            }
+        } else if (outcome.endStates.isEmpty()) {
+            result.addViolation(key, segment, state.possibleValues);
+            // Weiterprüfen mit allen im Segment beobachteten Werten als möglichem Zustand
+            nextValues.addAll(state.possibleValues);
+            for (Operation operation : segment) {
+                if (operation.value != null) {
+                    nextValues.add(operation.value);
+                }
+            }
+        } else {
+            for (int id : outcome.endStates) {
+                nextValues.add(values.get(id));
+            }
+        }
+
+        state.possibleValues = nextValues;
+        state.segment = new ArrayList<>();
+    }
+
+    /**
+     * Erschöpfende Tiefensuche über (linearisierte Menge, Registerwert) mit Zustandscache.
+     * Eine Operation darf als nächste linearisiert werden, wenn sie begonnen hat, bevor die
+     * früheste noch offene Operation beendet wurde. Der Cache ist nach Zustandszahl und nach
+     * geschätzten Bytes begrenzt, was zuerst erreicht wird.
+     */
+    private SearchOutcome search(int n, int[] valueOf, OperationHistory.OpType[] types, long[] deltas,
+                                 boolean[] optional, long[] invoke, long[] complete, Set<Integer> startStates,
+                                 Map<String, Integer> valueIds, List<String> values) {
+        SearchOutcome outcome = new SearchOutcome();
+        Set<Configuration> visited = new HashSet<>();
+        Deque<Configuration> stack = new ArrayDeque<>();
+        int words = (n + 63) >>> 6;
+        long maxStates = Math.min(maxSearchStates, maxSearchBytes / Configuration.estimatedBytes(words));
+
+        for (int state : startStates) {
+            Configuration start = new Configuration(new long[words], state);
+            if (visited.add(start)) {
+                stack.push(start);
+            }
+        }
+
+        while (!stack.isEmpty()) {
+            Configuration current = stack.pop();
+            long minComplete = Long.MAX_VALUE;
+            boolean done = true;
+            for (int i = 0; i < n; i++) {
+                if (!current.isLinearized(i)) {
+                    done = false;
+                    minComplete = Math.min(minComplete, complete[i]);
+                }
+            }
+            if (done) {
+                outcome.endStates.add(current.state);
+                continue;
+            }
+
+            for (int i = 0; i < n; i++) {
+                if (current.isLinearized(i) || invoke[i] > minComplete) {
+                    continue;
+                }
+                if (types[i] == OperationHistory.OpType.WRITE) {
+                    push(current.with(i, valueOf[i]), visited, stack);
+                    if (optional[i]) {
+                        push(current.with(i, current.state), visited, stack);
+                    }
+                } else if (types[i] == OperationHistory.OpType.ADD) {
+                    int sum = add(values.get(current.state), deltas[i], valueIds, values);
+                    if (sum >= 0 && (optional[i] || sum == valueOf[i])) {
+                        push(current.with(i, sum), visited, stack);
+                    }
+                    if (optional[i]) {
+                        push(current.with(i, current.state), visited, stack);
+                    }
+                } else if (valueOf[i] == current.state) {
+                    push(current.with(i, current.state), visited, stack);
+                }
+            }
+
+            if (visited.size() > maxStates) {
+                outcome.exhausted = true;
+                return outcome;
+            }
+        }
+        return outcome;
+    }
+
+    private static void push(Configuration next, Set<Configuration> visited, Deque<Configuration> stack) {
+        if (visited.add(next)) {
+            stack.push(next);
+        }
+    }
+
+    /**
+     * Ergebnis einer Addition auf dem Registerwert ("" zählt als 0), -1 wenn der Wert keine Zahl ist.
+     */
+    private static int add(String state, long delta, Map<String, Integer> ids, List<String> values) {
+        long base;
+        try {
+            base = state.isEmpty() ? 0 : Long.parseLong(state);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        return intern(String.valueOf(base + delta), ids, values);
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<String> values) {
+        return ids.computeIfAbsent(value, v -> {
+            values.add(v);
+            return values.size() - 1;
+        });
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Ergebnis einer Prüfung.
+     */
+    public static class Result {
+        private long operations;
+        private long keys;
+        private long segments;
+        private long unknownSegments;
+        private long violationCount;
+        private int maxOpenOperations;
+        private final List<String> violations = new ArrayList<>();
+
+        private void addViolation(String key, List<Operation> segment, Set<String> possibleValues) {
+            violationCount++;
+            if (violations.size() < MAX_REPORTED_VIOLATIONS) {
+                StringBuilder sb = new StringBuilder();
+                sb.append("Schlüssel ").append(key).append(" nicht linearisierbar (Startwerte ")
+                        .append(possibleValues).append("): ");
+                for (Operation operation : segment) {
+                    sb.append(operation).append(' ');
+                }
+                violations.add(sb.toString().trim());
+            }
+        }
+
+        public boolean isLinearizable() {
+            return violationCount == 0;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        public long getKeys() {
+            return keys;
+        }
+
+        public long getSegments() {
+            return segments;
+        }
+
+        public long getUnknownSegments() {
+            return unknownSegments;
+        }
+
+        public long getViolationCount() {
+            return violationCount;
+        }
+
+        public int getMaxOpenOperations() {
+            return maxOpenOperations;
+        }
+
+        public List<String> getViolations() {
+            return violations;
+        }
+    }
+
+    private static class KeyState {
+        List<Operation> segment = new ArrayList<>();
+        Set<String> possibleValues = Set.of(INITIAL_VALUE);
+        int openOperations;
+    }
+
+    private static class Operation {
+        final OperationHistory.OpType type;
+        final String nodeId;
+        final String key;
+        final long invokeSequence;
+        final long delta;
+        String value;
+        long completeSequence;
+        boolean optional;
+
+        Operation(OperationHistory.OpType type, String nodeId, String key, String value, long invokeSequence,
+                  long delta) {
+            this.type = type;
+            this.nodeId = nodeId;
+            this.key = key;
+            this.value = value;
+            this.invokeSequence = invokeSequence;
+            this.delta = delta;
+        }
+
+        @Override
+        public String toString() {
+            if (type == OperationHistory.OpType.ADD) {
+                return nodeId + ":add(" + delta + ")=" + value + (optional ? "?" : "");
+            }
+            return nodeId + ":" + (type == OperationHistory.OpType.READ ? "r(" : "w(") + value + ")"
+                    + (optional ? "?" : "");
+        }
+    }
+
+    private static class Configuration {
+        final long[] linearized;
+        final int state;
+
+        Configuration(long[] linearized, int state) {
+            this.linearized = linearized;
+            this.state = state;
+        }
+
+        /**
+         * Geschätzter Speicher eines Zustands im Cache: Objekt, Bitmenge, Eintrag im HashSet
+         * und Platz auf dem Stack.
+         */
+        static long estimatedBytes(int words) {
+            return 24 + 16 + 8L * words + 48;
+        }
+
+        boolean isLinearized(int index) {
+            return (linearized[index >>> 6] & (1L << index)) != 0;
+        }
+
+        Configuration with(int index, int newState) {
+            long[] copy = linearized.clone();
+            copy[index >>> 6] |= 1L << index;
+            return new Configuration(copy, newState);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Configuration other)) {
+                return false;
+            }
+            return state == other.state && Arrays.equals(linearized, other.linearized);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(linearized) + state;
+        }
+    }
+
+    private static class SearchOutcome {
+        final Set<Integer> endStates = new HashSet<>();
+        boolean exhausted;
+    }
+}
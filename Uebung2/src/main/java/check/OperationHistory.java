@@ -0,0 +1,110 @@
+package main.java.check;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Kompakte Aufzeichnung aller DSM-Operationen als binärer Ereignisstrom.
+ * Pro Operation werden ein INVOKE- und ein COMPLETE-Ereignis geschrieben. Die Reihenfolge in der
+ * Datei entspricht der Echtzeit-Reihenfolge, daher kann der {@link LinearizabilityChecker}
+ * den Strom ohne Sortierung und mit begrenztem Speicher prüfen.
+ */
+public class OperationHistory implements AutoCloseable {
+
+    static final byte EVENT_INVOKE = 'I';
+    static final byte EVENT_COMPLETE = 'C';
+
+    public enum OpType {
+        READ, WRITE,
+        /** Atomares Addieren; beim Aufruf wird der Summand, beim Abschluss das Ergebnis vermerkt. */
+        ADD
+    }
+
+    private static final Logger logger = Logger.getLogger(OperationHistory.class.getName());
+
+    private final DataOutputStream out;
+    private final AtomicLong nextOperationId = new AtomicLong();
+    private boolean closed = false;
+
+    public OperationHistory(String fileName) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+    }
+
+    /**
+     * Vermerkt den Beginn einer Operation.
+     *
+     * @param nodeId Knoten, der die Operation ausführt
+     * @param type   Lesen, Schreiben oder Addieren
+     * @param key    betroffener Schlüssel
+     * @param value  geschriebener Wert bzw. Summand (bei Lesen ignoriert)
+     * @return Operations-ID für {@link #complete}
+     */
+    public long invoke(String nodeId, OpType type, String key, String value) {
+        long operationId = nextOperationId.getAndIncrement();
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (closed) {
+                return operationId;
+            }
+            try {
+                out.writeByte(EVENT_INVOKE);
+                out.writeLong(operationId);
+                out.writeLong(now);
+                out.writeByte(type.ordinal());
+                out.writeUTF(nodeId);
+                out.writeUTF(key);
+                writeNullable(type != OpType.READ ? value : null);
+            } catch (IOException e) {
+                logger.warning("Fehler beim Aufzeichnen: " + e.getMessage());
+            }
+        }
+        return operationId;
+    }
+
+    /**
+     * Vermerkt das Ende einer Operation.
+     *
+     * @param operationId ID aus {@link #invoke}
+     * @param value       gelesener, geschriebener bzw. errechneter Wert; {@code null} markiert eine
+     *                    fehlgeschlagene Operation (bei Schreib- und Addieroperationen: Ausgang unbekannt)
+     */
+    public void complete(long operationId, String value) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            try {
+                out.writeByte(EVENT_COMPLETE);
+                out.writeLong(operationId);
+                out.writeLong(now);
+                writeNullable(value);
+            } catch (IOException e) {
+                logger.warning("Fehler beim Aufzeichnen: " + e.getMessage());
+            }
+        }
+    }
+
+    public long getOperationCount() {
+        return nextOperationId.get();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    private void writeNullable(String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+}
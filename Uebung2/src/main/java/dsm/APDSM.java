@@ -1,15 +1,10 @@
 package main.java.dsm;
 
-import org.oxoo2a.sim4da.Message;
-import org.oxoo2a.sim4da.UnknownNodeException;
-
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -18,27 +13,31 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public class APDSM extends AbstractDSM {
 
-    private final Map<String, Long> timestampMap;
     private final Random random = new Random();
 
     private static final double MESSAGE_DROP_RATE = 0.7;
     private static final double MESSAGE_DELAY_RATE = 0.8;
     private static final double VALUE_MANIPULATION_RATE = 0.4;
     private static final long MAX_DELAY_MS = 5000;
+    private static final int STALE_HISTORY = 1;
 
     private final List<DelayedMessage> delayedMessages = new CopyOnWriteArrayList<>();
     private final Set<String> partitionedNodes = new HashSet<>();
-    private final Map<String, String> staleValues = new ConcurrentHashMap<>();
     private Thread messageProcessingThread;
 
     public APDSM(String nodeName) {
         super(nodeName);
-        this.timestampMap = new ConcurrentHashMap<>();
 
         startDelayedMessageProcessor();
         simulateRandomPartitions();
     }
 
+    @Override
+    public synchronized void close() {
+        messageProcessingThread.interrupt();
+        super.close();
+    }
+
     private void startDelayedMessageProcessor() {
         messageProcessingThread = new Thread(() -> {
             try {
@@ -77,11 +76,34 @@ public class APDSM extends AbstractDSM {
         }
 
         for (DelayedMessage msg : messagesToProcess) {
-            processMessage(msg);
-            delayedMessages.remove(msg);
+            // Nur wer die Nachricht entfernt, stellt sie zu (drainQueues läuft parallel)
+            if (delayedMessages.remove(msg)) {
+                processMessage(msg);
+            }
         }
     }
 
+    @Override
+    protected int getQueuedMessages() {
+        return delayedMessages.size();
+    }
+
+    /**
+     * Stellt alle zurückgehaltenen Nachrichten sofort zu, ohne ihre Wartezeit abzuwarten.
+     * Die Manipulation von Werten bleibt dabei aktiv.
+     */
+    @Override
+    public int drainQueues() {
+        int delivered = 0;
+        for (DelayedMessage msg : delayedMessages) {
+            if (delayedMessages.remove(msg)) {
+                processMessage(msg);
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
     private void processMessage(DelayedMessage delayedMsg) {
         // Gelegentlich Nachrichten manipulieren
         if (delayedMsg.message.getType() == DSMMessage.Type.WRITE &&
@@ -91,7 +113,7 @@ public class APDSM extends AbstractDSM {
             DSMMessage manipulated = new DSMMessage(
                     original.getType(),
                     original.getKey(),
-                    manipulateValue(original.getValue()),
+                    manipulateValue(WriteEncoder.decode(original, "")),
                     original.getSenderId()
             );
             deliverMessage(manipulated, delayedMsg.receiver);
@@ -104,11 +126,7 @@ public class APDSM extends AbstractDSM {
         if (receiver.equals(NodeName())) {
             receive(message);
         } else {
-            try {
-                send(message, receiver);
-            } catch (UnknownNodeException e) {
-                logger.warning("Knoten nicht erreichbar: " + receiver);
-            }
+            sendMessage(message, receiver);
         }
     }
 
@@ -170,15 +188,9 @@ public class APDSM extends AbstractDSM {
     }
 
     @Override
-    public void write(String key, String value) {
-        String oldValue = localStore.get(key);
-        if (oldValue != null && !oldValue.equals(value)) {
-            staleValues.put(key, oldValue);
-        }
-
+    protected boolean doWrite(String key, String value) {
         long timestamp = System.currentTimeMillis();
-        localStore.put(key, value);
-        timestampMap.put(key, timestamp);
+        applyLocal(key, value, timestamp);
 
         if (random.nextDouble() < 0.2) {
             try {
@@ -188,8 +200,19 @@ public class APDSM extends AbstractDSM {
             }
         }
 
-        DSMMessage writeMessage = new DSMMessage(DSMMessage.Type.WRITE, key, value, NodeName(), timestamp);
+        // Ohne Bestätigungen kein Delta, große Werte werden nur komprimiert
+        DSMMessage writeMessage = writeEncoder.encode(key, key, value, timestamp, NodeName(), -1);
         broadcastAsyncMessage(writeMessage);
+        // AP wartet auf keine Bestätigung, der lokale Schreibzugriff genügt
+        return true;
+    }
+
+    /**
+     * Dieselben Zeitstempel wie einzelne Schreibzugriffe, damit beide nach Last-Writer-Wins vergleichbar bleiben.
+     */
+    @Override
+    protected long transactionVersion() {
+        return System.currentTimeMillis();
     }
 
     private void broadcastAsyncMessage(DSMMessage message) {
@@ -202,20 +225,17 @@ public class APDSM extends AbstractDSM {
                 long delay = 50 + random.nextInt((int) MAX_DELAY_MS);
                 delayedMessages.add(new DelayedMessage(message, nodeId, System.currentTimeMillis() + delay));
             } else {
-                try {
-                    send(message, nodeId);
-                } catch (UnknownNodeException e) {
-                    logger.warning("Knoten nicht erreichbar: " + nodeId);
-                }
+                sendMessage(message, nodeId);
             }
         }
     }
 
     @Override
-    public String read(String key) {
+    protected String doRead(String key) {
         // Manchmal veraltete Werte zurückgeben
         if (random.nextDouble() < 0.3) {
-            String staleValue = staleValues.get(key);
+            KeyEntry entry = liveEntry(key);
+            String staleValue = entry == null ? null : entry.getPreviousValue(0);
             if (staleValue != null) {
                 return staleValue;
             }
@@ -226,17 +246,11 @@ public class APDSM extends AbstractDSM {
             return "";
         }
 
-        return localStore.getOrDefault(key, "");
+        return localValue(key);
     }
 
     @Override
-    public void receive(Message message) {
-        if (!(message instanceof DSMMessage)) {
-            return;
-        }
-
-        DSMMessage dsmMessage = (DSMMessage) message;
-
+    protected void doReceive(DSMMessage dsmMessage) {
         if (random.nextDouble() < 0.3) {
             try {
                 Thread.sleep(random.nextInt(50));
@@ -245,21 +259,37 @@ public class APDSM extends AbstractDSM {
             }
         }
 
+        if (handleSharedMessage(dsmMessage)) {
+            return;
+        }
+
         if (dsmMessage.getType() == DSMMessage.Type.WRITE) {
             processWriteMessage(dsmMessage);
         }
     }
 
+    /**
+     * Ein früherer Wert pro Schlüssel genügt für die simulierten veralteten Lesezugriffe.
+     */
+    @Override
+    protected int historyLimit() {
+        return STALE_HISTORY;
+    }
+
     private void processWriteMessage(DSMMessage message) {
         String key = message.getKey();
-        String value = message.getValue();
+        String value = WriteEncoder.decode(message, "");
         long receivedTimestamp = message.getTimestamp();
-
-        Long currentTimestamp = timestampMap.get(key);
-        if (currentTimestamp == null || receivedTimestamp > currentTimestamp) {
-            localStore.put(key, value);
-            timestampMap.put(key, receivedTimestamp);
+        if (value == null) {
+            return;
         }
+
+        computeEntry(key, (k, current) -> {
+            if (current != null && receivedTimestamp <= current.getVersion()) {
+                return current;
+            }
+            return install(k, current, value, receivedTimestamp);
+        });
     }
 
     private static class DelayedMessage {
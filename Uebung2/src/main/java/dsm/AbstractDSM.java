@@ -4,9 +4,38 @@ import org.oxoo2a.sim4da.Message;
 import org.oxoo2a.sim4da.Node;
 import org.oxoo2a.sim4da.UnknownNodeException;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
 import java.util.logging.Logger;
 
 /**
@@ -14,19 +43,1086 @@ import java.util.logging.Logger;
  */
 public abstract class AbstractDSM extends Node implements DistributedSharedMemory {
 
-    protected final Map<String, String> localStore;
+    private static final long ATOMIC_TIMEOUT_MS = 1000;
+    private static final int KEY_LOCK_STRIPES = 64;
+    private static final long SWEEP_INTERVAL_MS = 100;
+    private static final int SWEEP_BATCH = 10_000;
+    private static final long MISS_FETCH_TIMEOUT_MS = 200;
+    private static final int SYNC_PAGE_SIZE = 1000;
+    private static final long SYNC_TIMEOUT_MS = 500;
+    private static final ScheduledExecutorService STORE_MAINTENANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DSM-StoreMaintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    protected final ConcurrentNavigableMap<String, KeyEntry> localStore;
     protected final Set<String> knownNodes;
     protected final Logger logger;
+    protected final DSMMetrics metrics;
+    protected final RequestRegistry pendingRequests;
+    protected final MultiVersionStore versions;
+    protected final ChangeFeed changeFeed;
+    protected final WriteEncoder writeEncoder = new WriteEncoder();
+    private final AtomicLong versionClock = new AtomicLong();
+    // höchste Revision eines verdrängten oder abgelaufenen Eintrags, vertritt fehlende Schlüssel
+    private final AtomicLong removedRevision = new AtomicLong();
+    private final Map<String, Integer> peerIndices = new ConcurrentHashMap<>();
+    private final List<String> peerNames = new CopyOnWriteArrayList<>();
+    private final TransactionParticipant transactionParticipant;
+    private final Object[] keyLocks = new Object[KEY_LOCK_STRIPES];
+    private final LongAdder missFetches = new LongAdder();
+    private volatile StorePolicy storePolicy = StorePolicy.UNBOUNDED;
+    private volatile StoreBudget storeBudget;
+    private volatile DSMTransport transport;
+    private ScheduledFuture<?> expirySweeper;
+    private String sweepCursor;
+    private ExecutorService atomicExecutor;
+    private ObjectName mbeanName;
 
     public AbstractDSM(String nodeName) {
         super(nodeName);
-        this.localStore = new ConcurrentHashMap<>();
+        this.localStore = new ConcurrentSkipListMap<>();
         this.knownNodes = ConcurrentHashMap.newKeySet();
         this.logger = Logger.getLogger(this.getClass().getName() + "-" + nodeName);
+        this.metrics = new DSMMetrics();
+        this.pendingRequests = new RequestRegistry();
+        this.versions = new MultiVersionStore(localStore, this::keyLock, this::reaccount);
+        this.changeFeed = new ChangeFeed(this::collectState);
+        this.transactionParticipant = new TransactionParticipant(this, nodeName);
+        for (int i = 0; i < keyLocks.length; i++) {
+            keyLocks[i] = new Object();
+        }
+    }
+
+    @Override
+    public final void write(String key, String value) {
+        DSMEvents.Operation event = new DSMEvents.Operation();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            doWrite(key, value);
+        } finally {
+            metrics.record(DSMMetrics.Operation.WRITE, System.nanoTime() - start);
+            event.commit(NodeName(), "WRITE", key);
+        }
+    }
+
+    @Override
+    public final String read(String key) {
+        DSMEvents.Operation event = new DSMEvents.Operation();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            if (storePolicy.isCacheRole() && !knownNodes.isEmpty() && liveEntry(key) == null) {
+                fetchMissing(key);
+            }
+            return doRead(key);
+        } finally {
+            metrics.record(DSMMetrics.Operation.READ, System.nanoTime() - start);
+            event.commit(NodeName(), "READ", key);
+        }
+    }
+
+    @Override
+    public final boolean compareAndSet(String key, String expected, String newValue) {
+        Objects.requireNonNull(newValue, "newValue");
+        DSMEvents.Operation event = new DSMEvents.Operation();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return executeAtomic(DSMAtomicMessage.Operation.COMPARE_AND_SET, key, expected, newValue, 0) != null;
+        } finally {
+            metrics.record(DSMMetrics.Operation.ATOMIC, System.nanoTime() - start);
+            event.commit(NodeName(), "COMPARE_AND_SET", key);
+        }
+    }
+
+    @Override
+    public final Long addAndGet(String key, long delta) {
+        DSMEvents.Operation event = new DSMEvents.Operation();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            String result = executeAtomic(DSMAtomicMessage.Operation.ADD, key, null, null, delta);
+            return result == null ? null : Long.valueOf(result);
+        } finally {
+            metrics.record(DSMMetrics.Operation.ATOMIC, System.nanoTime() - start);
+            event.commit(NodeName(), "ADD", key);
+        }
+    }
+
+    /**
+     * Heimatknoten eines Schlüssels: fester Platz in der sortierten Liste aller Knoten.
+     * Alle atomaren Operationen auf den Schlüssel werden dort serialisiert.
+     */
+    protected String homeNode(String key) {
+        List<String> nodes = new ArrayList<>(knownNodes);
+        nodes.add(NodeName());
+        Collections.sort(nodes);
+        return nodes.get(Math.floorMod(key.hashCode(), nodes.size()));
+    }
+
+    /**
+     * Wartezeit auf das Ergebnis einer atomaren Operation; muss den Schreibzugriff der Variante abdecken.
+     */
+    protected long atomicTimeoutMs() {
+        return ATOMIC_TIMEOUT_MS;
+    }
+
+    private String executeAtomic(DSMAtomicMessage.Operation operation, String key, String expected,
+                                 String newValue, long delta) {
+        String home = homeNode(key);
+        if (home.equals(NodeName())) {
+            Future<String> result = atomicExecutor().submit(() -> applyAtomic(operation, key, expected, newValue, delta));
+            try {
+                return result.get(atomicTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException | TimeoutException e) {
+                logger.warning("Atomare Operation auf " + key + " fehlgeschlagen: " + e);
+                return null;
+            }
+        }
+
+        RequestRegistry.Request request = pendingRequests.register(1, atomicTimeoutMs());
+        try {
+            sendMessage(new DSMAtomicMessage(request.getId(), operation, key, expected, newValue, delta, NodeName()),
+                    home);
+            if (!request.await(TimeUnit.MILLISECONDS.toNanos(atomicTimeoutMs()))) {
+                logger.warning("Keine Antwort vom Heimatknoten " + home + " für " + key);
+                return null;
+            }
+            return (String) request.getResult();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            request.release();
+        }
+    }
+
+    /**
+     * Führt eine atomare Operation auf dem Heimatknoten aus. Läuft ausschließlich auf dem
+     * Atomic-Executor, daher sind alle Operationen eines Knotens serialisiert. Geschrieben wird
+     * über {@link #doWrite}, also mit der Replikation und den Garantien der jeweiligen Variante;
+     * meldet die Variante den Schreibzugriff als nicht bestätigt (Partition, fehlendes Quorum),
+     * schlägt die Operation fehl, auch wenn der Wert lokal stehen geblieben ist.
+     *
+     * @return der geschriebene Wert oder null
+     */
+    private String applyAtomic(DSMAtomicMessage.Operation operation, String key, String expected,
+                               String newValue, long delta) {
+        if (transactionParticipant.isLocked(key, null)) {
+            return null;
+        }
+        String current = localValue(key);
+        String target;
+        if (operation == DSMAtomicMessage.Operation.COMPARE_AND_SET) {
+            if (!current.equals(expected == null ? "" : expected)) {
+                return null;
+            }
+            target = newValue;
+        } else {
+            try {
+                target = String.valueOf((current.isEmpty() ? 0 : Long.parseLong(current)) + delta);
+            } catch (NumberFormatException e) {
+                logger.warning("Kein numerischer Wert für " + key + ": " + current);
+                return null;
+            }
+        }
+        return doWrite(key, target) ? target : null;
+    }
+
+    @Override
+    public DSMTransaction beginTransaction() {
+        return new DSMTransaction(this, NodeName());
+    }
+
+    /**
+     * Schickt je eine Transaktionsnachricht an mehrere Heimatknoten und wartet auf alle Antworten.
+     * Der eigene Anteil läuft direkt auf dem Atomic-Executor.
+     *
+     * @return Antworten pro Heimatknoten; fehlende Einträge haben nicht rechtzeitig geantwortet
+     */
+    Map<String, DSMTransactionMessage> callHomes(DSMTransactionMessage.Phase phase, String transactionId,
+                                                 Map<String, DSMTransaction.Part> parts, long timeoutMs) {
+        Map<String, RequestRegistry.Request> remote = new HashMap<>();
+        Map<String, DSMTransactionMessage> responses = new HashMap<>();
+        Future<DSMTransactionMessage> local = null;
+        try {
+            for (Map.Entry<String, DSMTransaction.Part> entry : parts.entrySet()) {
+                String home = entry.getKey();
+                DSMTransaction.Part part = entry.getValue();
+                if (home.equals(NodeName())) {
+                    DSMTransactionMessage request = part.toRequest(0, phase, transactionId, NodeName());
+                    local = atomicExecutor().submit(() -> transactionParticipant.handle(request));
+                } else {
+                    RequestRegistry.Request request = pendingRequests.register(1, timeoutMs);
+                    remote.put(home, request);
+                    sendMessage(part.toRequest(request.getId(), phase, transactionId, NodeName()), home);
+                }
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            if (local != null) {
+                try {
+                    responses.put(NodeName(), local.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (ExecutionException | TimeoutException e) {
+                    logger.warning("Transaktion " + transactionId + " (" + phase + ") lokal fehlgeschlagen: " + e);
+                }
+            }
+            for (Map.Entry<String, RequestRegistry.Request> entry : remote.entrySet()) {
+                if (entry.getValue().await(Math.max(0, deadline - System.nanoTime()))) {
+                    responses.put(entry.getKey(), (DSMTransactionMessage) entry.getValue().getResult());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (RequestRegistry.Request request : remote.values()) {
+                request.release();
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Version, unter der ein Heimatknoten die Schreibmenge einer Transaktion anwendet und
+     * repliziert; 0 für Varianten ohne Versionen (Replikate überschreiben dann unbedingt).
+     */
+    protected long transactionVersion() {
+        return nextVersion();
+    }
+
+    /**
+     * Wendet die Schreibmenge einer Transaktion auf dem Heimatknoten als Einheit an und verteilt
+     * sie als eine Nachricht mit einer Version an alle Replikate ({@code REPLICATE}). Es gibt
+     * keinen Zwischenstand, in dem nur ein Teil geschrieben ist: weder lokal noch auf einem
+     * Replikat, das die Nachricht erhält. Die Bestätigungen der Replikate werden nur noch
+     * ausgewertet und halten den Atomic-Executor nicht auf; die Transaktion gilt mit dem lokalen
+     * Einsetzen als angewendet.
+     */
+    void commitWrites(String transactionId, String[] keys, String[] values) {
+        if (keys.length == 0) {
+            return;
+        }
+        long version = transactionVersion();
+        installWrites(keys, values, version);
+        List<String> peers = new ArrayList<>(knownNodes);
+        if (peers.isEmpty()) {
+            return;
+        }
+        long timeoutMs = atomicTimeoutMs();
+        RequestRegistry.Request request = pendingRequests.register(peers.size(), timeoutMs);
+        DSMTransactionMessage message = DSMTransactionMessage.replicate(request.getId(), transactionId, keys, values,
+                version, NodeName());
+        for (String peer : peers) {
+            sendMessage(message, peer);
+        }
+        STORE_MAINTENANCE.schedule(() -> {
+            try {
+                if (!request.isCompleted()) {
+                    logger.warning("Transaktion " + transactionId + ": " + (peers.size() - request.getResponseCount())
+                            + " Replikate ohne Bestätigung");
+                }
+            } finally {
+                request.release();
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Setzt mehrere Schlüssel atomar ein: alle betroffenen Schlüsselsperren werden in
+     * aufsteigender Reihenfolge genommen (wie beim Öffnen eines Snapshots), ein Snapshot sieht
+     * also alle Werte oder keinen. Mit Version 0 wird unbedingt geschrieben, sonst pro Schlüssel
+     * nach Last-Writer-Wins.
+     */
+    private void installWrites(String[] keys, String[] values, long version) {
+        if (version != 0) {
+            versionClock.accumulateAndGet(version, Math::max);
+        }
+        int[] stripes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            stripes[i] = stripe(keys[i]);
+        }
+        stripes = Arrays.stream(stripes).sorted().distinct().toArray();
+        installWrites(stripes, 0, keys, values, version);
+        if (storeBudget != null) {
+            enforceBudget();
+        }
+    }
+
+    private void installWrites(int[] stripes, int held, String[] keys, String[] values, long version) {
+        if (held < stripes.length) {
+            synchronized (keyLocks[stripes[held]]) {
+                installWrites(stripes, held + 1, keys, values, version);
+            }
+            return;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            KeyEntry current = localStore.get(keys[i]);
+            if (version == 0 || current == null || current.isSupersededBy(values[i], version)) {
+                localStore.put(keys[i], install(keys[i], current, values[i], version));
+            }
+        }
+    }
+
+    /**
+     * Legt als Koordinator den Ausgang einer Transaktion fest, bevor ihn ein Teilnehmer erfährt.
+     *
+     * @return der gültige Ausgang; false, wenn ein Teilnehmer vorher den Abbruch festgelegt hat
+     */
+    boolean decideTransaction(String transactionId, boolean commit) {
+        return transactionParticipant.decide(transactionId, commit);
+    }
+
+    /**
+     * Fragt den Koordinator nach dem Ausgang einer vorbereiteten Transaktion; die Antwort
+     * setzt {@link #handleTransactionMessage} um.
+     */
+    void requestOutcome(String transactionId, String coordinator) {
+        sendMessage(new DSMTransaction.Part().toRequest(0, DSMTransactionMessage.Phase.OUTCOME, transactionId,
+                NodeName()), coordinator);
+    }
+
+    private synchronized ExecutorService atomicExecutor() {
+        if (atomicExecutor == null) {
+            atomicExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "DSM-Atomic-" + NodeName());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return atomicExecutor;
+    }
+
+    @Override
+    public final SortedMap<String, String> scan(String fromKey, String toKey, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit muss positiv sein: " + limit);
+        }
+        DSMEvents.Operation event = new DSMEvents.Operation();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return doScan(fromKey, toKey, limit);
+        } finally {
+            metrics.record(DSMMetrics.Operation.SCAN, System.nanoTime() - start);
+            event.commit(NodeName(), "SCAN", fromKey);
+        }
+    }
+
+    /**
+     * Variantenspezifische Bereichsabfrage; standardmäßig nur aus dem lokalen Replikat. Hat ein
+     * Cache-Knoten schon Einträge verdrängt oder ablaufen lassen, fehlen sie dort; dann fragt er
+     * wie beim Lesen die anderen Knoten und nimmt nur ohne Antwort den lokalen Stand.
+     */
+    protected SortedMap<String, String> doScan(String fromKey, String toKey, int limit) {
+        if (storePolicy.isCacheRole() && !knownNodes.isEmpty() && removedRevision.get() > 0) {
+            missFetches.increment();
+            SortedMap<String, String> fetched = replicaScan(fromKey, toKey, limit, new ArrayList<>(knownNodes), 1,
+                    MISS_FETCH_TIMEOUT_MS);
+            if (fetched != null) {
+                return fetched;
+            }
+        }
+        SortedMap<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, VersionedValue> entry : localScan(fromKey, toKey, limit).entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Liest bis zu {@code limit} Einträge aus dem lokalen Replikat samt Versionen
+     * (0 für Schlüssel ohne Version). Die Seite stammt aus einem Snapshot und ist damit in
+     * sich konsistent, auch wenn währenddessen geschrieben wird.
+     */
+    protected SortedMap<String, VersionedValue> localScan(String fromKey, String toKey, int limit) {
+        try (DSMSnapshot snapshot = snapshot()) {
+            return snapshot.scan(fromKey, toKey, limit);
+        }
+    }
+
+    /**
+     * Öffnet den Snapshot, während alle Schlüsselsperren gehalten werden: Revisionen werden unter
+     * der Sperre des Schlüssels vergeben und eingetragen, damit steht jede Änderung bis zur
+     * Snapshot-Revision schon im Replikat. Die Sperren werden in aufsteigender Reihenfolge
+     * genommen; wer mehrere hält, muss dieselbe Reihenfolge einhalten.
+     */
+    @Override
+    public DSMSnapshot snapshot() {
+        return snapshot(0);
+    }
+
+    private DSMSnapshot snapshot(int stripe) {
+        if (stripe == keyLocks.length) {
+            return versions.openSnapshot(changeFeed.getRevision());
+        }
+        synchronized (keyLocks[stripe]) {
+            return snapshot(stripe + 1);
+        }
+    }
+
+    /**
+     * Zustandsquelle für den Neuaufbau einer Beobachtung (siehe {@link ChangeFeed.StateSource}).
+     */
+    private long collectState(String keyOrPrefix, boolean prefix, List<ChangeEvent> events) {
+        String toKey = prefix ? ScanIterator.prefixEnd(keyOrPrefix) : keyOrPrefix + "\0";
+        try (DSMSnapshot snapshot = snapshot()) {
+            for (Map.Entry<String, VersionedValue> entry
+                    : snapshot.scan(keyOrPrefix, toKey, Integer.MAX_VALUE).entrySet()) {
+                events.add(new ChangeEvent(entry.getKey(), entry.getValue().getValue(),
+                        entry.getValue().getVersion(), snapshot.getRevision(), true));
+            }
+            return snapshot.getRevision();
+        }
+    }
+
+    /**
+     * Bereichsabfrage über Replikate: fragt die angegebenen Knoten, führt deren Seiten mit der
+     * lokalen nach Version zusammen und übernimmt neuere Werte lokal.
+     *
+     * @param neededResponses Anzahl entfernter Antworten, ohne die das Ergebnis verworfen wird
+     * @return die Einträge oder null, wenn zu wenige Replikate rechtzeitig geantwortet haben
+     */
+    protected SortedMap<String, String> replicaScan(String fromKey, String toKey, int limit,
+                                                    List<String> peers, int neededResponses, long timeoutMs) {
+        RequestRegistry.Request request = pendingRequests.register(neededResponses, timeoutMs);
+        SortedMap<String, VersionedValue> merged;
+        try {
+            SortedMap<String, VersionedValue> local = localScan(fromKey, toKey, limit + 1);
+            boolean truncated = local.size() > limit;
+            if (truncated) {
+                local.remove(local.lastKey());
+            }
+            request.offerPage(local, truncated);
+
+            DSMScanMessage scanRequest = new DSMScanMessage(request.getId(), fromKey, toKey, limit, NodeName());
+            for (String peer : peers) {
+                sendMessage(scanRequest, peer);
+            }
+
+            DSMEvents.QuorumWait quorumEvent = DSMEvents.QuorumWait.start();
+            long waitStart = System.nanoTime();
+            boolean reached;
+            try {
+                reached = request.await(TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reached = false;
+            }
+            recordQuorum(quorumEvent, fromKey, request, System.nanoTime() - waitStart, reached);
+            if (!reached) {
+                logger.warning("Scan-Quorum nicht erreicht für [" + fromKey + ", " + toKey + ")");
+                return null;
+            }
+            merged = request.getPage();
+        } finally {
+            request.release();
+        }
+
+        SortedMap<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, VersionedValue> entry : merged.entrySet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (entry.getValue().getVersion() > 0) {
+                applyIfNewer(entry.getKey(), entry.getValue());
+            }
+            result.put(entry.getKey(), entry.getValue().getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Verarbeitet die variantenübergreifenden Nachrichten (Bereichsabfragen, atomare Operationen).
+     * Wird von den Varianten in {@link #doReceive} vor der eigenen Auswertung aufgerufen.
+     *
+     * @return true, wenn die Nachricht hier verarbeitet wurde
+     */
+    protected boolean handleSharedMessage(DSMMessage message) {
+        if (message instanceof DSMScanMessage scanMessage) {
+            handleScanMessage(scanMessage);
+            return true;
+        }
+        if (message instanceof DSMAtomicMessage atomicMessage) {
+            handleAtomicMessage(atomicMessage);
+            return true;
+        }
+        if (message instanceof DSMTransactionMessage transactionMessage) {
+            handleTransactionMessage(transactionMessage);
+            return true;
+        }
+        return false;
+    }
+
+    private void handleTransactionMessage(DSMTransactionMessage message) {
+        if (message.getType() == DSMMessage.Type.TX_REQUEST
+                && message.getPhase() == DSMTransactionMessage.Phase.REPLICATE) {
+            // Nur lokales Einsetzen, kein Warten: direkt auf dem Empfangsthread
+            installWrites(message.getWriteKeys(), message.getWriteValues(), message.getTimestamp());
+            sendMessage(new DSMTransactionMessage(message, true, null, 0, NodeName()), message.getSenderId());
+        } else if (message.getType() == DSMMessage.Type.TX_REQUEST) {
+            atomicExecutor().execute(() ->
+                    sendMessage(transactionParticipant.handle(message), message.getSenderId()));
+        } else if (message.getPhase() == DSMTransactionMessage.Phase.OUTCOME) {
+            atomicExecutor().execute(() ->
+                    transactionParticipant.resolve(message.getTransactionId(), message.isSuccess()));
+        } else {
+            long requestId = message.getRequestId();
+            RequestRegistry.Request request = pendingRequests.get(requestId);
+            if (request != null) {
+                request.respond(requestId, peerIndex(message.getSenderId()), message);
+            }
+        }
+    }
+
+    private void handleAtomicMessage(DSMAtomicMessage message) {
+        if (message.getType() == DSMMessage.Type.ATOMIC_REQUEST) {
+            // Nicht auf dem Empfangsthread ausführen: der Schreibzugriff wartet selbst auf Nachrichten
+            atomicExecutor().execute(() -> {
+                String result = applyAtomic(message.getOperation(), message.getKey(), message.getExpected(),
+                        message.getValue(), message.getDelta());
+                sendMessage(new DSMAtomicMessage(message, result, NodeName()), message.getSenderId());
+            });
+        } else {
+            long requestId = message.getRequestId();
+            RequestRegistry.Request request = pendingRequests.get(requestId);
+            if (request != null) {
+                request.respond(requestId, peerIndex(message.getSenderId()), message.getValue());
+            }
+        }
+    }
+
+    private void handleScanMessage(DSMScanMessage scanMessage) {
+        if (scanMessage.getType() == DSMMessage.Type.SCAN_REQUEST) {
+            SortedMap<String, VersionedValue> entries = localScan(scanMessage.getFromKey(), scanMessage.getToKey(),
+                    scanMessage.getLimit() + 1);
+            boolean truncated = entries.size() > scanMessage.getLimit();
+            if (truncated) {
+                entries.remove(entries.lastKey());
+            }
+            String[] keys = new String[entries.size()];
+            String[] values = new String[entries.size()];
+            long[] versions = new long[entries.size()];
+            int i = 0;
+            for (Map.Entry<String, VersionedValue> entry : entries.entrySet()) {
+                keys[i] = entry.getKey();
+                values[i] = entry.getValue().getValue();
+                versions[i] = entry.getValue().getVersion();
+                i++;
+            }
+            sendMessage(new DSMScanMessage(scanMessage, keys, values, versions, truncated, NodeName()),
+                    scanMessage.getSenderId());
+        } else {
+            long requestId = scanMessage.getRequestId();
+            RequestRegistry.Request request = pendingRequests.get(requestId);
+            if (request != null) {
+                SortedMap<String, VersionedValue> entries = new TreeMap<>();
+                for (int i = 0; i < scanMessage.size(); i++) {
+                    entries.put(scanMessage.getKey(i),
+                            new VersionedValue(scanMessage.getValue(i), scanMessage.getVersion(i)));
+                }
+                request.respond(requestId, peerIndex(scanMessage.getSenderId()), entries, scanMessage.isTruncated());
+            }
+        }
+    }
+
+    /**
+     * Variantenspezifische Schreiboperation; die Latenzmessung übernimmt {@link #write}.
+     *
+     * @return true, wenn die Bedingung der Variante erfüllt ist (Quorum bzw. alle Bestätigungen);
+     * false, wenn der Schreibzugriff abgelehnt wurde oder unbestätigt geblieben ist
+     */
+    protected abstract boolean doWrite(String key, String value);
+
+    /**
+     * Variantenspezifische Leseoperation; die Latenzmessung übernimmt {@link #read}.
+     */
+    protected abstract String doRead(String key);
+
+    /**
+     * Nächste Version aus einer hybriden Uhr (Mikrosekunden, mindestens letzte gesehene Version + 1).
+     */
+    protected long nextVersion() {
+        long physical = System.currentTimeMillis() * 1000;
+        return versionClock.updateAndGet(current -> Math.max(current + 1, physical));
+    }
+
+    /**
+     * Aktueller lokaler Wert, "" wenn der Schlüssel fehlt oder gelöscht ist.
+     */
+    protected String localValue(String key) {
+        KeyEntry entry = liveEntry(key);
+        return entry == null || entry.isTombstone() ? "" : entry.getValue();
+    }
+
+    /**
+     * Aktueller lokaler Wert mit Version oder null, wenn der Schlüssel fehlt oder gelöscht ist.
+     */
+    protected VersionedValue localVersioned(String key) {
+        KeyEntry entry = liveEntry(key);
+        return entry == null ? null : entry.toVersionedValue();
+    }
+
+    /**
+     * Anzahl früherer Werte, die pro Schlüssel im Eintrag aufbewahrt werden; standardmäßig keine.
+     */
+    protected int historyLimit() {
+        return 0;
+    }
+
+    /**
+     * Ersetzt den Eintrag eines Schlüssels atomar. Die Funktion läuft genau einmal unter der
+     * Sperre des Schlüssels; {@code compute} der Skip-Liste würde sie bei Konflikten wiederholen
+     * und Benachrichtigungen doppelt auslösen.
+     *
+     * @param update erhält den aktuellen Eintrag (oder null) und liefert den neuen, null entfernt ihn
+     * @return der neue Eintrag
+     */
+    protected KeyEntry computeEntry(String key, BiFunction<String, KeyEntry, KeyEntry> update) {
+        KeyEntry next;
+        synchronized (keyLock(key)) {
+            KeyEntry current = localStore.get(key);
+            next = update.apply(key, current);
+            if (next == null) {
+                if (current != null) {
+                    localStore.remove(key);
+                }
+            } else if (next != current) {
+                localStore.put(key, next);
+            }
+        }
+        if (storeBudget != null) {
+            enforceBudget();
+        }
+        return next;
+    }
+
+    /**
+     * Erzeugt den Nachfolger eines Eintrags; nur innerhalb von {@link #computeEntry} aufzurufen.
+     * Benachrichtigt die Beobachter, setzt die Standard-TTL und führt die Speicherbilanz nach.
+     *
+     * @param value neuer Wert oder null für eine Löschmarke
+     */
+    protected KeyEntry install(String key, KeyEntry current, String value, long version) {
+        long revision = changeFeed.publish(key, value, version);
+        versions.retain(key, current, revision);
+        KeyEntry next;
+        if (value == null) {
+            next = KeyEntry.delete(current, version, revision, historyLimit());
+        } else {
+            long ttl = storePolicy.getDefaultTtlMs();
+            next = KeyEntry.update(current, value, version, revision, historyLimit(),
+                    ttl > 0 ? System.currentTimeMillis() + ttl : 0);
+        }
+        StoreBudget budget = storeBudget;
+        if (budget != null) {
+            budget.recordWrite(key, accountedBytes(key, next));
+        }
+        return next;
+    }
+
+    /**
+     * Speicherbedarf eines Schlüssels für das Budget: Eintrag samt der für Snapshots
+     * aufbewahrten Vorgänger.
+     */
+    private long accountedBytes(String key, KeyEntry entry) {
+        return StoreBudget.estimateBytes(key, entry) + versions.retainedBytes(key);
+    }
+
+    /**
+     * Führt die Bilanz nach, wenn die Speicherbereinigung Vorgänger eines Schlüssels freigegeben
+     * hat; läuft unter der Sperre des Schlüssels.
+     */
+    private void reaccount(String key) {
+        StoreBudget budget = storeBudget;
+        KeyEntry entry = localStore.get(key);
+        if (budget != null && entry != null) {
+            budget.recordResize(key, accountedBytes(key, entry));
+        }
+    }
+
+    /**
+     * Lokaler Eintrag eines Schlüssels (auch Löschmarken) oder null. Abgelaufene Einträge werden
+     * dabei entfernt; bei begrenztem Speicher zählt der Zugriff für die Verdrängung.
+     */
+    protected KeyEntry liveEntry(String key) {
+        KeyEntry entry = localStore.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.getExpiresAt() != 0 && entry.isExpired(System.currentTimeMillis())) {
+            dropEntry(key, true);
+            return null;
+        }
+        StoreBudget budget = storeBudget;
+        if (budget != null) {
+            budget.recordAccess(key);
+        }
+        return entry;
+    }
+
+    /**
+     * Setzt die Speicherregeln des lokalen Replikats. Vorhandene Einträge werden in die Bilanz
+     * übernommen und bei Bedarf sofort verdrängt.
+     */
+    public synchronized void setStorePolicy(StorePolicy policy) {
+        StoreBudget budget = policy.isBounded() ? new StoreBudget(policy.getMaxBytes(), policy.isCacheRole()) : null;
+        if (budget != null) {
+            for (Map.Entry<String, KeyEntry> entry : localStore.entrySet()) {
+                budget.recordWrite(entry.getKey(), accountedBytes(entry.getKey(), entry.getValue()));
+            }
+        }
+        this.storePolicy = policy;
+        this.storeBudget = budget;
+        if (policy.getDefaultTtlMs() > 0) {
+            startExpirySweeper();
+        }
+        if (budget != null) {
+            enforceBudget();
+        }
+    }
+
+    public StorePolicy getStorePolicy() {
+        return storePolicy;
+    }
+
+    /**
+     * Speicherbilanz des lokalen Replikats oder null, wenn kein Budget gesetzt ist.
+     */
+    public StoreBudget getStoreBudget() {
+        return storeBudget;
+    }
+
+    /**
+     * Anzahl der Fehlzugriffe, die ein Cache-Knoten bei anderen Knoten nachgeladen hat.
+     */
+    public long getMissFetches() {
+        return missFetches.sum();
+    }
+
+    /**
+     * Setzt die Lebensdauer eines lokal vorhandenen Schlüssels. Die TTL gilt nur für dieses
+     * Replikat; ein späterer Schreibzugriff setzt wieder die Standard-TTL.
+     *
+     * @param ttlMs Lebensdauer ab jetzt, 0 hebt den Ablauf auf
+     * @return false, wenn der Schlüssel lokal nicht existiert
+     */
+    public boolean expire(String key, long ttlMs) {
+        if (ttlMs < 0) {
+            throw new IllegalArgumentException("ttlMs darf nicht negativ sein");
+        }
+        long expiresAt = ttlMs == 0 ? 0 : System.currentTimeMillis() + ttlMs;
+        boolean[] updated = new boolean[1];
+        computeEntry(key, (k, current) -> {
+            if (current == null || current.isTombstone()) {
+                return current;
+            }
+            updated[0] = true;
+            return current.withExpiry(expiresAt);
+        });
+        if (updated[0] && ttlMs > 0) {
+            startExpirySweeper();
+        }
+        return updated[0];
+    }
+
+    /**
+     * Holt einen lokal fehlenden Schlüssel vom ersten antwortenden Knoten. Versionierte Werte
+     * übernimmt schon {@link #replicaScan}; unversionierte werden nur eingetragen, solange der
+     * Schlüssel weiterhin fehlt.
+     */
+    private void fetchMissing(String key) {
+        missFetches.increment();
+        SortedMap<String, String> found = replicaScan(key, key + "\0", 1, new ArrayList<>(knownNodes), 1,
+                MISS_FETCH_TIMEOUT_MS);
+        String value = found == null ? null : found.get(key);
+        if (value != null) {
+            computeEntry(key, (k, current) -> current != null ? current : install(k, null, value, 0));
+        }
+    }
+
+    /**
+     * Entfernt einen Eintrag nur aus dem lokalen Replikat (Verdrängung, Ablauf). Das ist keine
+     * Löschung: es entsteht kein Ereignis im ChangeFeed und Beobachter sehen nichts. Für Snapshots
+     * aufbewahrte Vorgänger gehen mit, sonst hielte ein offener Snapshot verdrängte Werte am
+     * Budget vorbei fest. Der Schlüssel fehlt danach nur lokal, Cache-Knoten laden ihn bei Bedarf
+     * nach.
+     *
+     * @param expiredOnly true: nur entfernen, wenn der Eintrag (noch) abgelaufen ist
+     */
+    private void dropEntry(String key, boolean expiredOnly) {
+        synchronized (keyLock(key)) {
+            KeyEntry current = localStore.get(key);
+            if (current == null || (expiredOnly && !current.isExpired(System.currentTimeMillis()))) {
+                return;
+            }
+            versions.discard(key);
+            localStore.remove(key);
+            removedRevision.accumulateAndGet(current.getRevision(), Math::max);
+            StoreBudget budget = storeBudget;
+            if (budget != null) {
+                budget.recordRemoval(key);
+            }
+        }
+    }
+
+    /**
+     * Revision der letzten Änderung eines Schlüssels auf diesem Knoten. Für lokal fehlende
+     * Schlüssel die höchste Revision eines verdrängten Eintrags: ein Schlüssel, der seit dem Lesen
+     * verdrängt wurde, gilt damit nur dann als geändert, wenn er vor der Verdrängung geändert wurde.
+     */
+    long keyRevision(String key) {
+        KeyEntry entry = localStore.get(key);
+        return entry != null ? entry.getRevision() : removedRevision.get();
+    }
+
+    /**
+     * Lokaler Wert für eine Transaktion ("" falls unbekannt) samt der aktuellen Revision des
+     * Knotens. Unter der Sperre des Schlüssels gelesen, also gilt der Wert mindestens bis zu
+     * dieser Revision; eine spätere Änderung hebt {@link #keyRevision} darüber.
+     */
+    VersionedValue transactionalRead(String key) {
+        synchronized (keyLock(key)) {
+            return new VersionedValue(localValue(key), changeFeed.getRevision());
+        }
+    }
+
+    private void enforceBudget() {
+        StoreBudget budget = storeBudget;
+        if (budget == null) {
+            return;
+        }
+        for (String victim : budget.selectVictims()) {
+            dropEntry(victim, false);
+        }
+    }
+
+    private synchronized void startExpirySweeper() {
+        if (expirySweeper == null) {
+            expirySweeper = STORE_MAINTENANCE.scheduleWithFixedDelay(this::sweepExpired,
+                    SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Hintergrund-Ablauf: prüft pro Lauf höchstens {@link #SWEEP_BATCH} Schlüssel und setzt beim
+     * nächsten Lauf dahinter fort, damit große Speicher den Wartungs-Thread nicht blockieren.
+     */
+    private void sweepExpired() {
+        long now = System.currentTimeMillis();
+        NavigableMap<String, KeyEntry> range = sweepCursor == null ? localStore : localStore.tailMap(sweepCursor, false);
+        int checked = 0;
+        for (Map.Entry<String, KeyEntry> entry : range.entrySet()) {
+            if (entry.getValue().isExpired(now)) {
+                dropEntry(entry.getKey(), true);
+            }
+            if (++checked >= SWEEP_BATCH) {
+                sweepCursor = entry.getKey();
+                return;
+            }
+        }
+        sweepCursor = null;
+    }
+
+    private Object keyLock(String key) {
+        return keyLocks[stripe(key)];
+    }
+
+    private static int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (KEY_LOCK_STRIPES - 1);
+    }
+
+    /**
+     * Übernimmt einen versionierten Wert, falls er neuer als der lokale ist (Last-Writer-Wins).
+     * Vergleich, Ersetzen und Benachrichtigung laufen gemeinsam in {@link #computeEntry}.
+     *
+     * @return true, wenn der Wert übernommen wurde
+     */
+    protected boolean applyIfNewer(String key, VersionedValue candidate) {
+        versionClock.accumulateAndGet(candidate.getVersion(), Math::max);
+        boolean[] applied = new boolean[1];
+        computeEntry(key, (k, current) -> {
+            if (current != null && !current.isSupersededBy(candidate.getValue(), candidate.getVersion())) {
+                return current;
+            }
+            applied[0] = true;
+            return install(k, current, candidate.getValue(), candidate.getVersion());
+        });
+        return applied[0];
+    }
+
+    /**
+     * Nimmt einen eigenen, nicht bestätigten Schreibzugriff zurück, sofern er noch der aktuelle Wert ist.
+     *
+     * @param previous Wert vor dem Schreibzugriff oder null, wenn der Schlüssel nicht existierte
+     */
+    protected boolean revert(String key, VersionedValue written, VersionedValue previous) {
+        boolean[] reverted = new boolean[1];
+        computeEntry(key, (k, current) -> {
+            if (current == null || current.isTombstone() || current.getVersion() != written.getVersion()
+                    || !current.getValue().equals(written.getValue())) {
+                return current;
+            }
+            reverted[0] = true;
+            if (previous == null) {
+                // Version 0: jeder spätere Wert eines anderen Replikats setzt sich wieder durch
+                return install(k, current, null, 0);
+            }
+            return install(k, current, previous.getValue(), previous.getVersion());
+        });
+        return reverted[0];
+    }
+
+    /**
+     * Schreibt einen Wert ins lokale Replikat und benachrichtigt die Beobachter.
+     * Für Varianten ohne {@link #applyIfNewer}; die Benachrichtigung läuft unter der Sperre des
+     * Schlüssels, sodass Beobachter Änderungen in derselben Reihenfolge sehen wie der Speicher.
+     *
+     * @param version Version bzw. Zeitstempel des Werts, 0 wenn die Variante keine kennt
+     */
+    protected void applyLocal(String key, String value, long version) {
+        computeEntry(key, (k, current) -> install(k, current, value, version));
+    }
+
+    /**
+     * Markiert einen Schlüssel im lokalen Replikat als gelöscht und benachrichtigt die Beobachter.
+     */
+    protected void removeLocal(String key) {
+        computeEntry(key, (k, current) -> {
+            if (current == null || current.isTombstone()) {
+                return current;
+            }
+            return install(k, current, null, current.getVersion());
+        });
+    }
+
+    @Override
+    public Watch watch(String keyOrPrefix, boolean prefix, long fromRevision, ChangeListener listener) {
+        return changeFeed.subscribe(keyOrPrefix, prefix, fromRevision, listener);
+    }
+
+    public DSMMetrics getMetrics() {
+        return metrics;
     }
 
     public void addKnownNode(String nodeId) {
         knownNodes.add(nodeId);
+        peerIndex(nodeId);
+    }
+
+    /**
+     * Fortlaufender Index eines Knotens, z.B. für Bitsets und Arrays in {@link RequestRegistry}.
+     */
+    protected int peerIndex(String nodeId) {
+        return peerIndices.computeIfAbsent(nodeId, id -> {
+            synchronized (peerNames) {
+                peerNames.add(id);
+                return peerNames.size() - 1;
+            }
+        });
+    }
+
+    protected String peerName(int index) {
+        return peerNames.get(index);
+    }
+
+    /**
+     * Liest die Anfrage-ID aus dem Teil nach dem Doppelpunkt im Nachrichtenschlüssel.
+     *
+     * @return die ID oder -1, wenn der Teil keine gültige ID ist
+     */
+    protected static long parseRequestId(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Repliziert einen Schreibzugriff als WRITE an die angegebenen Knoten. Große Werte gehen
+     * komprimiert bzw. als Delta gegen den vom Knoten zuletzt bestätigten Wert raus.
+     *
+     * @param version Version bzw. Zeitstempel, landet im Zeitstempelfeld der Nachricht
+     */
+    protected void replicateWrite(String key, long requestId, String value, long version, Collection<String> peers) {
+        String messageKey = key + ":" + requestId;
+        List<String> targets = new ArrayList<>(peers);
+        DSMMessage[] messages = new DSMMessage[targets.size()];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = writeEncoder.encode(key, messageKey, value, version, NodeName(), peerIndex(targets.get(i)));
+        }
+        writeEncoder.recordReplicated(key, value, version);
+        for (int i = 0; i < messages.length; i++) {
+            sendMessage(messages[i], targets.get(i));
+        }
+    }
+
+    /**
+     * Wert eines eingehenden WRITE. Passt ein Delta nicht auf den lokalen Wert, wird beim
+     * Absender per WRITE_ACK mit {@link WriteEncoder#RESEND_FULL} der vollständige Wert angefordert;
+     * die Anforderung trägt die Version des Schreibzugriffs.
+     *
+     * @return der Wert oder null, wenn er erst mit der vollständigen Nachricht kommt
+     */
+    protected String resolveWriteValue(DSMMessage message, String key, String requestId) {
+        String value = WriteEncoder.decode(message, localValue(key));
+        if (value == null) {
+            sendMessage(new DSMMessage(DSMMessage.Type.WRITE_ACK, key + ":" + requestId, WriteEncoder.RESEND_FULL,
+                    NodeName(), message.getTimestamp()), message.getSenderId());
+        }
+        return value;
+    }
+
+    /**
+     * Bestätigt ein angewendetes WRITE beim Absender. Die Bestätigung trägt die Version des
+     * Schreibzugriffs, damit sie dort nur für genau diesen Wert als Delta-Basis zählt.
+     */
+    protected void acknowledgeWrite(DSMMessage write, String key, String requestId) {
+        sendMessage(new DSMMessage(DSMMessage.Type.WRITE_ACK, key + ":" + requestId, null, NodeName(),
+                write.getTimestamp()), write.getSenderId());
+    }
+
+    /**
+     * Wertet eine WRITE_ACK-Nachricht für die Delta-Kodierung aus. Fordert sie den vollständigen
+     * Wert an, geht genau der angeforderte Schreibzugriff mit seiner Version unter derselben
+     * Anfrage-ID erneut raus, seine Bestätigung zählt also für das richtige Quorum. Ist er nicht
+     * mehr die Delta-Basis, bekommt der Knoten den aktuellen lokalen Wert unter der Anfrage-ID 0,
+     * die keiner offenen Anfrage gehört: ein neuerer Wert darf nicht für ein älteres Quorum zählen.
+     *
+     * @return true für eine echte Bestätigung, false für eine beantwortete Anforderung
+     */
+    protected boolean acceptWriteAck(DSMMessage ack, String key, String requestId) {
+        int peer = peerIndex(ack.getSenderId());
+        if (!WriteEncoder.RESEND_FULL.equals(ack.getValue())) {
+            writeEncoder.acknowledge(key, peer, ack.getTimestamp());
+            return true;
+        }
+        writeEncoder.resendRequested(key, peer);
+        String value = writeEncoder.replicatedValue(key, ack.getTimestamp());
+        if (value != null) {
+            DSMEvents.Retransmit.emit(NodeName(), ack.getSenderId(), key, parseRequestId(requestId), "RESEND_FULL");
+            sendMessage(new DSMMessage(DSMMessage.Type.WRITE, key + ":" + requestId, value, NodeName(),
+                    ack.getTimestamp()), ack.getSenderId());
+            return false;
+        }
+        KeyEntry entry = liveEntry(key);
+        if (entry != null && !entry.isTombstone()) {
+            DSMEvents.Retransmit.emit(NodeName(), ack.getSenderId(), key, 0, "RESEND_FULL");
+            sendMessage(new DSMMessage(DSMMessage.Type.WRITE, key + ":0", entry.getValue(), NodeName(),
+                    entry.getVersion()), ack.getSenderId());
+        }
+        return false;
+    }
+
+    public WriteEncoder getWriteEncoder() {
+        return writeEncoder;
     }
 
     protected void broadcastMessage(DSMMessage message) {
@@ -36,10 +1132,151 @@ public abstract class AbstractDSM extends Node implements DistributedSharedMemor
     }
 
     protected void sendMessage(DSMMessage message, String nodeId) {
+        DSMEvents.MessageSend event = new DSMEvents.MessageSend();
+        event.begin();
+        DSMTransport current = transport;
+        if (current != null) {
+            if (!current.send(message, nodeId)) {
+                logger.warning("Knoten nicht gefunden: " + nodeId);
+            }
+        } else {
+            try {
+                send(message, nodeId);
+            } catch (UnknownNodeException e) {
+                logger.warning("Knoten nicht gefunden: " + nodeId);
+            }
+        }
+        event.commit(NodeName(), nodeId, message);
+    }
+
+    /**
+     * Erfasst eine beendete Quorum-Wartezeit in den Metriken und als JFR-Ereignis.
+     *
+     * @param event beim Beginn des Wartens mit {@link DSMEvents.QuorumWait#start()} erzeugt
+     */
+    protected void recordQuorum(DSMEvents.QuorumWait event, String key, RequestRegistry.Request request,
+                                long waitedNanos, boolean reached) {
+        metrics.recordQuorum(waitedNanos, reached);
+        event.commit(NodeName(), key, request, reached);
+    }
+
+    /**
+     * Ersetzt sim4da als Transport, z.B. durch {@link NioTransport} für getrennte Prozesse.
+     * Eingehende Nachrichten landen wie bei sim4da in {@link #receive}.
+     */
+    public void setTransport(DSMTransport transport) throws IOException {
+        transport.start(NodeName(), message -> receive(message));
+        this.transport = transport;
+    }
+
+    public DSMTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Registriert den Knoten als {@link DSMNodeMXBean} beim Plattform-MBean-Server. Eine ältere
+     * Registrierung unter demselben Knotennamen (z.B. aus einem vorigen Lauf) wird ersetzt.
+     */
+    public synchronized void registerMBean() {
+        if (mbeanName != null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = ObjectName.getInstance("main.java.dsm:type=DSMNode,name=" + ObjectName.quote(NodeName()));
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new DSMNodeMonitor(this), name);
+            mbeanName = name;
+        } catch (JMException e) {
+            logger.warning("MBean nicht registriert: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gibt die Ressourcen des Knotens frei: Ablauf-Sweeper und Versions-GC werden abgemeldet,
+     * der Thread für atomare Operationen beendet, das MBean entfernt und ein eigener Transport
+     * geschlossen. Danach darf der Knoten nicht mehr verwendet werden.
+     */
+    public synchronized void close() {
+        if (expirySweeper != null) {
+            expirySweeper.cancel(false);
+            expirySweeper = null;
+        }
+        if (atomicExecutor != null) {
+            atomicExecutor.shutdownNow();
+            atomicExecutor = null;
+        }
+        versions.close();
+        unregisterMBean();
+        DSMTransport current = transport;
+        if (current != null) {
+            current.close();
+            transport = null;
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (mbeanName == null) {
+            return;
+        }
         try {
-            send(message, nodeId);
-        } catch (UnknownNodeException e) {
-            logger.warning("Knoten nicht gefunden: " + nodeId);
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+        } catch (JMException e) {
+            logger.fine("MBean bereits entfernt: " + e.getMessage());
+        }
+        mbeanName = null;
+    }
+
+    /**
+     * Zurückgehaltene, noch nicht zugestellte Nachrichten; nur Varianten mit eigener
+     * Verzögerung haben welche.
+     */
+    protected int getQueuedMessages() {
+        return 0;
+    }
+
+    /**
+     * Stellt zurückgehaltene Nachrichten sofort zu.
+     *
+     * @return Anzahl der zugestellten Nachrichten
+     */
+    public int drainQueues() {
+        return 0;
+    }
+
+    /**
+     * Ob der Knoten sich derzeit für partitioniert hält.
+     */
+    public boolean isPartitioned() {
+        return false;
+    }
+
+    /**
+     * Gleicht das ganze lokale Replikat seitenweise über {@link #replicaScan} mit einer Mehrheit
+     * der anderen Knoten ab; neuere Versionen werden dabei übernommen.
+     *
+     * @return Anzahl der abgeglichenen Schlüssel, -1 wenn eine Seite kein Quorum erreicht hat
+     */
+    public int forceSync() {
+        List<String> peers = new ArrayList<>(knownNodes);
+        if (peers.isEmpty()) {
+            return 0;
+        }
+        int synced = 0;
+        String fromKey = "";
+        while (true) {
+            SortedMap<String, String> page = replicaScan(fromKey, null, SYNC_PAGE_SIZE, peers,
+                    peers.size() / 2 + 1, SYNC_TIMEOUT_MS);
+            if (page == null) {
+                return -1;
+            }
+            synced += page.size();
+            if (page.size() < SYNC_PAGE_SIZE) {
+                return synced;
+            }
+            fromKey = page.lastKey() + "\0";
         }
     }
 
@@ -48,5 +1285,25 @@ public abstract class AbstractDSM extends Node implements DistributedSharedMemor
         logger.info("DSM-Knoten " + NodeName() + " gestartet");
     }
 
-    public abstract void receive(Message message);
+    /**
+     * Nimmt Nachrichten von sim4da bzw. dem Transport entgegen und reicht DSM-Nachrichten an
+     * {@link #doReceive} weiter; die Verarbeitung wird als JFR-Ereignis erfasst.
+     */
+    public final void receive(Message message) {
+        if (!(message instanceof DSMMessage dsmMessage)) {
+            return;
+        }
+        DSMEvents.MessageReceive event = new DSMEvents.MessageReceive();
+        event.begin();
+        try {
+            doReceive(dsmMessage);
+        } finally {
+            event.commit(NodeName(), dsmMessage);
+        }
+    }
+
+    /**
+     * Variantenspezifische Verarbeitung einer eingehenden Nachricht.
+     */
+    protected abstract void doReceive(DSMMessage dsmMessage);
 }
@@ -0,0 +1,44 @@
+package main.java.dsm;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Logging-Handler, der formatierte Einträge über einen {@link AsyncResultWriter} in eine Datei schreibt.
+ * Ersetzt den FileHandler, der bei jedem Eintrag synchron flusht.
+ */
+public class AsyncLogHandler extends Handler {
+
+    private final AsyncResultWriter writer;
+
+    public AsyncLogHandler(String fileName) throws IOException {
+        this.writer = new AsyncResultWriter(new BufferedWriter(new FileWriter(fileName)), "DSMLogger-LogWriter");
+        setFormatter(new SimpleFormatter());
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        String text = getFormatter().format(record);
+        // SimpleFormatter hängt bereits einen Zeilenumbruch an
+        writer.publish(text.endsWith(System.lineSeparator())
+                ? text.substring(0, text.length() - System.lineSeparator().length())
+                : text);
+    }
+
+    @Override
+    public void flush() {
+        writer.flush();
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+}
@@ -0,0 +1,147 @@
+package main.java.dsm;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchrone Ausgabe über einen Ringpuffer mit mehreren Produzenten und einem Schreib-Thread.
+ * Produzenten reservieren per atomarem getAndIncrement einen Slot und legen die Zeile ab,
+ * ohne Sperren und ohne Plattenzugriff. Der Schreib-Thread sammelt die Zeilen gebündelt im
+ * Writer und ruft flush() nur auf ausdrückliche Anforderung bzw. beim Schließen auf.
+ */
+public class AsyncResultWriter implements AutoCloseable {
+
+    private static final int DEFAULT_CAPACITY = 1 << 13;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long BACKOFF_PARK_NANOS = 10_000;
+
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong flushRequested = new AtomicLong();
+    private final Writer out;
+    private final Thread writerThread;
+
+    private volatile long consumed;
+    private volatile long flushedUpTo;
+    private volatile boolean writerParked;
+    private volatile boolean running = true;
+
+    public AsyncResultWriter(Writer out, String threadName) {
+        this(out, threadName, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Größe des Ringpuffers, wird auf die nächste Zweierpotenz aufgerundet
+     */
+    public AsyncResultWriter(Writer out, String threadName, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.out = out;
+        this.writerThread = new Thread(this::drainLoop, threadName);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Legt eine Zeile in den Ringpuffer. Blockiert nur, wenn der Puffer voll ist (Rückstau).
+     */
+    public void publish(String line) {
+        if (!running) {
+            return;
+        }
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed >= slots.length()) {
+            LockSupport.parkNanos(BACKOFF_PARK_NANOS);
+        }
+        slots.set((int) (sequence & mask), line);
+        if (writerParked) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Wartet, bis alle bis jetzt veröffentlichten Zeilen geschrieben und geflusht sind.
+     */
+    public void flush() {
+        long target = claimed.get();
+        flushRequested.accumulateAndGet(target, Math::max);
+        LockSupport.unpark(writerThread);
+        while (flushedUpTo < target && writerThread.isAlive()) {
+            LockSupport.parkNanos(BACKOFF_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Schreibt alle ausstehenden Zeilen, flusht und schließt den Writer.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Fehler beim Schließen der Ergebnisdatei: " + e.getMessage());
+        }
+    }
+
+    private void drainLoop() {
+        long next = 0;
+        while (true) {
+            int index = (int) (next & mask);
+            String line = slots.get(index);
+            if (line != null) {
+                slots.lazySet(index, null);
+                write(line);
+                next++;
+                consumed = next;
+                continue;
+            }
+
+            long requested = flushRequested.get();
+            if (requested > flushedUpTo && next >= requested) {
+                flushOut();
+                flushedUpTo = next;
+            }
+
+            if (!running && next == claimed.get()) {
+                flushOut();
+                flushedUpTo = next;
+                return;
+            }
+
+            writerParked = true;
+            if (slots.get(index) == null && running) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            writerParked = false;
+        }
+    }
+
+    private void write(String line) {
+        try {
+            out.write(line);
+            out.write(System.lineSeparator());
+        } catch (IOException e) {
+            System.err.println("Fehler beim Schreiben der Ergebnisdatei: " + e.getMessage());
+        }
+    }
+
+    private void flushOut() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Fehler beim Flushen der Ergebnisdatei: " + e.getMessage());
+        }
+    }
+}
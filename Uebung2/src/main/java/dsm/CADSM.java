@@ -1,12 +1,7 @@
 package main.java.dsm;
 
-import org.oxoo2a.sim4da.Message;
-
-import java.util.Map;
 import java.util.Random;
-import java.util.Set;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * CA-Variante: Konsistenz + Verfügbarkeit.
@@ -20,15 +15,12 @@ public class CADSM extends AbstractDSM {
     private static final int MAX_DELAY = 20;
     private static final double PARTITION_THRESHOLD = 0.6;
     private static final double NODE_FAILURE_RATE = 0.05;
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
     private final Random random = new Random();
-    private final Set<String> pendingAcknowledgments;
-    private final Map<String, Set<String>> acknowledgedNodes = new ConcurrentHashMap<>();
-    private final Map<String, Set<String>> responseReceivedNodes = new ConcurrentHashMap<>();
     private volatile boolean partitionDetected = false;
 
     public CADSM(String nodeName) {
         super(nodeName);
-        this.pendingAcknowledgments = ConcurrentHashMap.newKeySet();
 
         if (random.nextDouble() < 0.2) {
             new Thread(() -> {
@@ -66,15 +58,20 @@ public class CADSM extends AbstractDSM {
     }
 
     @Override
-    public void write(String key, String value) {
+    public boolean isPartitioned() {
+        return partitionDetected;
+    }
+
+    @Override
+    protected boolean doWrite(String key, String value) {
         if (partitionDetected) {
             logger.warning("CA-DSM: Schreiboperation abgelehnt wegen Partition: " + key);
-            return;
+            return false;
         }
 
         if (knownNodes.isEmpty()) {
-            localStore.put(key, value);
-            return;
+            applyLocal(key, value, 0);
+            return true;
         }
 
         if (random.nextDouble() < 0.7) {
@@ -85,64 +82,81 @@ public class CADSM extends AbstractDSM {
             }
         }
 
-        String requestId = UUID.randomUUID().toString();
-        pendingAcknowledgments.add(requestId);
+        RequestRegistry.Request request = pendingRequests.register(knownNodes.size(), TIMEOUT_MS * (MAX_RETRIES + 1));
+        try {
+            applyLocal(key, value, 0);
 
-        Set<String> acknowledgedForRequest = ConcurrentHashMap.newKeySet();
-        acknowledgedForRequest.add(NodeName());
-        acknowledgedNodes.put(requestId, acknowledgedForRequest);
+            long timestamp = System.currentTimeMillis();
+            replicateWrite(key, request.getId(), value, timestamp, knownNodes);
 
-        localStore.put(key, value);
+            DSMEvents.QuorumWait quorumEvent = DSMEvents.QuorumWait.start();
+            long waitStart = System.nanoTime();
+            long startTime = System.currentTimeMillis();
+            int retries = 0;
 
-        DSMMessage writeMessage = new DSMMessage(DSMMessage.Type.WRITE, key + ":" + requestId, value, NodeName());
-        broadcastMessage(writeMessage);
+            while (!request.isCompleted() &&
+                    retries < MAX_RETRIES &&
+                    !partitionDetected) {
 
-        long startTime = System.currentTimeMillis();
-        int retries = 0;
+                try {
+                    request.await(POLL_NANOS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
 
-        while (acknowledgedNodes.get(requestId).size() < knownNodes.size() + 1 &&
-                System.currentTimeMillis() - startTime < TIMEOUT_MS &&
-                retries < MAX_RETRIES &&
-                !partitionDetected) {
+                if (!request.isCompleted() && System.currentTimeMillis() - startTime >= TIMEOUT_MS) {
+                    retries++;
+                    startTime = System.currentTimeMillis();
 
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+                    if (retries < MAX_RETRIES) {
+                        logger.warning("Timeout - Wiederhole Versuch " + retries + "/" + MAX_RETRIES);
+                        DSMEvents.Retransmit.emit(NodeName(), "*", key, request.getId(), "TIMEOUT");
+                        replicateWrite(key, request.getId(), value, timestamp, knownNodes);
+                    }
+                }
             }
 
-            if (System.currentTimeMillis() - startTime >= TIMEOUT_MS) {
-                retries++;
-                startTime = System.currentTimeMillis();
+            boolean allAcknowledged = request.isCompleted();
+            recordQuorum(quorumEvent, key, request, System.nanoTime() - waitStart, allAcknowledged);
+
+            if (!partitionDetected) {
+                int missingAcks = knownNodes.size() - request.getResponseCount();
+                double missingRatio = (double) missingAcks / (knownNodes.size() + 1);
 
-                if (retries < MAX_RETRIES) {
-                    logger.warning("Timeout - Wiederhole Versuch " + retries + "/" + MAX_RETRIES);
-                    broadcastMessage(writeMessage);
+                if (missingRatio >= PARTITION_THRESHOLD) {
+                    logger.warning("CA-DSM: Partition erkannt! " + String.format("%.1f", missingRatio * 100) + "% nicht erreichbar");
+                    simulatePartition();
                 }
             }
-        }
 
-        if (!partitionDetected && acknowledgedNodes.containsKey(requestId)) {
-            int missingAcks = knownNodes.size() + 1 - acknowledgedNodes.get(requestId).size();
-            double missingRatio = (double) missingAcks / (knownNodes.size() + 1);
-
-            if (missingRatio >= PARTITION_THRESHOLD) {
-                logger.warning("CA-DSM: Partition erkannt! " + String.format("%.1f", missingRatio * 100) + "% nicht erreichbar");
-                simulatePartition();
+            if (!partitionDetected && retries >= MAX_RETRIES) {
+                logger.severe("Schreiboperation gescheitert: " + key);
             }
+            return allAcknowledged;
+        } finally {
+            request.release();
         }
+    }
 
-        acknowledgedNodes.remove(requestId);
-        pendingAcknowledgments.remove(requestId);
+    /**
+     * Ein Schreibzugriff kann alle Wiederholungen ausschöpfen.
+     */
+    @Override
+    protected long atomicTimeoutMs() {
+        return TIMEOUT_MS * (MAX_RETRIES + 1);
+    }
 
-        if (!partitionDetected && retries >= MAX_RETRIES) {
-            logger.severe("Schreiboperation gescheitert: " + key);
-        }
+    /**
+     * Werte tragen keine Versionen; Replikate übernehmen die Schreibmenge einer Transaktion unbedingt.
+     */
+    @Override
+    protected long transactionVersion() {
+        return 0;
     }
 
     @Override
-    public String read(String key) {
+    protected String doRead(String key) {
         if (partitionDetected) {
             logger.warning("CA-DSM: Leseoperation abgelehnt wegen Partition: " + key);
             return null;
@@ -168,35 +182,33 @@ public class CADSM extends AbstractDSM {
             }
         }
 
-        return localStore.getOrDefault(key, "");
+        return localValue(key);
     }
 
     private void synchronizeValue(String key) {
-        String requestId = UUID.randomUUID().toString();
-        Set<String> responseNodes = ConcurrentHashMap.newKeySet();
-        responseNodes.add(NodeName());
-        responseReceivedNodes.put(requestId, responseNodes);
-
-        DSMMessage syncRequest = new DSMMessage(DSMMessage.Type.SYNC_REQUEST, key + ":" + requestId, NodeName());
-        broadcastMessage(syncRequest);
-
-        long startTime = System.currentTimeMillis();
-        while (responseNodes.size() < knownNodes.size() + 1 &&
-                System.currentTimeMillis() - startTime < TIMEOUT_MS / 2 &&
-                !partitionDetected) {
-            try {
-                Thread.sleep(20);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+        long syncStart = System.nanoTime();
+        RequestRegistry.Request request = pendingRequests.register(knownNodes.size(), TIMEOUT_MS / 2);
+        try {
+            DSMMessage syncRequest = new DSMMessage(DSMMessage.Type.SYNC_REQUEST, key + ":" + request.getId(), NodeName());
+            broadcastMessage(syncRequest);
+
+            long deadline = syncStart + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS / 2);
+            while (!request.isCompleted() && !partitionDetected && System.nanoTime() < deadline) {
+                try {
+                    request.await(Math.min(POLL_NANOS, deadline - System.nanoTime()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
             }
+        } finally {
+            request.release();
         }
-
-        responseReceivedNodes.remove(requestId);
+        metrics.record(DSMMetrics.Operation.SYNC, System.nanoTime() - syncStart);
     }
 
     @Override
-    public void receive(Message message) {
+    protected void doReceive(DSMMessage dsmMessage) {
         if (partitionDetected && random.nextDouble() < 0.7) {
             return;
         }
@@ -205,10 +217,6 @@ public class CADSM extends AbstractDSM {
             return;
         }
 
-        if (!(message instanceof DSMMessage dsmMessage)) {
-            return;
-        }
-
         if (!partitionDetected && random.nextDouble() < 0.8) {
             try {
                 Thread.sleep(MIN_DELAY);
@@ -217,10 +225,17 @@ public class CADSM extends AbstractDSM {
             }
         }
 
+        if (handleSharedMessage(dsmMessage)) {
+            return;
+        }
+
         switch (dsmMessage.getType()) {
             case WRITE:
                 handleWriteMessage(dsmMessage);
                 break;
+            case WRITE_ACK:
+                handleWriteAckMessage(dsmMessage);
+                break;
             case SYNC_REQUEST:
                 handleSyncRequestMessage(dsmMessage);
                 break;
@@ -238,13 +253,30 @@ public class CADSM extends AbstractDSM {
 
         String key = keyParts[0];
         String requestId = keyParts[1];
-        String value = message.getValue();
-        String senderId = message.getSenderId();
+        String value = resolveWriteValue(message, key, requestId);
+        if (value == null) {
+            return;
+        }
 
-        localStore.put(key, value);
+        applyLocal(key, value, 0);
+
+        acknowledgeWrite(message, key, requestId);
+    }
+
+    private void handleWriteAckMessage(DSMMessage message) {
+        String[] keyParts = message.getKey().split(":");
+        if (keyParts.length != 2) {
+            return;
+        }
 
-        DSMMessage ackMessage = new DSMMessage(DSMMessage.Type.WRITE, key + ":" + requestId, "ACK", NodeName());
-        sendMessage(ackMessage, senderId);
+        if (!acceptWriteAck(message, keyParts[0], keyParts[1])) {
+            return;
+        }
+        long requestId = parseRequestId(keyParts[1]);
+        RequestRegistry.Request request = pendingRequests.get(requestId);
+        if (request != null) {
+            request.respond(requestId, peerIndex(message.getSenderId()));
+        }
     }
 
     private void handleSyncRequestMessage(DSMMessage message) {
@@ -257,7 +289,7 @@ public class CADSM extends AbstractDSM {
         String requestId = keyParts[1];
         String senderId = message.getSenderId();
 
-        String value = localStore.getOrDefault(key, "");
+        String value = localValue(key);
 
         DSMMessage syncResponse = new DSMMessage(DSMMessage.Type.SYNC_RESPONSE,
                 key + ":" + requestId,
@@ -273,20 +305,19 @@ public class CADSM extends AbstractDSM {
         }
 
         String key = keyParts[0];
-        String requestId = keyParts[1];
-        String senderId = message.getSenderId();
+        long requestId = parseRequestId(keyParts[1]);
         String value = message.getValue();
 
         if (value != null && !value.isEmpty()) {
-            String localValue = localStore.getOrDefault(key, "");
+            String localValue = localValue(key);
             if (localValue.isEmpty() && !value.isEmpty()) {
-                localStore.put(key, value);
+                applyLocal(key, value, 0);
             }
         }
 
-        Set<String> responseNodes = responseReceivedNodes.get(requestId);
-        if (responseNodes != null) {
-            responseNodes.add(senderId);
+        RequestRegistry.Request request = pendingRequests.get(requestId);
+        if (request != null) {
+            request.respond(requestId, peerIndex(message.getSenderId()));
         }
     }
 }
@@ -1,23 +1,24 @@
 package main.java.dsm;
 
-import org.oxoo2a.sim4da.Message;
-
-import java.util.Map;
+import java.util.List;
 import java.util.Random;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.SortedMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * CP-Variante: Konsistenz + Partitionstoleranz.
- * Verwendet Quorum für Operationen.
+ * Verwendet Quorum für Operationen. Lesezugriffe gehen nur an die nach EWMA schnellsten
+ * Replikate eines Quorums; antwortet nicht rechtzeitig genug, folgt nach einer
+ * perzentilbasierten Verzögerung eine Hedging-Anfrage an ein weiteres Replikat.
+ * Werte tragen Versionen; Leseantworten werden nach der höchsten Version zusammengeführt und
+ * veraltete Replikate des Quorums per READ_REPAIR nachgezogen.
  */
 public class CPDSM extends AbstractDSM {
 
-    private final Map<String, CountDownLatch> pendingReads;
-    private final Map<String, String> readResponses;
-    private final Map<String, Integer> writeAcknowledgments;
+    private final PeerLatencyTracker latencyTracker = new PeerLatencyTracker();
+    private final LongAdder hedgedReads = new LongAdder();
+    private final LongAdder readRepairs = new LongAdder();
     private final Random random = new Random();
 
     private static final long TIMEOUT_MS = 200;
@@ -26,9 +27,6 @@ public class CPDSM extends AbstractDSM {
 
     public CPDSM(String nodeName) {
         super(nodeName);
-        this.pendingReads = new ConcurrentHashMap<>();
-        this.readResponses = new ConcurrentHashMap<>();
-        this.writeAcknowledgments = new ConcurrentHashMap<>();
     }
 
     private int calculateQuorumSize() {
@@ -37,10 +35,11 @@ public class CPDSM extends AbstractDSM {
     }
 
     @Override
-    public void write(String key, String value) {
+    protected boolean doWrite(String key, String value) {
+        VersionedValue versioned = new VersionedValue(value, nextVersion());
         if (knownNodes.isEmpty()) {
-            localStore.put(key, value);
-            return;
+            applyIfNewer(key, versioned);
+            return true;
         }
 
         if (random.nextDouble() < CONSISTENCY_CHECK_RATE) {
@@ -52,42 +51,42 @@ public class CPDSM extends AbstractDSM {
         }
 
         int quorumSize = calculateQuorumSize();
-        String requestId = UUID.randomUUID().toString();
-        String requestKey = key + "_" + requestId;
-
-        writeAcknowledgments.put(requestKey, 1);
-        localStore.put(key, value);
+        RequestRegistry.Request request = pendingRequests.register(quorumSize - 1, TIMEOUT_MS);
+        try {
+            VersionedValue previous = localVersioned(key);
+            applyIfNewer(key, versioned);
 
-        DSMMessage writeMessage = new DSMMessage(DSMMessage.Type.WRITE, key + ":" + requestId, value, NodeName());
-        broadcastMessage(writeMessage);
+            replicateWrite(key, request.getId(), value, versioned.getVersion(), knownNodes);
 
-        long startTime = System.currentTimeMillis();
-        while (writeAcknowledgments.get(requestKey) < quorumSize &&
-                System.currentTimeMillis() - startTime < TIMEOUT_MS) {
+            DSMEvents.QuorumWait quorumEvent = DSMEvents.QuorumWait.start();
+            long waitStart = System.nanoTime();
+            boolean quorumReached;
             try {
-                Thread.sleep(50);
+                quorumReached = request.await(TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS));
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                return;
+                return false;
             }
-        }
-
-        if (writeAcknowledgments.get(requestKey) >= quorumSize) {
-            logger.info("Write-Quorum erreicht für " + key);
-        } else {
-            logger.warning("Write-Quorum nicht erreicht für " + key);
-            if (random.nextDouble() < 0.25) {
-                localStore.remove(key);
+            recordQuorum(quorumEvent, key, request, System.nanoTime() - waitStart, quorumReached);
+
+            if (quorumReached) {
+                logger.info("Write-Quorum erreicht für " + key);
+            } else {
+                logger.warning("Write-Quorum nicht erreicht für " + key);
+                if (random.nextDouble() < 0.25) {
+                    revert(key, versioned, previous);
+                }
             }
+            return quorumReached;
+        } finally {
+            request.release();
         }
-
-        writeAcknowledgments.remove(requestKey);
     }
 
     @Override
-    public String read(String key) {
+    protected String doRead(String key) {
         if (knownNodes.isEmpty()) {
-            return localStore.getOrDefault(key, "");
+            return localValue(key);
         }
 
         if (random.nextDouble() < CONSISTENCY_CHECK_RATE) {
@@ -98,54 +97,123 @@ public class CPDSM extends AbstractDSM {
             }
         }
 
-        int quorumSize = calculateQuorumSize();
-        String requestId = UUID.randomUUID().toString();
-        String requestKey = key + "_" + requestId;
-
-        CountDownLatch latch = new CountDownLatch(quorumSize - 1);
-        pendingReads.put(requestKey, latch);
+        int neededResponses = calculateQuorumSize() - 1;
+        RequestRegistry.Request request = pendingRequests.register(neededResponses, TIMEOUT_MS);
+        try {
+            return quorumRead(key, request, neededResponses);
+        } finally {
+            request.release();
+        }
+    }
 
-        String localValue = localStore.getOrDefault(key, "");
-        readResponses.put(requestKey, localValue);
+    private String quorumRead(String key, RequestRegistry.Request request, int neededResponses) {
+        VersionedValue localVersioned = localVersioned(key);
+        String localValue = localVersioned == null ? "" : localVersioned.getValue();
+        request.offer(localVersioned);
 
-        DSMMessage readMessage = new DSMMessage(DSMMessage.Type.READ_REQUEST, key + ":" + requestId, NodeName());
-        broadcastMessage(readMessage);
+        List<String> rankedPeers = latencyTracker.rankPeers(knownNodes);
+        DSMMessage readMessage = new DSMMessage(DSMMessage.Type.READ_REQUEST, key + ":" + request.getId(), NodeName());
+        int contacted = Math.min(neededResponses, rankedPeers.size());
+        for (int i = 0; i < contacted; i++) {
+            sendReadRequest(readMessage, rankedPeers.get(i), request);
+        }
 
-        boolean quorumReached = false;
+        boolean quorumReached;
+        DSMEvents.QuorumWait quorumEvent = DSMEvents.QuorumWait.start();
+        long waitStart = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
         try {
-            quorumReached = latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            long hedgeDelay = latencyTracker.hedgeDelayNanos(timeoutNanos / 2);
+            quorumReached = request.await(hedgeDelay);
+            if (!quorumReached && contacted < rankedPeers.size()) {
+                hedgedReads.increment();
+                DSMEvents.Retransmit.emit(NodeName(), rankedPeers.get(contacted), key, request.getId(), "HEDGE");
+                sendReadRequest(readMessage, rankedPeers.get(contacted), request);
+                contacted++;
+                quorumReached = request.await(timeoutNanos - (System.nanoTime() - waitStart));
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            cleanup(requestKey);
             return localValue;
         }
+        long waited = System.nanoTime() - waitStart;
+        recordQuorum(quorumEvent, key, request, waited, quorumReached);
+        // Wer bis hierher nicht geantwortet hat, war langsamer als das Quorum
+        for (int i = 0; i < contacted; i++) {
+            String peer = rankedPeers.get(i);
+            if (!request.hasResponded(peerIndex(peer))) {
+                latencyTracker.recordMissing(peer, waited);
+            }
+        }
 
         if (!quorumReached) {
             logger.warning("Read-Quorum nicht erreicht für " + key);
             if (random.nextDouble() < 0.3) {
-                cleanup(requestKey);
                 return null;
             }
         }
 
-        String result = readResponses.get(requestKey);
-        cleanup(requestKey);
-        return result;
+        VersionedValue newest = request.getNewest();
+        if (newest == null) {
+            return "";
+        }
+
+        applyIfNewer(key, newest);
+        repairStaleReplicas(key, newest, request, rankedPeers.subList(0, contacted));
+        return newest.getValue();
+    }
+
+    /**
+     * Schickt den gewonnenen Wert an alle Replikate des Quorums, die eine ältere Version geliefert haben.
+     * Die Nachrichten werden nur eingereiht; der Leser wartet nicht auf sie.
+     */
+    private void repairStaleReplicas(String key, VersionedValue newest, RequestRegistry.Request request,
+                                     List<String> contactedPeers) {
+        for (String peer : contactedPeers) {
+            int index = peerIndex(peer);
+            if (request.hasResponded(index) && request.getResponderVersion(index) < newest.getVersion()) {
+                readRepairs.increment();
+                sendMessage(new DSMMessage(DSMMessage.Type.READ_REPAIR, key + ":0", newest.getValue(),
+                        NodeName(), newest.getVersion()), peer);
+            }
+        }
     }
 
-    private void cleanup(String requestKey) {
-        pendingReads.remove(requestKey);
-        readResponses.remove(requestKey);
+    private void sendReadRequest(DSMMessage readMessage, String peer, RequestRegistry.Request request) {
+        request.markSent(peerIndex(peer));
+        sendMessage(readMessage, peer);
     }
 
+    /**
+     * Bereichsabfragen gehen wie Lesezugriffe an die schnellsten Replikate eines Quorums.
+     */
     @Override
-    public void receive(Message message) {
-        if (!(message instanceof DSMMessage)) {
-            return;
+    protected SortedMap<String, String> doScan(String fromKey, String toKey, int limit) {
+        if (knownNodes.isEmpty()) {
+            return super.doScan(fromKey, toKey, limit);
         }
+        int neededResponses = calculateQuorumSize() - 1;
+        List<String> rankedPeers = latencyTracker.rankPeers(knownNodes);
+        List<String> peers = rankedPeers.subList(0, Math.min(neededResponses, rankedPeers.size()));
+        return replicaScan(fromKey, toKey, limit, peers, neededResponses, TIMEOUT_MS);
+    }
 
-        DSMMessage dsmMessage = (DSMMessage) message;
+    /**
+     * Anzahl der verschickten Read-Repair-Nachrichten.
+     */
+    public long getReadRepairs() {
+        return readRepairs.sum();
+    }
 
+    /**
+     * Anzahl der Lesezugriffe, für die eine Hedging-Anfrage nötig war.
+     */
+    public long getHedgedReads() {
+        return hedgedReads.sum();
+    }
+
+    @Override
+    protected void doReceive(DSMMessage dsmMessage) {
         if (random.nextDouble() < 0.1) {
             try {
                 Thread.sleep(100 + random.nextInt(150));
@@ -154,10 +222,20 @@ public class CPDSM extends AbstractDSM {
             }
         }
 
+        if (handleSharedMessage(dsmMessage)) {
+            return;
+        }
+
         switch (dsmMessage.getType()) {
             case WRITE:
                 handleWriteMessage(dsmMessage);
                 break;
+            case WRITE_ACK:
+                handleWriteAckMessage(dsmMessage);
+                break;
+            case READ_REPAIR:
+                handleReadRepairMessage(dsmMessage);
+                break;
             case READ_REQUEST:
                 handleReadRequestMessage(dsmMessage);
                 break;
@@ -175,13 +253,39 @@ public class CPDSM extends AbstractDSM {
 
         String key = keyParts[0];
         String requestId = keyParts[1];
-        String value = message.getValue();
-        String senderId = message.getSenderId();
 
-        localStore.put(key, value);
+        String value = resolveWriteValue(message, key, requestId);
+        if (value == null) {
+            return;
+        }
+        applyIfNewer(key, new VersionedValue(value, message.getTimestamp()));
 
-        DSMMessage ackMessage = new DSMMessage(DSMMessage.Type.WRITE, key + ":" + requestId, "ACK", NodeName());
-        sendMessage(ackMessage, senderId);
+        acknowledgeWrite(message, key, requestId);
+    }
+
+    private void handleWriteAckMessage(DSMMessage message) {
+        String[] keyParts = message.getKey().split(":");
+        if (keyParts.length != 2) {
+            return;
+        }
+
+        if (!acceptWriteAck(message, keyParts[0], keyParts[1])) {
+            return;
+        }
+        long requestId = parseRequestId(keyParts[1]);
+        RequestRegistry.Request request = pendingRequests.get(requestId);
+        if (request != null) {
+            request.respond(requestId, peerIndex(message.getSenderId()));
+        }
+    }
+
+    private void handleReadRepairMessage(DSMMessage message) {
+        String[] keyParts = message.getKey().split(":");
+        if (keyParts.length != 2) {
+            return;
+        }
+
+        applyIfNewer(keyParts[0], new VersionedValue(message.getValue(), message.getTimestamp()));
     }
 
     private void handleReadRequestMessage(DSMMessage message) {
@@ -194,9 +298,10 @@ public class CPDSM extends AbstractDSM {
         String requestId = keyParts[1];
         String senderId = message.getSenderId();
 
-        String value = localStore.getOrDefault(key, "");
+        VersionedValue local = localVersioned(key);
 
-        DSMMessage responseMessage = new DSMMessage(DSMMessage.Type.READ_RESPONSE, key + ":" + requestId, value, NodeName());
+        DSMMessage responseMessage = new DSMMessage(DSMMessage.Type.READ_RESPONSE, key + ":" + requestId,
+                local == null ? null : local.getValue(), NodeName(), local == null ? -1 : local.getVersion());
         sendMessage(responseMessage, senderId);
     }
 
@@ -206,17 +311,19 @@ public class CPDSM extends AbstractDSM {
             return;
         }
 
-        String key = keyParts[0];
-        String requestId = keyParts[1];
-        String requestKey = key + "_" + requestId;
-        String value = message.getValue();
-
-        CountDownLatch latch = pendingReads.get(requestKey);
-        if (latch == null) {
+        long requestId = parseRequestId(keyParts[1]);
+        RequestRegistry.Request request = pendingRequests.get(requestId);
+        if (request == null) {
             return;
         }
 
-        readResponses.put(requestKey, value);
-        latch.countDown();
+        String senderId = message.getSenderId();
+        int peer = peerIndex(senderId);
+        long sentAt = request.getSentAt(peer);
+        VersionedValue value = message.getValue() == null ? null
+                : new VersionedValue(message.getValue(), message.getTimestamp());
+        if (request.respond(requestId, peer, value, message.getTimestamp()) && sentAt != 0) {
+            latencyTracker.record(senderId, System.nanoTime() - sentAt);
+        }
     }
 }
@@ -0,0 +1,83 @@
+package main.java.dsm;
+
+/**
+ * Änderung eines Schlüssels auf einem Replikat.
+ * Die Revision ist pro Knoten fortlaufend und dient zum Wiederaufsetzen einer Beobachtung.
+ */
+public final class ChangeEvent {
+
+    private final String key;
+    private final String value;
+    private final long version;
+    private final long revision;
+    private final boolean snapshot;
+    private final boolean reset;
+
+    ChangeEvent(String key, String value, long version, long revision, boolean snapshot) {
+        this(key, value, version, revision, snapshot, false);
+    }
+
+    private ChangeEvent(String key, String value, long version, long revision, boolean snapshot, boolean reset) {
+        this.key = key;
+        this.value = value;
+        this.version = version;
+        this.revision = revision;
+        this.snapshot = snapshot;
+        this.reset = reset;
+    }
+
+    /**
+     * Markiert den Neuaufbau einer Beobachtung; der Schlüssel ist der beobachtete Schlüssel bzw. Präfix.
+     */
+    static ChangeEvent reset(String keyOrPrefix, long revision) {
+        return new ChangeEvent(keyOrPrefix, null, 0, revision, true, true);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return der neue Wert oder null, wenn der Schlüssel entfernt wurde
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Version des Werts (hybride Uhr bzw. Zeitstempel der Variante, 0 bei unversionierten Varianten).
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * true, wenn das Ereignis beim Wiederaufsetzen aus dem aktuellen Stand erzeugt wurde,
+     * weil die angefragte Revision nicht mehr im Änderungsprotokoll lag.
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * true für die Markierung vor einem Neuaufbau: Das Änderungsprotokoll reichte nicht bis zur
+     * angefragten Revision zurück, Löschungen seitdem sind nicht mehr bekannt. Der Beobachter
+     * verwirft seinen Stand für alle beobachteten Schlüssel; die folgenden Snapshot-Ereignisse
+     * bilden den vollständigen aktuellen Stand.
+     */
+    public boolean isReset() {
+        return reset;
+    }
+
+    @Override
+    public String toString() {
+        if (reset) {
+            return key + "* reset (r" + revision + ")";
+        }
+        return key + "=" + value + " (v" + version + ", r" + revision + (snapshot ? ", snapshot" : "") + ")";
+    }
+}
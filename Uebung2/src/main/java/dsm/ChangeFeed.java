@@ -0,0 +1,220 @@
+package main.java.dsm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+
+/**
+ * Änderungsprotokoll eines Knotens mit Benachrichtigung der Beobachter.
+ * <p>
+ * Jede übernommene Änderung erhält eine fortlaufende Revision aus einem atomaren Zähler und
+ * landet in einem begrenzten Ringpuffer; {@link #publish} nimmt dabei keine Sperre, Schreiber
+ * verschiedener Schlüssel laufen also nicht über den Feed hintereinander. Zugestellt wird nicht
+ * auf dem schreibenden Thread: jede Beobachtung liest den Ringpuffer auf einem Zustell-Thread
+ * selbst in Revisionsreihenfolge und wartet dabei auf Revisionen, die schon vergeben, aber noch
+ * nicht abgelegt sind. Ein langsamer Beobachter hält damit keinen Schreiber auf und darf selbst
+ * wieder in den DSM schreiben. Überholt der Ringpuffer eine Beobachtung (zu langsam oder
+ * Wiederaufsetzen hinter dem Protokoll), bekommt sie eine Reset-Markierung und danach den
+ * aktuellen Stand aller passenden Schlüssel aus der {@link StateSource}.
+ */
+public class ChangeFeed {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final Logger logger = Logger.getLogger(ChangeFeed.class.getName());
+    private static final ExecutorService DISPATCH = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "DSM-Watch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicReferenceArray<ChangeEvent> log;
+    private final AtomicLong revision = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final StateSource state;
+
+    /**
+     * Aktueller Stand der Schlüssel für den Neuaufbau einer Beobachtung.
+     */
+    @FunctionalInterface
+    public interface StateSource {
+        /**
+         * Legt für jeden vorhandenen passenden Schlüssel ein Snapshot-Ereignis ab.
+         *
+         * @return die Revision des Stands; alle Änderungen bis dahin sind enthalten
+         */
+        long collect(String keyOrPrefix, boolean prefix, List<ChangeEvent> events);
+    }
+
+    /**
+     * Feed ohne Zustandsquelle: ein Neuaufbau liefert nur die Reset-Markierung.
+     */
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY, null);
+    }
+
+    public ChangeFeed(StateSource state) {
+        this(DEFAULT_CAPACITY, state);
+    }
+
+    public ChangeFeed(int capacity, StateSource state) {
+        this.log = new AtomicReferenceArray<>(capacity);
+        this.state = state;
+    }
+
+    /**
+     * Protokolliert eine Änderung und stößt die Zustellung an die Beobachter an. Aufrufer halten
+     * die Sperre des Schlüssels, damit Revisionen eines Schlüssels in Schreibreihenfolge steigen.
+     *
+     * @param value neuer Wert oder null für Entfernen
+     * @return die vergebene Revision
+     */
+    public long publish(String key, String value, long version) {
+        ChangeEvent event = new ChangeEvent(key, value, version, revision.incrementAndGet(), false);
+        // Ein überholter Schreiber darf ein neueres Ereignis im selben Platz nicht überschreiben
+        log.accumulateAndGet(slot(event.getRevision()), event,
+                (current, candidate) -> current == null || current.getRevision() < candidate.getRevision()
+                        ? candidate : current);
+        for (Subscription subscription : subscriptions) {
+            subscription.schedule();
+        }
+        return event.getRevision();
+    }
+
+    /**
+     * Meldet einen Beobachter an. Fehlende Ereignisse werden wie neue asynchron zugestellt.
+     *
+     * @param fromRevision zuletzt gesehene Revision; Ereignisse danach werden nachgeliefert.
+     *                     Negativ: nur künftige Änderungen
+     */
+    public Watch subscribe(String keyOrPrefix, boolean prefix, long fromRevision, ChangeListener listener) {
+        long current = revision.get();
+        long from = fromRevision < 0 || fromRevision > current ? current : fromRevision;
+        Subscription subscription = new Subscription(keyOrPrefix, prefix, listener, from);
+        subscriptions.add(subscription);
+        subscription.schedule();
+        return subscription;
+    }
+
+    /**
+     * Zuletzt vergebene Revision; die zugehörige Änderung kann noch auf dem Weg ins Replikat sein.
+     */
+    public long getRevision() {
+        return revision.get();
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    private int slot(long revision) {
+        return (int) (revision % log.length());
+    }
+
+    /**
+     * Beobachtung mit eigener Leseposition im Ringpuffer. Es läuft höchstens eine Zustellung
+     * gleichzeitig, der Beobachter wird also nie parallel aufgerufen.
+     */
+    private final class Subscription implements Watch {
+        private final String keyOrPrefix;
+        private final boolean prefix;
+        private final ChangeListener listener;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // nächste zuzustellende Revision, nur vom Zustell-Thread verändert
+        private long next;
+        private volatile long lastRevision;
+        private volatile boolean cancelled;
+
+        private Subscription(String keyOrPrefix, boolean prefix, ChangeListener listener, long lastRevision) {
+            this.keyOrPrefix = keyOrPrefix;
+            this.prefix = prefix;
+            this.listener = listener;
+            this.lastRevision = lastRevision;
+            this.next = lastRevision + 1;
+        }
+
+        private void schedule() {
+            if (!cancelled && scheduled.compareAndSet(false, true)) {
+                DISPATCH.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                deliverAvailable();
+                scheduled.set(false);
+                // Ein Schreiber kann zwischen dem letzten Blick und dem Zurücksetzen angestoßen haben
+                if (cancelled || !isAvailable() || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean isAvailable() {
+            ChangeEvent event = log.get(slot(next));
+            return event != null && event.getRevision() >= next;
+        }
+
+        private void deliverAvailable() {
+            while (!cancelled) {
+                ChangeEvent event = log.get(slot(next));
+                if (event == null || event.getRevision() < next) {
+                    return;
+                }
+                if (event.getRevision() > next) {
+                    resync();
+                    continue;
+                }
+                deliver(event);
+                next++;
+            }
+        }
+
+        /**
+         * Der Ringpuffer ist schon über {@code next} hinaus: Reset und aktueller Stand.
+         */
+        private void resync() {
+            List<ChangeEvent> events = new ArrayList<>();
+            long current = state == null ? revision.get() : state.collect(keyOrPrefix, prefix, events);
+            logger.fine("Beobachtung von " + keyOrPrefix + " neu aufgebaut ab Revision " + current);
+            deliver(ChangeEvent.reset(keyOrPrefix, current));
+            for (ChangeEvent event : events) {
+                deliver(event);
+            }
+            next = current + 1;
+            lastRevision = current;
+        }
+
+        private boolean matches(ChangeEvent event) {
+            return prefix ? event.getKey().startsWith(keyOrPrefix) : event.getKey().equals(keyOrPrefix);
+        }
+
+        private void deliver(ChangeEvent event) {
+            if (event.isReset() || matches(event)) {
+                try {
+                    listener.onChange(event);
+                } catch (RuntimeException e) {
+                    logger.warning("Fehler im Beobachter für " + keyOrPrefix + ": " + e.getMessage());
+                }
+            }
+            // Auch nicht passende Ereignisse gelten als gesehen
+            lastRevision = Math.max(lastRevision, event.getRevision());
+        }
+
+        @Override
+        public long getLastRevision() {
+            return lastRevision;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+    }
+}
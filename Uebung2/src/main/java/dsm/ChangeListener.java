@@ -0,0 +1,12 @@
+package main.java.dsm;
+
+/**
+ * Empfänger von Änderungsbenachrichtigungen.
+ * Wird asynchron auf einem Zustell-Thread aufgerufen, pro Beobachtung nie parallel und in
+ * Revisionsreihenfolge. Darf selbst lesen und schreiben; solange er blockiert, staut sich nur
+ * die eigene Beobachtung.
+ */
+@FunctionalInterface
+public interface ChangeListener {
+    void onChange(ChangeEvent event);
+}
@@ -0,0 +1,40 @@
+package main.java.dsm;
+
+/**
+ * Konsistenzstufe einer einzelnen Lese- oder Schreiboperation im {@link TunableDSM}.
+ * Legt fest, wie viele Replikate (inklusive des lokalen Knotens) antworten müssen.
+ */
+public enum ConsistencyLevel {
+    ONE, QUORUM, ALL;
+
+    /**
+     * @param replicaCount Anzahl aller Replikate (N)
+     * @return benötigte Antworten für diese Stufe
+     */
+    public int requiredReplicas(int replicaCount) {
+        return switch (this) {
+            case ONE -> 1;
+            case QUORUM -> replicaCount / 2 + 1;
+            case ALL -> replicaCount;
+        };
+    }
+
+    /**
+     * Prüft, ob sich Lese- und Schreibmenge immer überschneiden (R + W > N).
+     */
+    public static boolean overlaps(ConsistencyLevel read, ConsistencyLevel write, int replicaCount) {
+        return read.requiredReplicas(replicaCount) + write.requiredReplicas(replicaCount) > replicaCount;
+    }
+
+    /**
+     * Schwächste Lesestufe, die zusammen mit der gegebenen Schreibstufe R + W > N erfüllt.
+     */
+    public static ConsistencyLevel minimalOverlappingRead(ConsistencyLevel write, int replicaCount) {
+        for (ConsistencyLevel level : values()) {
+            if (overlaps(level, write, replicaCount)) {
+                return level;
+            }
+        }
+        return ALL;
+    }
+}
@@ -0,0 +1,87 @@
+package main.java.dsm;
+
+import org.oxoo2a.sim4da.Message;
+
+/**
+ * Atomare Lese-Schreib-Operation, die auf dem Heimatknoten des Schlüssels ausgeführt wird,
+ * und deren Ergebnis.
+ */
+public class DSMAtomicMessage extends DSMMessage {
+
+    public enum Operation {
+        COMPARE_AND_SET, ADD
+    }
+
+    private final long requestId;
+    private final Operation operation;
+    private final String expected;
+    private final long delta;
+
+    /**
+     * Anfrage.
+     *
+     * @param expected erwarteter Wert bei COMPARE_AND_SET (null oder "" für nicht vorhanden)
+     * @param newValue neuer Wert bei COMPARE_AND_SET
+     * @param delta    Summand bei ADD
+     */
+    public DSMAtomicMessage(long requestId, Operation operation, String key, String expected, String newValue,
+                            long delta, String senderId) {
+        super(Type.ATOMIC_REQUEST, key, newValue, senderId);
+        this.requestId = requestId;
+        this.operation = operation;
+        this.expected = expected;
+        this.delta = delta;
+    }
+
+    /**
+     * Antwort; der Wert ist das Ergebnis oder null, wenn die Operation nicht ausgeführt wurde.
+     */
+    public DSMAtomicMessage(DSMAtomicMessage request, String result, String senderId) {
+        super(Type.ATOMIC_RESPONSE, request.getKey(), result, senderId);
+        this.requestId = request.requestId;
+        this.operation = request.operation;
+        this.expected = request.expected;
+        this.delta = request.delta;
+    }
+
+    /**
+     * Aus dem Binärformat von {@link DSMCodec} wiederhergestellt.
+     */
+    DSMAtomicMessage(Type type, String key, String value, String senderId, long timestamp, long requestId,
+                     Operation operation, String expected, long delta) {
+        super(type, key, value, senderId, timestamp);
+        this.requestId = requestId;
+        this.operation = operation;
+        this.expected = expected;
+        this.delta = delta;
+    }
+
+    protected DSMAtomicMessage(DSMAtomicMessage original) {
+        super(original);
+        this.requestId = original.requestId;
+        this.operation = original.operation;
+        this.expected = original.expected;
+        this.delta = original.delta;
+    }
+
+    @Override
+    public Message copy() {
+        return new DSMAtomicMessage(this);
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getExpected() {
+        return expected;
+    }
+
+    public long getDelta() {
+        return delta;
+    }
+}
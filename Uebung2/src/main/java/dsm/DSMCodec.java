@@ -0,0 +1,255 @@
+package main.java.dsm;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binärformat der DSM-Nachrichten für Transporte außerhalb von sim4da.
+ * <p>
+ * Ein Rahmen besteht aus seiner Länge (int, ohne das Längenfeld) und dem Inhalt: Art der
+ * Nachricht, Typ, Schlüssel, Wert, Absender, Zeitstempel, danach die Felder der Unterklasse.
+ * Zeichenketten werden als UTF-8 mit vorangestellter Länge kodiert, -1 steht für null.
+ */
+public final class DSMCodec {
+
+    /** Obergrenze eines Rahmens, schützt vor kaputten Längenfeldern. */
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    private static final byte PLAIN = 0;
+    private static final byte SCAN = 1;
+    private static final byte ATOMIC = 2;
+    private static final byte TRANSACTION = 3;
+    private static final byte ENCODED_WRITE = 4;
+    private static final DSMMessage.Type[] TYPES = DSMMessage.Type.values();
+    private static final DSMAtomicMessage.Operation[] OPERATIONS = DSMAtomicMessage.Operation.values();
+    private static final DSMTransactionMessage.Phase[] PHASES = DSMTransactionMessage.Phase.values();
+    private static final DSMWriteMessage.Encoding[] ENCODINGS = DSMWriteMessage.Encoding.values();
+
+    private DSMCodec() {
+    }
+
+    /**
+     * Kodiert eine Nachricht als Rahmen samt Längenfeld.
+     *
+     * @return Puffer, bereit zum Schreiben auf einen Kanal
+     */
+    public static ByteBuffer encode(DSMMessage message) {
+        Writer out = new Writer(128);
+        out.putInt(0);
+        if (message instanceof DSMScanMessage scan) {
+            writeHeader(out, SCAN, scan);
+            out.putLong(scan.getRequestId());
+            out.putString(scan.getToKey());
+            out.putInt(scan.getLimit());
+            out.putInt(scan.size());
+            for (int i = 0; i < scan.size(); i++) {
+                out.putString(scan.getKey(i));
+                out.putString(scan.getValue(i));
+                out.putLong(scan.getVersion(i));
+            }
+            out.putBoolean(scan.isTruncated());
+        } else if (message instanceof DSMAtomicMessage atomic) {
+            writeHeader(out, ATOMIC, atomic);
+            out.putLong(atomic.getRequestId());
+            out.putByte((byte) atomic.getOperation().ordinal());
+            out.putString(atomic.getExpected());
+            out.putLong(atomic.getDelta());
+        } else if (message instanceof DSMTransactionMessage transaction) {
+            writeHeader(out, TRANSACTION, transaction);
+            out.putLong(transaction.getRequestId());
+            out.putByte((byte) transaction.getPhase().ordinal());
+            out.putStrings(transaction.getReadKeys());
+            long[] revisions = transaction.getReadRevisions();
+            out.putInt(revisions.length);
+            for (long revision : revisions) {
+                out.putLong(revision);
+            }
+            out.putStrings(transaction.getWriteKeys());
+            out.putStrings(transaction.getWriteValues());
+            out.putBoolean(transaction.isSuccess());
+        } else if (message instanceof DSMWriteMessage write) {
+            writeHeader(out, ENCODED_WRITE, write);
+            out.putByte((byte) write.getEncoding().ordinal());
+            out.putInt(write.getPrefixLength());
+            out.putInt(write.getSuffixLength());
+            out.putInt(write.getBaseLength());
+            out.putInt(write.getBaseChecksum());
+            out.putInt(write.getPayload().length);
+            out.putBytes(write.getPayload());
+        } else if (message.getClass() == DSMMessage.class) {
+            writeHeader(out, PLAIN, message);
+        } else {
+            throw new IllegalArgumentException("Nachrichtentyp nicht kodierbar: " + message.getClass().getName());
+        }
+        ByteBuffer frame = out.buffer.flip();
+        frame.putInt(0, frame.limit() - Integer.BYTES);
+        return frame;
+    }
+
+    /**
+     * Dekodiert den Inhalt eines Rahmens (ohne Längenfeld).
+     *
+     * @throws IllegalArgumentException bei unbekanntem oder unvollständigem Inhalt
+     */
+    public static DSMMessage decode(ByteBuffer in) {
+        try {
+            byte kind = in.get();
+            DSMMessage.Type type = TYPES[in.get()];
+            String key = getString(in);
+            String value = getString(in);
+            String sender = getString(in);
+            long timestamp = in.getLong();
+            switch (kind) {
+                case PLAIN:
+                    return new DSMMessage(type, key, value, sender, timestamp);
+                case SCAN: {
+                    long requestId = in.getLong();
+                    String toKey = getString(in);
+                    int limit = in.getInt();
+                    int size = checkedLength(in.getInt());
+                    String[] keys = new String[size];
+                    String[] values = new String[size];
+                    long[] versions = new long[size];
+                    for (int i = 0; i < size; i++) {
+                        keys[i] = getString(in);
+                        values[i] = getString(in);
+                        versions[i] = in.getLong();
+                    }
+                    return new DSMScanMessage(type, sender, timestamp, requestId, key, toKey, limit, keys, values,
+                            versions, in.get() != 0);
+                }
+                case ATOMIC:
+                    return new DSMAtomicMessage(type, key, value, sender, timestamp, in.getLong(),
+                            OPERATIONS[in.get()], getString(in), in.getLong());
+                case TRANSACTION: {
+                    long requestId = in.getLong();
+                    DSMTransactionMessage.Phase phase = PHASES[in.get()];
+                    String[] readKeys = getStrings(in);
+                    long[] readRevisions = new long[checkedLength(in.getInt())];
+                    for (int i = 0; i < readRevisions.length; i++) {
+                        readRevisions[i] = in.getLong();
+                    }
+                    String[] writeKeys = getStrings(in);
+                    String[] writeValues = getStrings(in);
+                    return new DSMTransactionMessage(type, value, sender, timestamp, requestId, phase, key, readKeys,
+                            readRevisions, writeKeys, writeValues, in.get() != 0);
+                }
+                case ENCODED_WRITE: {
+                    DSMWriteMessage.Encoding encoding = ENCODINGS[in.get()];
+                    int prefix = in.getInt();
+                    int suffix = in.getInt();
+                    int baseLength = in.getInt();
+                    int baseChecksum = in.getInt();
+                    byte[] payload = new byte[checkedLength(in.getInt())];
+                    in.get(payload);
+                    return new DSMWriteMessage(key, sender, timestamp, encoding, payload, prefix, suffix, baseLength,
+                            baseChecksum);
+                }
+                default:
+                    throw new IllegalArgumentException("Unbekannte Nachrichtenart: " + kind);
+            }
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Unvollständiger oder beschädigter Rahmen", e);
+        }
+    }
+
+    private static void writeHeader(Writer out, byte kind, DSMMessage message) {
+        out.putByte(kind);
+        out.putByte((byte) message.getType().ordinal());
+        out.putString(message.getKey());
+        out.putString(message.getValue());
+        out.putString(message.getSenderId());
+        out.putLong(message.getTimestamp());
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String text = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return text;
+    }
+
+    private static String[] getStrings(ByteBuffer in) {
+        String[] strings = new String[checkedLength(in.getInt())];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = getString(in);
+        }
+        return strings;
+    }
+
+    private static int checkedLength(int length) {
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("Ungültige Länge: " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Wachsender Heap-Puffer für einen Rahmen.
+     */
+    private static final class Writer {
+        private ByteBuffer buffer;
+
+        private Writer(int capacity) {
+            buffer = ByteBuffer.allocate(capacity);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+                if (capacity > MAX_FRAME_BYTES + Integer.BYTES) {
+                    throw new IllegalArgumentException("Nachricht größer als " + MAX_FRAME_BYTES + " Byte");
+                }
+                buffer = ByteBuffer.allocate(capacity).put(buffer.flip());
+            }
+        }
+
+        private void putByte(byte value) {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        private void putBoolean(boolean value) {
+            putByte((byte) (value ? 1 : 0));
+        }
+
+        private void putInt(int value) {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        private void putLong(long value) {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        private void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            putBytes(bytes);
+        }
+
+        private void putBytes(byte[] bytes) {
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void putStrings(String[] values) {
+            putInt(values.length);
+            for (String value : values) {
+                putString(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package main.java.dsm;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR-Ereignisse der DSM-Knoten. Standardmäßig aus; eingeschaltet werden sie über
+ * {@code dsm.jfc}, z.B. {@code -XX:StartFlightRecording:settings=default,settings=dsm.jfc}.
+ * Ausgeschaltet kostet ein Ereignis nur {@code end()} und {@code shouldCommit()}; Schlüssel und
+ * Anfrage-ID werden erst danach aus der Nachricht gelesen. {@code end()} muss vor
+ * {@code shouldCommit()} stehen, sonst greift die Schwelle aus {@code dsm.jfc} nicht.
+ */
+public final class DSMEvents {
+
+    private DSMEvents() {
+    }
+
+    @Name("dsm.Operation")
+    @Label("DSM-Operation")
+    @Category({"DSM", "Operationen"})
+    @Description("Lesen, Schreiben, Bereichsabfrage oder atomare Operation aus Sicht des Aufrufers")
+    @Enabled(false)
+    @StackTrace(false)
+    @Threshold("0 ms")
+    public static final class Operation extends Event {
+        @Label("Knoten")
+        String node;
+        @Label("Operation")
+        String operation;
+        @Label("Schlüssel")
+        String key;
+
+        public void commit(String node, String operation, String key) {
+            end();
+            if (shouldCommit()) {
+                this.node = node;
+                this.operation = operation;
+                this.key = key;
+                commit();
+            }
+        }
+    }
+
+    @Name("dsm.QuorumWait")
+    @Label("Quorum-Wartezeit")
+    @Category({"DSM", "Replikation"})
+    @Description("Warten auf die Antworten anderer Knoten")
+    @Enabled(false)
+    @StackTrace(false)
+    @Threshold("0 ms")
+    public static final class QuorumWait extends Event {
+        @Label("Knoten")
+        String node;
+        @Label("Schlüssel")
+        String key;
+        @Label("Anfrage-ID")
+        long requestId;
+        @Label("Antworten")
+        int responses;
+        @Label("Erreicht")
+        boolean reached;
+
+        /**
+         * Neues Ereignis, dessen Dauer ab jetzt läuft.
+         */
+        public static QuorumWait start() {
+            QuorumWait event = new QuorumWait();
+            event.begin();
+            return event;
+        }
+
+        public void commit(String node, String key, RequestRegistry.Request request, boolean reached) {
+            end();
+            if (shouldCommit()) {
+                this.node = node;
+                this.key = key;
+                this.requestId = request.getId();
+                this.responses = request.getResponseCount();
+                this.reached = reached;
+                commit();
+            }
+        }
+    }
+
+    @Name("dsm.MessageSend")
+    @Label("Nachricht gesendet")
+    @Category({"DSM", "Nachrichten"})
+    @Description("Übergabe einer Nachricht an sim4da bzw. den Transport")
+    @Enabled(false)
+    @StackTrace(false)
+    @Threshold("0 ms")
+    public static final class MessageSend extends Event {
+        @Label("Knoten")
+        String node;
+        @Label("Empfänger")
+        String peer;
+        @Label("Typ")
+        String type;
+        @Label("Schlüssel")
+        String key;
+        @Label("Anfrage-ID")
+        long requestId;
+
+        public void commit(String node, String peer, DSMMessage message) {
+            end();
+            if (shouldCommit()) {
+                this.node = node;
+                this.peer = peer;
+                this.type = message.getType().name();
+                this.key = keyOf(message);
+                this.requestId = requestIdOf(message);
+                commit();
+            }
+        }
+    }
+
+    @Name("dsm.MessageReceive")
+    @Label("Nachricht verarbeitet")
+    @Category({"DSM", "Nachrichten"})
+    @Description("Verarbeitung einer eingehenden Nachricht, einschließlich simulierter Verzögerung")
+    @Enabled(false)
+    @StackTrace(false)
+    @Threshold("0 ms")
+    public static final class MessageReceive extends Event {
+        @Label("Knoten")
+        String node;
+        @Label("Absender")
+        String peer;
+        @Label("Typ")
+        String type;
+        @Label("Schlüssel")
+        String key;
+        @Label("Anfrage-ID")
+        long requestId;
+
+        public void commit(String node, DSMMessage message) {
+            end();
+            if (shouldCommit()) {
+                this.node = node;
+                this.peer = message.getSenderId();
+                this.type = message.getType().name();
+                this.key = keyOf(message);
+                this.requestId = requestIdOf(message);
+                commit();
+            }
+        }
+    }
+
+    @Name("dsm.Retransmit")
+    @Label("Wiederholte Übertragung")
+    @Category({"DSM", "Replikation"})
+    @Description("Erneutes Senden nach Timeout, abgesichertes Lesen (Hedging) oder angefordertem Vollwert")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class Retransmit extends Event {
+        @Label("Knoten")
+        String node;
+        @Label("Empfänger")
+        String peer;
+        @Label("Schlüssel")
+        String key;
+        @Label("Anfrage-ID")
+        long requestId;
+        @Label("Grund")
+        String reason;
+
+        /**
+         * @param peer Empfänger oder "*" für alle bekannten Knoten
+         */
+        public static void emit(String node, String peer, String key, long requestId, String reason) {
+            Retransmit event = new Retransmit();
+            if (event.shouldCommit()) {
+                event.node = node;
+                event.peer = peer;
+                event.key = key;
+                event.requestId = requestId;
+                event.reason = reason;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Schlüssel ohne angehängte Anfrage-ID ("key:requestId" bei einfachen Nachrichten).
+     */
+    static String keyOf(DSMMessage message) {
+        String key = message.getKey();
+        if (key == null || hasRequestIdField(message)) {
+            return key;
+        }
+        int separator = key.lastIndexOf(':');
+        return separator < 0 ? key : key.substring(0, separator);
+    }
+
+    /**
+     * Anfrage-ID der Nachricht oder -1, wenn sie keine trägt.
+     */
+    static long requestIdOf(DSMMessage message) {
+        if (message instanceof DSMScanMessage scan) {
+            return scan.getRequestId();
+        }
+        if (message instanceof DSMAtomicMessage atomic) {
+            return atomic.getRequestId();
+        }
+        if (message instanceof DSMTransactionMessage transaction) {
+            return transaction.getRequestId();
+        }
+        String key = message.getKey();
+        int separator = key == null ? -1 : key.lastIndexOf(':');
+        return separator < 0 ? -1 : AbstractDSM.parseRequestId(key.substring(separator + 1));
+    }
+
+    private static boolean hasRequestIdField(DSMMessage message) {
+        return message instanceof DSMScanMessage || message instanceof DSMAtomicMessage
+                || message instanceof DSMTransactionMessage;
+    }
+}
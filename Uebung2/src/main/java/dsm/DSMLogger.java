@@ -1,23 +1,23 @@
 package main.java.dsm;
 
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.logging.ConsoleHandler;
-import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.logging.SimpleFormatter;
 
 /**
  * Hilfsklasse für verbessertes Logging im DSM-Projekt.
  * Ermöglicht sowohl Konsolen- als auch Datei-Logging mit verschiedenen Detailstufen.
+ * Datei-Ausgaben laufen asynchron über {@link AsyncResultWriter}, damit das Logging
+ * die gemessenen Latenzen der Simulations-Threads nicht verfälscht.
  */
 public class DSMLogger {
-    private static FileHandler fileHandler;
-    private static PrintWriter resultsWriter;
+    private static AsyncLogHandler fileHandler;
+    private static AsyncResultWriter resultsWriter;
 
     /**
      * Initialisiert das Logging-System für das DSM-Projekt.
@@ -29,8 +29,7 @@ public class DSMLogger {
             String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
 
             // Detaillierte Logdatei einrichten
-            fileHandler = new FileHandler("dsm_simulation_" + timestamp + ".log");
-            fileHandler.setFormatter(new SimpleFormatter());
+            fileHandler = new AsyncLogHandler("dsm_simulation_" + timestamp + ".log");
 
             // Root-Logger konfigurieren
             Logger rootLogger = Logger.getLogger("");
@@ -47,10 +46,11 @@ public class DSMLogger {
             rootLogger.addHandler(fileHandler);
 
             // Ergebnisdatei für Zusammenfassung einrichten
-            resultsWriter = new PrintWriter(new FileWriter("dsm_results_" + timestamp + ".txt"));
-            resultsWriter.println("=== DSM-Simulation Ergebnisse ===");
-            resultsWriter.println("Zeitstempel: " + new SimpleDateFormat("dd.MM.yyyy HH:mm:ss").format(new Date()));
-            resultsWriter.println("\n");
+            resultsWriter = new AsyncResultWriter(
+                    new BufferedWriter(new FileWriter("dsm_results_" + timestamp + ".txt")), "DSMLogger-ResultWriter");
+            resultsWriter.publish("=== DSM-Simulation Ergebnisse ===");
+            resultsWriter.publish("Zeitstempel: " + new SimpleDateFormat("dd.MM.yyyy HH:mm:ss").format(new Date()));
+            resultsWriter.publish("\n");
 
         } catch (IOException e) {
             System.err.println("Fehler beim Einrichten des Loggings: " + e.getMessage());
@@ -59,13 +59,22 @@ public class DSMLogger {
 
     /**
      * Schreibt einen Eintrag in die Ergebnisdatei.
+     * Der Eintrag wird nur in den Ringpuffer gelegt; geschrieben wird im Hintergrund.
      *
      * @param text Der zu schreibende Text
      */
     public static void logResult(String text) {
         if (resultsWriter != null) {
-            resultsWriter.println(text);
-            resultsWriter.flush(); // Sofortiges Schreiben in die Datei
+            resultsWriter.publish(text);
+        }
+    }
+
+    /**
+     * Wartet, bis alle bisherigen Ergebnis-Einträge auf der Platte sind.
+     */
+    public static void flushResults() {
+        if (resultsWriter != null) {
+            resultsWriter.flush();
         }
     }
 
@@ -74,6 +83,7 @@ public class DSMLogger {
      */
     public static void closeLogging() {
         if (fileHandler != null) {
+            Logger.getLogger("").removeHandler(fileHandler);
             fileHandler.close();
         }
 
@@ -84,10 +94,12 @@ public class DSMLogger {
 
     /**
      * Beginnt einen neuen Abschnitt in der Ergebnisdatei.
+     * Der vorherige Abschnitt wird dabei vollständig geschrieben.
      *
      * @param title Der Titel des neuen Abschnitts
      */
     public static void startResultSection(String title) {
+        flushResults();
         logResult("\n\n=== " + title + " ===");
     }
 
@@ -104,4 +116,40 @@ public class DSMLogger {
         logResult("- Erkannte Inkonsistenzen: " + inconsistencyCount);
         logResult("- Inkonsistenz-Rate: " + String.format("%.2f%%", (inconsistencyCount * 100.0 / operationCount)));
     }
+
+    /**
+     * Schreibt die Latenz-Perzentile (p50/p99/p999) und Quorum-Statistiken einer DSM-Variante.
+     *
+     * @param title     Name der DSM-Variante
+     * @param metrics   zusammengefasste Metriken aller Knoten der Variante
+     * @param runMillis gemessene Laufzeit der Variante; der Durchsatz ist Anzahl durch Laufzeit
+     */
+    public static void writeLatencySummary(String title, DSMMetrics metrics, long runMillis) {
+        double runSeconds = Math.max(1, runMillis) / 1000.0;
+        logResult("\nLatenzen für " + title + String.format(" (ms, Laufzeit %.1f s):", runSeconds));
+        for (DSMMetrics.Operation operation : DSMMetrics.Operation.values()) {
+            LatencyHistogram histogram = metrics.getHistogram(operation);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            logResult(String.format("- %-11s n=%d, p50=%.2f, p99=%.2f, p999=%.2f, max=%.2f, %.1f ops/s",
+                    operation, histogram.getCount(),
+                    toMillis(histogram.getValueAtPercentile(50.0)),
+                    toMillis(histogram.getValueAtPercentile(99.0)),
+                    toMillis(histogram.getValueAtPercentile(99.9)),
+                    toMillis(histogram.getMax()),
+                    histogram.getCount() / runSeconds));
+        }
+
+        long successes = metrics.getQuorumSuccesses();
+        long failures = metrics.getQuorumFailures();
+        if (successes + failures > 0) {
+            logResult("- Quorum erreicht: " + successes + ", verfehlt: " + failures
+                    + String.format(" (%.2f%% Fehlschläge)", failures * 100.0 / (successes + failures)));
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
 }
@@ -64,6 +64,7 @@ public class DSMMessage extends Message {
     }
 
     public enum Type {
-        WRITE, READ_REQUEST, READ_RESPONSE, SYNC_REQUEST, SYNC_RESPONSE
+        WRITE, WRITE_ACK, READ_REQUEST, READ_RESPONSE, READ_REPAIR, SYNC_REQUEST, SYNC_RESPONSE,
+        SCAN_REQUEST, SCAN_RESPONSE, ATOMIC_REQUEST, ATOMIC_RESPONSE, TX_REQUEST, TX_RESPONSE
     }
 }
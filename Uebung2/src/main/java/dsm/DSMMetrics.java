@@ -0,0 +1,77 @@
+package main.java.dsm;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Laufzeitmetriken eines DSM-Knotens: Latenz-Histogramme pro Operationstyp,
+ * Quorum-Erfolge/-Fehlschläge und gleitende Durchsatzzähler.
+ * Alle Aufzeichnungen sind lock-frei und können dauerhaft aktiv bleiben.
+ */
+public class DSMMetrics {
+
+    public enum Operation {
+        READ, WRITE, SCAN, ATOMIC, TRANSACTION, SYNC, QUORUM_WAIT
+    }
+
+    private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, ThroughputCounter> throughput = new EnumMap<>(Operation.class);
+    private final LongAdder quorumSuccesses = new LongAdder();
+    private final LongAdder quorumFailures = new LongAdder();
+
+    public DSMMetrics() {
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new LatencyHistogram());
+            throughput.put(operation, new ThroughputCounter());
+        }
+    }
+
+    public void record(Operation operation, long nanos) {
+        histograms.get(operation).record(nanos);
+        throughput.get(operation).increment();
+    }
+
+    /**
+     * Erfasst das Warten auf ein Quorum samt Ergebnis.
+     *
+     * @param nanos   Wartezeit in Nanosekunden
+     * @param reached ob das Quorum erreicht wurde
+     */
+    public void recordQuorum(long nanos, boolean reached) {
+        record(Operation.QUORUM_WAIT, nanos);
+        if (reached) {
+            quorumSuccesses.increment();
+        } else {
+            quorumFailures.increment();
+        }
+    }
+
+    /**
+     * Addiert die Histogramme und Zähler eines anderen Knotens (für Auswertungen pro Variante).
+     */
+    public void add(DSMMetrics other) {
+        for (Operation operation : Operation.values()) {
+            histograms.get(operation).add(other.histograms.get(operation));
+            throughput.get(operation).add(other.throughput.get(operation));
+        }
+        quorumSuccesses.add(other.getQuorumSuccesses());
+        quorumFailures.add(other.getQuorumFailures());
+    }
+
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms.get(operation);
+    }
+
+    public double getRate(Operation operation, int windowSeconds) {
+        return throughput.get(operation).getRate(windowSeconds);
+    }
+
+    public long getQuorumSuccesses() {
+        return quorumSuccesses.sum();
+    }
+
+    public long getQuorumFailures() {
+        return quorumFailures.sum();
+    }
+}
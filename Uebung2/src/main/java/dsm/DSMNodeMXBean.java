@@ -0,0 +1,79 @@
+package main.java.dsm;
+
+/**
+ * JMX-Sicht auf einen laufenden DSM-Knoten, z.B. für JConsole oder VisualVM.
+ * Registriert unter {@code main.java.dsm:type=DSMNode,name=<Knotenname>}.
+ * Nicht zutreffende Größen (z.B. Speicherbudget ohne Richtlinie) liefern 0 bzw. false.
+ */
+public interface DSMNodeMXBean {
+
+    String getNodeName();
+
+    /** Klassenname der Variante (APDSM, CPDSM, ...). */
+    String getVariant();
+
+    int getKnownNodes();
+
+    /** Anzahl der lokalen Schlüssel; zählt die Einträge, bei großen Speichern nicht billig. */
+    int getStoredKeys();
+
+    /** Offene Anfragen, die auf Antworten anderer Knoten warten. */
+    int getPendingRequests();
+
+    /** Zurückgehaltene, noch nicht zugestellte Nachrichten (nur AP). */
+    int getQueuedMessages();
+
+    /** Ob der Knoten sich derzeit für partitioniert hält. */
+    boolean isPartitioned();
+
+    long getQuorumSuccesses();
+
+    long getQuorumFailures();
+
+    /** Anteil fehlgeschlagener Quorum-Wartezeiten, 0 ohne Messwerte. */
+    double getQuorumFailureRate();
+
+    double getReadP99Millis();
+
+    double getWriteP99Millis();
+
+    /** Lesezugriffe pro Sekunde, gemittelt über die letzten 10 s. */
+    double getReadRate();
+
+    /** Schreibzugriffe pro Sekunde, gemittelt über die letzten 10 s. */
+    double getWriteRate();
+
+    long getChangeFeedRevision();
+
+    long getStoreUsedBytes();
+
+    long getStoreMaxBytes();
+
+    long getEvictions();
+
+    long getMissFetches();
+
+    /** Unkodierte Größe der großen replizierten Werte in Byte. */
+    long getWireRawBytes();
+
+    /** Tatsächlich verschickte Größe dieser Werte in Byte. */
+    long getWireEncodedBytes();
+
+    boolean isWriteEncodingEnabled();
+
+    void setWriteEncodingEnabled(boolean enabled);
+
+    /**
+     * Gleicht das lokale Replikat mit den anderen Knoten ab.
+     *
+     * @return Anzahl der abgeglichenen Schlüssel, -1 wenn zu wenige Knoten geantwortet haben
+     */
+    int forceSync();
+
+    /**
+     * Stellt zurückgehaltene Nachrichten sofort zu.
+     *
+     * @return Anzahl der zugestellten Nachrichten
+     */
+    int drainQueues();
+}
@@ -0,0 +1,146 @@
+package main.java.dsm;
+
+/**
+ * {@link DSMNodeMXBean} eines Knotens. Liest nur vorhandene Zähler und Metriken aus,
+ * der Knoten selbst zeichnet dafür nichts zusätzlich auf.
+ */
+final class DSMNodeMonitor implements DSMNodeMXBean {
+
+    private static final int RATE_WINDOW_SECONDS = 10;
+
+    private final AbstractDSM node;
+
+    DSMNodeMonitor(AbstractDSM node) {
+        this.node = node;
+    }
+
+    @Override
+    public String getNodeName() {
+        return node.NodeName();
+    }
+
+    @Override
+    public String getVariant() {
+        return node.getClass().getSimpleName();
+    }
+
+    @Override
+    public int getKnownNodes() {
+        return node.knownNodes.size();
+    }
+
+    @Override
+    public int getStoredKeys() {
+        return node.localStore.size();
+    }
+
+    @Override
+    public int getPendingRequests() {
+        return node.pendingRequests.getOpenRequests();
+    }
+
+    @Override
+    public int getQueuedMessages() {
+        return node.getQueuedMessages();
+    }
+
+    @Override
+    public boolean isPartitioned() {
+        return node.isPartitioned();
+    }
+
+    @Override
+    public long getQuorumSuccesses() {
+        return node.metrics.getQuorumSuccesses();
+    }
+
+    @Override
+    public long getQuorumFailures() {
+        return node.metrics.getQuorumFailures();
+    }
+
+    @Override
+    public double getQuorumFailureRate() {
+        long failures = node.metrics.getQuorumFailures();
+        long total = failures + node.metrics.getQuorumSuccesses();
+        return total == 0 ? 0 : (double) failures / total;
+    }
+
+    @Override
+    public double getReadP99Millis() {
+        return node.metrics.getHistogram(DSMMetrics.Operation.READ).getValueAtPercentile(99.0) / 1e6;
+    }
+
+    @Override
+    public double getWriteP99Millis() {
+        return node.metrics.getHistogram(DSMMetrics.Operation.WRITE).getValueAtPercentile(99.0) / 1e6;
+    }
+
+    @Override
+    public double getReadRate() {
+        return node.metrics.getRate(DSMMetrics.Operation.READ, RATE_WINDOW_SECONDS);
+    }
+
+    @Override
+    public double getWriteRate() {
+        return node.metrics.getRate(DSMMetrics.Operation.WRITE, RATE_WINDOW_SECONDS);
+    }
+
+    @Override
+    public long getChangeFeedRevision() {
+        return node.changeFeed.getRevision();
+    }
+
+    @Override
+    public long getStoreUsedBytes() {
+        StoreBudget budget = node.getStoreBudget();
+        return budget == null ? 0 : budget.getUsedBytes();
+    }
+
+    @Override
+    public long getStoreMaxBytes() {
+        StoreBudget budget = node.getStoreBudget();
+        return budget == null ? 0 : budget.getMaxBytes();
+    }
+
+    @Override
+    public long getEvictions() {
+        StoreBudget budget = node.getStoreBudget();
+        return budget == null ? 0 : budget.getEvictions();
+    }
+
+    @Override
+    public long getMissFetches() {
+        return node.getMissFetches();
+    }
+
+    @Override
+    public long getWireRawBytes() {
+        return node.writeEncoder.getRawBytes();
+    }
+
+    @Override
+    public long getWireEncodedBytes() {
+        return node.writeEncoder.getEncodedBytes();
+    }
+
+    @Override
+    public boolean isWriteEncodingEnabled() {
+        return node.writeEncoder.isEnabled();
+    }
+
+    @Override
+    public void setWriteEncodingEnabled(boolean enabled) {
+        node.writeEncoder.setEnabled(enabled);
+    }
+
+    @Override
+    public int forceSync() {
+        return node.forceSync();
+    }
+
+    @Override
+    public int drainQueues() {
+        return node.drainQueues();
+    }
+}
@@ -0,0 +1,125 @@
+package main.java.dsm;
+
+import org.oxoo2a.sim4da.Message;
+
+/**
+ * Bereichsabfrage [fromKey, toKey) und deren Antwortseite.
+ * Eine Antwort trägt Schlüssel, Werte und Versionen als parallele Arrays; {@code truncated}
+ * zeigt an, dass hinter dem letzten Schlüssel noch weitere Einträge im Bereich liegen.
+ */
+public class DSMScanMessage extends DSMMessage {
+
+    private static final String[] NO_KEYS = new String[0];
+    private static final long[] NO_VERSIONS = new long[0];
+
+    private final long requestId;
+    private final String fromKey;
+    private final String toKey;
+    private final int limit;
+    private final String[] keys;
+    private final String[] values;
+    private final long[] versions;
+    private final boolean truncated;
+
+    /**
+     * Anfrage.
+     *
+     * @param toKey exklusive Obergrenze oder null für offen
+     */
+    public DSMScanMessage(long requestId, String fromKey, String toKey, int limit, String senderId) {
+        super(Type.SCAN_REQUEST, fromKey, senderId);
+        this.requestId = requestId;
+        this.fromKey = fromKey;
+        this.toKey = toKey;
+        this.limit = limit;
+        this.keys = NO_KEYS;
+        this.values = NO_KEYS;
+        this.versions = NO_VERSIONS;
+        this.truncated = false;
+    }
+
+    /**
+     * Antwort auf eine Anfrage.
+     */
+    public DSMScanMessage(DSMScanMessage request, String[] keys, String[] values, long[] versions,
+                          boolean truncated, String senderId) {
+        super(Type.SCAN_RESPONSE, request.fromKey, senderId);
+        this.requestId = request.requestId;
+        this.fromKey = request.fromKey;
+        this.toKey = request.toKey;
+        this.limit = request.limit;
+        this.keys = keys;
+        this.values = values;
+        this.versions = versions;
+        this.truncated = truncated;
+    }
+
+    /**
+     * Aus dem Binärformat von {@link DSMCodec} wiederhergestellt.
+     */
+    DSMScanMessage(Type type, String senderId, long timestamp, long requestId, String fromKey, String toKey,
+                   int limit, String[] keys, String[] values, long[] versions, boolean truncated) {
+        super(type, fromKey, null, senderId, timestamp);
+        this.requestId = requestId;
+        this.fromKey = fromKey;
+        this.toKey = toKey;
+        this.limit = limit;
+        this.keys = keys;
+        this.values = values;
+        this.versions = versions;
+        this.truncated = truncated;
+    }
+
+    protected DSMScanMessage(DSMScanMessage original) {
+        super(original);
+        this.requestId = original.requestId;
+        this.fromKey = original.fromKey;
+        this.toKey = original.toKey;
+        this.limit = original.limit;
+        this.keys = original.keys.clone();
+        this.values = original.values.clone();
+        this.versions = original.versions.clone();
+        this.truncated = original.truncated;
+    }
+
+    @Override
+    public Message copy() {
+        return new DSMScanMessage(this);
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public String getFromKey() {
+        return fromKey;
+    }
+
+    public String getToKey() {
+        return toKey;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public String getKey(int index) {
+        return keys[index];
+    }
+
+    public String getValue(int index) {
+        return values[index];
+    }
+
+    public long getVersion(int index) {
+        return versions[index];
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+}
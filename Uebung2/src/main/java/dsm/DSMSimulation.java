@@ -1,10 +1,19 @@
 package main.java.dsm;
 
 import main.java.app.CounterApp;
+import main.java.check.LinearizabilityChecker;
+import main.java.check.OperationHistory;
 import org.oxoo2a.sim4da.Simulator;
 
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,6 +27,8 @@ public class DSMSimulation {
     private static final int NODE_COUNT = 5;
     private static final int ITERATIONS_PER_NODE = 5;
     private static final long TIME_LIMIT_MS = 8000;
+    // true: CounterApps verfolgen fremde Zähler per watch statt sie in jedem Schritt zu lesen
+    private static final boolean WATCH_COUNTERS = true;
 
     public static void main(String[] args) {
         DSMLogger.setupLogging();
@@ -58,14 +69,50 @@ public class DSMSimulation {
         logger.warning("=== Starte " + name + " ===");
 
         String[] nodeIds = createNodeIds();
-        List<CounterApp> apps = createApps(nodeIds, type);
+        String historyFile = "dsm_history_" + type + "_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".bin";
+        OperationHistory history = openHistory(historyFile);
+        List<AbstractDSM> nodes = new ArrayList<>();
+        List<CounterApp> apps = createApps(nodeIds, type, history, nodes);
 
         try {
             initializeApps(apps, name);
-            executeSimulation(apps, name);
-            collectResults(apps, type);
+            long runMillis = executeSimulation(apps, name);
+            collectResults(apps, type, runMillis);
         } finally {
-            shutdownApps(apps, name);
+            shutdownApps(apps, nodes, name);
+        }
+
+        checkHistory(history, historyFile, type);
+    }
+
+    private static OperationHistory openHistory(String fileName) {
+        try {
+            return new OperationHistory(fileName);
+        } catch (IOException e) {
+            logger.warning("Historie kann nicht aufgezeichnet werden: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void checkHistory(OperationHistory history, String fileName, DSMType type) {
+        if (history == null) {
+            return;
+        }
+
+        try {
+            history.close();
+            LinearizabilityChecker.Result result = new LinearizabilityChecker().check(fileName);
+
+            DSMLogger.logResult("\n[" + type + "] LINEARISIERBARKEIT (Historie: " + fileName + "):");
+            DSMLogger.logResult("[" + type + "] Geprüfte Operationen: " + result.getOperations()
+                    + " in " + result.getKeys() + " Schlüsseln / " + result.getSegments() + " Segmenten");
+            DSMLogger.logResult("[" + type + "] Nicht linearisierbare Segmente: " + result.getViolationCount()
+                    + (result.getUnknownSegments() > 0 ? " (" + result.getUnknownSegments() + " nicht entscheidbar)" : ""));
+            for (String violation : result.getViolations()) {
+                DSMLogger.logResult("[" + type + "]   " + violation);
+            }
+        } catch (IOException e) {
+            logger.warning("Fehler bei der Linearisierbarkeitsprüfung: " + e.getMessage());
         }
     }
 
@@ -77,12 +124,15 @@ public class DSMSimulation {
         return nodeIds;
     }
 
-    private static List<CounterApp> createApps(String[] nodeIds, DSMType type) {
+    private static List<CounterApp> createApps(String[] nodeIds, DSMType type, OperationHistory history,
+                                               List<AbstractDSM> nodes) {
         List<CounterApp> apps = new ArrayList<>();
 
         for (int i = 0; i < NODE_COUNT; i++) {
             AbstractDSM dsm = createDSM(type, nodeIds[i]);
-            CounterApp app = new CounterApp(nodeIds[i], dsm, nodeIds, ITERATIONS_PER_NODE, type.name());
+            nodes.add(dsm);
+            CounterApp app = new CounterApp(nodeIds[i], dsm, nodeIds, ITERATIONS_PER_NODE, type.name(), history,
+                    WATCH_COUNTERS);
 
             for (String otherNodeId : nodeIds) {
                 if (!otherNodeId.equals(nodeIds[i])) {
@@ -98,12 +148,14 @@ public class DSMSimulation {
     }
 
     private static AbstractDSM createDSM(DSMType type, String nodeId) {
-        return switch (type) {
+        AbstractDSM dsm = switch (type) {
             case AP -> new APDSM(nodeId);
             case CP -> new CPDSM(nodeId);
             case CA -> new CADSM(nodeId);
             default -> throw new IllegalArgumentException("Ungültiger Typ: " + type);
         };
+        dsm.registerMBean();
+        return dsm;
     }
 
     private static void initializeApps(List<CounterApp> apps, String name) throws InterruptedException {
@@ -111,16 +163,22 @@ public class DSMSimulation {
         Thread.sleep(800);
     }
 
-    private static void executeSimulation(List<CounterApp> apps, String name) throws InterruptedException {
+    /**
+     * @return Laufzeit vom Start der ersten App bis alle fertig sind (bzw. bis zum Zeitlimit) in ms
+     */
+    private static long executeSimulation(List<CounterApp> apps, String name) throws InterruptedException {
         logger.warning("Starte " + name);
 
+        long startTime = System.currentTimeMillis();
         for (CounterApp app : apps) {
             app.startApplication();
             Thread.sleep(20);
         }
 
         waitForCompletion(apps, name);
+        long runMillis = System.currentTimeMillis() - startTime;
         Thread.sleep(1500);
+        return runMillis;
     }
 
     private static void waitForCompletion(List<CounterApp> apps, String name) throws InterruptedException {
@@ -145,10 +203,15 @@ public class DSMSimulation {
         }
     }
 
-    private static void collectResults(List<CounterApp> apps, DSMType type) {
+    private static void collectResults(List<CounterApp> apps, DSMType type, long runMillis) {
         int totalReads = 0, totalWrites = 0, totalInconsistencies = 0;
+        DSMMetrics combinedMetrics = new DSMMetrics();
 
         for (CounterApp app : apps) {
+            if (app.getDsm() instanceof AbstractDSM dsm) {
+                combinedMetrics.add(dsm.getMetrics());
+            }
+
             int reads = app.getReadOperations();
             int writes = app.getWriteOperations();
             int inconsistencies = app.getDetectedInconsistencies();
@@ -162,9 +225,31 @@ public class DSMSimulation {
         }
 
         logSummary(type, totalReads, totalWrites, totalInconsistencies);
+        DSMLogger.writeLatencySummary(type.name(), combinedMetrics, runMillis);
+        logReplicaDivergence(apps, type);
         logInterpretation(type, totalInconsistencies);
     }
 
+    /**
+     * Vergleicht die Zähler aller Replikate anhand je eines lokalen Snapshots.
+     * Die Snapshots halten laufende Schreibzugriffe nicht auf.
+     */
+    private static void logReplicaDivergence(List<CounterApp> apps, DSMType type) {
+        Map<String, Set<String>> valuesPerKey = new TreeMap<>();
+        for (CounterApp app : apps) {
+            try (DSMSnapshot snapshot = app.getDsm().snapshot()) {
+                String prefix = "counter_";
+                for (Map.Entry<String, VersionedValue> entry
+                        : snapshot.scan(prefix, ScanIterator.prefixEnd(prefix), Integer.MAX_VALUE).entrySet()) {
+                    valuesPerKey.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).add(entry.getValue().getValue());
+                }
+            }
+        }
+        long divergent = valuesPerKey.values().stream().filter(values -> values.size() > 1).count();
+        DSMLogger.logResult("[" + type + "] Replikat-Divergenz: " + divergent + " von " + valuesPerKey.size()
+                + " Zählern mit unterschiedlichen Werten");
+    }
+
     private static void logSummary(DSMType type, int totalReads, int totalWrites, int totalInconsistencies) {
         DSMLogger.logResult("\n[" + type + "] ZUSAMMENFASSUNG:");
         DSMLogger.logResult("[" + type + "] Gesamtzahl Leseoperationen: " + totalReads);
@@ -200,7 +285,8 @@ public class DSMSimulation {
         }
     }
 
-    private static void shutdownApps(List<CounterApp> apps, String name) throws InterruptedException {
+    private static void shutdownApps(List<CounterApp> apps, List<AbstractDSM> nodes, String name)
+            throws InterruptedException {
         logger.warning("Fahre " + name + " herunter");
         for (CounterApp app : apps) {
             try {
@@ -209,6 +295,9 @@ public class DSMSimulation {
                 logger.warning("Problem beim Beenden: " + e.getMessage());
             }
         }
+        for (AbstractDSM node : nodes) {
+            node.close();
+        }
         logger.warning("=== " + name + " abgeschlossen ===");
         Thread.sleep(500);
     }
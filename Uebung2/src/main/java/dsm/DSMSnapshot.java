@@ -0,0 +1,62 @@
+package main.java.dsm;
+
+import java.util.SortedMap;
+
+/**
+ * Konsistente Sicht auf das lokale Replikat zu einer festen Revision.
+ * Lesen aus dem Snapshot blockiert keine Schreiber; Änderungen nach dem Öffnen sind nicht sichtbar.
+ * Auf Knoten mit Speicherbudget oder TTL fehlen Schlüssel, die währenddessen lokal verdrängt
+ * wurden oder abgelaufen sind.
+ */
+public final class DSMSnapshot implements AutoCloseable {
+
+    private final MultiVersionStore store;
+    private final long revision;
+    private boolean closed;
+
+    DSMSnapshot(MultiVersionStore store, long revision) {
+        this.store = store;
+        this.revision = revision;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return der Wert zum Snapshot oder null, wenn der Schlüssel dort nicht existierte
+     */
+    public String get(String key) {
+        VersionedValue value = getVersioned(key);
+        return value == null ? null : value.getValue();
+    }
+
+    public VersionedValue getVersioned(String key) {
+        checkOpen();
+        return store.get(key, revision);
+    }
+
+    /**
+     * Höchstens {@code limit} Einträge aus [fromKey, toKey) zum Snapshot.
+     *
+     * @param toKey exklusive Obergrenze oder null für offen
+     */
+    public SortedMap<String, VersionedValue> scan(String fromKey, String toKey, int limit) {
+        checkOpen();
+        return store.scan(fromKey, toKey, limit, revision);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            store.closeSnapshot(revision);
+        }
+    }
+
+    private synchronized void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Snapshot ist bereits geschlossen");
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package main.java.dsm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optimistische Transaktion über mehrere Schlüssel.
+ * <p>
+ * Lesezugriffe gehen an den Heimatknoten des Schlüssels und merken sich dessen Revision,
+ * Schreibzugriffe werden bis zum Commit gepuffert. Liegen alle Schlüssel auf einem Heimatknoten,
+ * validiert und schreibt dieser in einer Runde (COMMIT). Sonst läuft ein Zwei-Phasen-Commit:
+ * PREPARE validiert und sperrt pro Heimatknoten in einer gebündelten Nachricht, danach folgt
+ * DECIDE_COMMIT bzw. ABORT. Die Validierung schlägt fehl, wenn sich ein gelesener Schlüssel
+ * seit dem Lesen geändert hat oder von einer anderen Transaktion gesperrt ist. Der Ausgang wird
+ * vor dem Versand festgehalten; Heimatknoten ohne Entscheidung fragen danach (siehe
+ * {@link TransactionParticipant}).
+ * <p>
+ * Nicht threadsicher; eine Instanz gehört zu genau einem Aufrufer.
+ */
+public final class DSMTransaction {
+
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final AbstractDSM dsm;
+    private final String id;
+    private final Map<String, Long> readRevisions = new LinkedHashMap<>();
+    private final Map<String, String> readValues = new HashMap<>();
+    private final Map<String, String> writes = new LinkedHashMap<>();
+    private boolean finished;
+    private boolean failed;
+
+    DSMTransaction(AbstractDSM dsm, String nodeName) {
+        this.dsm = dsm;
+        this.id = nodeName + "-tx" + NEXT_ID.incrementAndGet();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Liest einen Schlüssel; eigene gepufferte Schreibzugriffe und frühere Lesezugriffe
+     * werden wiederverwendet.
+     *
+     * @return der Wert ("" falls unbekannt) oder null, wenn der Heimatknoten nicht antwortet;
+     * die Transaktion kann dann nicht mehr erfolgreich abgeschlossen werden
+     */
+    public String read(String key) {
+        checkOpen();
+        if (writes.containsKey(key)) {
+            return writes.get(key);
+        }
+        if (readValues.containsKey(key)) {
+            return readValues.get(key);
+        }
+        Part part = new Part();
+        part.readKeys.add(key);
+        part.readRevisions.add(0L);
+        String home = dsm.homeNode(key);
+        DSMTransactionMessage response = dsm.callHomes(DSMTransactionMessage.Phase.READ, id, Map.of(home, part),
+                dsm.atomicTimeoutMs()).get(home);
+        if (response == null || !response.isSuccess()) {
+            failed = true;
+            return null;
+        }
+        readRevisions.put(key, response.getRevision());
+        readValues.put(key, response.getValue());
+        return response.getValue();
+    }
+
+    public void write(String key, String value) {
+        checkOpen();
+        if (value == null) {
+            throw new IllegalArgumentException("value darf nicht null sein");
+        }
+        writes.put(key, value);
+    }
+
+    /**
+     * Validiert und schreibt alle gepufferten Änderungen.
+     *
+     * @return true, wenn die Transaktion auf allen beteiligten Heimatknoten angewendet wurde
+     */
+    public boolean commit() {
+        checkOpen();
+        finished = true;
+        if (failed) {
+            return false;
+        }
+        if (readRevisions.isEmpty() && writes.isEmpty()) {
+            return true;
+        }
+
+        long start = System.nanoTime();
+        try {
+            return commitParts(partsByHome());
+        } finally {
+            dsm.metrics.record(DSMMetrics.Operation.TRANSACTION, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Verwirft die Transaktion; vor dem Commit wurde nichts verändert.
+     */
+    public void rollback() {
+        finished = true;
+    }
+
+    private boolean commitParts(Map<String, Part> parts) {
+        // Die Schreibmenge geht pro Heimatknoten in einem Schritt raus, unabhängig von ihrer Größe
+        long timeoutMs = dsm.atomicTimeoutMs();
+        if (parts.size() == 1) {
+            return allSucceeded(parts, dsm.callHomes(DSMTransactionMessage.Phase.COMMIT, id, parts, timeoutMs));
+        }
+
+        // PREPARE schreibt nichts; deutlich unter der Sperrfrist bleiben, damit die Entscheidung
+        // die Heimatknoten normalerweise vor ihrer Nachfrage erreicht
+        long voteTimeoutMs = Math.min(dsm.atomicTimeoutMs(), TransactionParticipant.PREPARE_LEASE_MS / 2);
+        Map<String, DSMTransactionMessage> votes = dsm.callHomes(DSMTransactionMessage.Phase.PREPARE, id, parts,
+                voteTimeoutMs);
+        Map<String, Part> decision = new LinkedHashMap<>();
+        for (String home : parts.keySet()) {
+            decision.put(home, new Part());
+        }
+        if (!dsm.decideTransaction(id, allSucceeded(parts, votes))) {
+            // Auch Knoten ohne Antwort bekommen ABORT, ihre Sperre könnte trotzdem bestehen
+            dsm.callHomes(DSMTransactionMessage.Phase.ABORT, id, decision, dsm.atomicTimeoutMs());
+            return false;
+        }
+        return allSucceeded(parts, dsm.callHomes(DSMTransactionMessage.Phase.DECIDE_COMMIT, id, decision, timeoutMs));
+    }
+
+    private static boolean allSucceeded(Map<String, Part> parts, Map<String, DSMTransactionMessage> responses) {
+        for (String home : parts.keySet()) {
+            DSMTransactionMessage response = responses.get(home);
+            if (response == null || !response.isSuccess()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, Part> partsByHome() {
+        Map<String, Part> parts = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> read : readRevisions.entrySet()) {
+            Part part = parts.computeIfAbsent(dsm.homeNode(read.getKey()), home -> new Part());
+            part.readKeys.add(read.getKey());
+            part.readRevisions.add(read.getValue());
+        }
+        for (Map.Entry<String, String> write : writes.entrySet()) {
+            Part part = parts.computeIfAbsent(dsm.homeNode(write.getKey()), home -> new Part());
+            part.writeKeys.add(write.getKey());
+            part.writeValues.add(write.getValue());
+        }
+        return parts;
+    }
+
+    private void checkOpen() {
+        if (finished) {
+            throw new IllegalStateException("Transaktion " + id + " ist bereits abgeschlossen");
+        }
+    }
+
+    /**
+     * Anteil der Transaktion, der auf einen Heimatknoten entfällt.
+     */
+    static final class Part {
+        final List<String> readKeys = new ArrayList<>();
+        final List<Long> readRevisions = new ArrayList<>();
+        final List<String> writeKeys = new ArrayList<>();
+        final List<String> writeValues = new ArrayList<>();
+
+        DSMTransactionMessage toRequest(long requestId, DSMTransactionMessage.Phase phase, String transactionId,
+                                        String senderId) {
+            long[] revisions = new long[readRevisions.size()];
+            for (int i = 0; i < revisions.length; i++) {
+                revisions[i] = readRevisions.get(i);
+            }
+            return new DSMTransactionMessage(requestId, phase, transactionId, readKeys.toArray(new String[0]),
+                    revisions, writeKeys.toArray(new String[0]), writeValues.toArray(new String[0]), senderId);
+        }
+    }
+}
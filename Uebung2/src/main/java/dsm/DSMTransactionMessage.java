@@ -0,0 +1,155 @@
+package main.java.dsm;
+
+import org.oxoo2a.sim4da.Message;
+
+/**
+ * Nachricht des Transaktionsprotokolls zwischen Koordinator und Heimatknoten.
+ * Lesemenge (Schlüssel + gelesene Revision) und Schreibmenge werden als parallele Arrays
+ * übertragen, damit Validierung und Commit pro Heimatknoten in einer Nachricht liegen.
+ */
+public class DSMTransactionMessage extends DSMMessage {
+
+    public enum Phase {
+        /** Wert und Revision eines Schlüssels lesen. */
+        READ,
+        /** Validieren und sofort anwenden (alle Schlüssel auf einem Heimatknoten). */
+        COMMIT,
+        /** Validieren und Schlüssel sperren (erste Phase von 2PC). */
+        PREPARE,
+        /** Vorbereitete Transaktion anwenden. */
+        DECIDE_COMMIT,
+        /** Vorbereitete Transaktion verwerfen. */
+        ABORT,
+        /** Teilnehmer fragt den Koordinator nach dem Ausgang (Frist abgelaufen). */
+        OUTCOME,
+        /** Heimatknoten verteilt die angewendete Schreibmenge mit einer Version an die Replikate. */
+        REPLICATE
+    }
+
+    private static final String[] NONE = new String[0];
+    private static final long[] NO_REVISIONS = new long[0];
+
+    private final long requestId;
+    private final Phase phase;
+    private final String transactionId;
+    private final String[] readKeys;
+    private final long[] readRevisions;
+    private final String[] writeKeys;
+    private final String[] writeValues;
+    private final boolean success;
+
+    /**
+     * Anfrage.
+     */
+    public DSMTransactionMessage(long requestId, Phase phase, String transactionId, String[] readKeys,
+                                 long[] readRevisions, String[] writeKeys, String[] writeValues, String senderId) {
+        super(Type.TX_REQUEST, transactionId, null, senderId, 0);
+        this.requestId = requestId;
+        this.phase = phase;
+        this.transactionId = transactionId;
+        this.readKeys = readKeys;
+        this.readRevisions = readRevisions;
+        this.writeKeys = writeKeys;
+        this.writeValues = writeValues;
+        this.success = false;
+    }
+
+    /**
+     * Schreibmenge einer angewendeten Transaktion für ein Replikat; das Zeitstempelfeld trägt die
+     * gemeinsame Version aller Werte.
+     */
+    static DSMTransactionMessage replicate(long requestId, String transactionId, String[] writeKeys,
+                                           String[] writeValues, long version, String senderId) {
+        return new DSMTransactionMessage(Type.TX_REQUEST, null, senderId, version, requestId, Phase.REPLICATE,
+                transactionId, NONE, NO_REVISIONS, writeKeys, writeValues, false);
+    }
+
+    /**
+     * Antwort; bei READ tragen Wert und Zeitstempelfeld den gelesenen Wert und dessen Revision.
+     */
+    public DSMTransactionMessage(DSMTransactionMessage request, boolean success, String value, long revision,
+                                 String senderId) {
+        super(Type.TX_RESPONSE, request.transactionId, value, senderId, revision);
+        this.requestId = request.requestId;
+        this.phase = request.phase;
+        this.transactionId = request.transactionId;
+        this.readKeys = NONE;
+        this.readRevisions = NO_REVISIONS;
+        this.writeKeys = NONE;
+        this.writeValues = NONE;
+        this.success = success;
+    }
+
+    /**
+     * Aus dem Binärformat von {@link DSMCodec} wiederhergestellt.
+     */
+    DSMTransactionMessage(Type type, String value, String senderId, long timestamp, long requestId, Phase phase,
+                          String transactionId, String[] readKeys, long[] readRevisions, String[] writeKeys,
+                          String[] writeValues, boolean success) {
+        super(type, transactionId, value, senderId, timestamp);
+        this.requestId = requestId;
+        this.phase = phase;
+        this.transactionId = transactionId;
+        this.readKeys = readKeys;
+        this.readRevisions = readRevisions;
+        this.writeKeys = writeKeys;
+        this.writeValues = writeValues;
+        this.success = success;
+    }
+
+    protected DSMTransactionMessage(DSMTransactionMessage original) {
+        super(original);
+        this.requestId = original.requestId;
+        this.phase = original.phase;
+        this.transactionId = original.transactionId;
+        this.readKeys = original.readKeys.clone();
+        this.readRevisions = original.readRevisions.clone();
+        this.writeKeys = original.writeKeys.clone();
+        this.writeValues = original.writeValues.clone();
+        this.success = original.success;
+    }
+
+    @Override
+    public Message copy() {
+        return new DSMTransactionMessage(this);
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String[] getReadKeys() {
+        return readKeys;
+    }
+
+    public long[] getReadRevisions() {
+        return readRevisions;
+    }
+
+    public String[] getWriteKeys() {
+        return writeKeys;
+    }
+
+    public String[] getWriteValues() {
+        return writeValues;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Gelesene Revision in einer READ-Antwort.
+     */
+    public long getRevision() {
+        return getTimestamp();
+    }
+}
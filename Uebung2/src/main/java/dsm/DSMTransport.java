@@ -0,0 +1,28 @@
+package main.java.dsm;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Alternativer Nachrichtentransport für DSM-Knoten. Ohne Transport verschicken die Knoten
+ * ihre Nachrichten über sim4da innerhalb der JVM.
+ */
+public interface DSMTransport extends AutoCloseable {
+
+    /**
+     * Startet den Transport für einen Knoten.
+     *
+     * @param handler erhält eingehende Nachrichten, nacheinander auf einem Thread des Transports
+     */
+    void start(String nodeName, Consumer<DSMMessage> handler) throws IOException;
+
+    /**
+     * Verschickt eine Nachricht, ohne auf die Zustellung zu warten.
+     *
+     * @return false, wenn der Empfänger unbekannt ist
+     */
+    boolean send(DSMMessage message, String nodeId);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,88 @@
+package main.java.dsm;
+
+import org.oxoo2a.sim4da.Message;
+
+/**
+ * Replizierter Schreibzugriff mit kodiertem Wert (komprimiert und/oder als Delta).
+ * <p>
+ * Der Wert steht nicht im Klartext in der Nachricht, {@link #getValue()} liefert null; der
+ * Empfänger dekodiert ihn mit {@link WriteEncoder#decode}. Ein Delta beschreibt den neuen Wert
+ * als gemeinsamen Anfang und gemeinsames Ende mit einem Basiswert plus dem geänderten
+ * Mittelstück. Der Basiswert wird über Länge und CRC32C seiner UTF-8-Bytes geprüft; passt er beim Empfänger nicht,
+ * fordert dieser den vollständigen Wert an.
+ */
+public class DSMWriteMessage extends DSMMessage {
+
+    public enum Encoding {
+        /** Ganzer Wert, Deflate-komprimiert. */
+        DEFLATE,
+        /** Mittelstück unkomprimiert. */
+        DELTA,
+        /** Mittelstück Deflate-komprimiert. */
+        DELTA_DEFLATE
+    }
+
+    private final Encoding encoding;
+    private final byte[] payload;
+    private final int prefixLength;
+    private final int suffixLength;
+    private final int baseLength;
+    private final int baseChecksum;
+
+    /**
+     * @param version Version bzw. Zeitstempel des Werts (wie bei einem unkodierten WRITE)
+     */
+    public DSMWriteMessage(String key, String senderId, long version, Encoding encoding, byte[] payload,
+                           int prefixLength, int suffixLength, int baseLength, int baseChecksum) {
+        super(Type.WRITE, key, null, senderId, version);
+        this.encoding = encoding;
+        this.payload = payload;
+        this.prefixLength = prefixLength;
+        this.suffixLength = suffixLength;
+        this.baseLength = baseLength;
+        this.baseChecksum = baseChecksum;
+    }
+
+    protected DSMWriteMessage(DSMWriteMessage original) {
+        super(original);
+        this.encoding = original.encoding;
+        this.payload = original.payload.clone();
+        this.prefixLength = original.prefixLength;
+        this.suffixLength = original.suffixLength;
+        this.baseLength = original.baseLength;
+        this.baseChecksum = original.baseChecksum;
+    }
+
+    @Override
+    public Message copy() {
+        return new DSMWriteMessage(this);
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    public boolean isDelta() {
+        return encoding != Encoding.DEFLATE;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+
+    public int getSuffixLength() {
+        return suffixLength;
+    }
+
+    public int getBaseLength() {
+        return baseLength;
+    }
+
+    public int getBaseChecksum() {
+        return baseChecksum;
+    }
+}
@@ -1,9 +1,76 @@
 package main.java.dsm;
 
+import java.util.SortedMap;
+
 /**
  * Einfaches Key-Value-Interface für die drei CAP-Varianten.
  */
 public interface DistributedSharedMemory {
     void write(String key, String value);
     String read(String key);
+
+    /**
+     * Setzt den Wert atomar, wenn der aktuelle Wert {@code expected} entspricht.
+     * Ausgeführt auf dem Heimatknoten des Schlüssels, ein Round-Trip.
+     *
+     * @param expected erwarteter Wert, null oder "" für nicht vorhanden
+     * @return true, wenn der Wert gesetzt und nach den Regeln der Variante repliziert wurde
+     */
+    boolean compareAndSet(String key, String expected, String newValue);
+
+    /**
+     * Addiert atomar auf den numerischen Wert des Schlüssels (nicht vorhanden zählt als 0).
+     *
+     * @return der neue Wert oder null, wenn die Operation nicht ausgeführt werden konnte
+     */
+    Long addAndGet(String key, long delta);
+
+    /**
+     * Öffnet einen konsistenten Snapshot des lokalen Replikats. Lesen daraus blockiert keine
+     * Schreiber; der Snapshot muss geschlossen werden.
+     */
+    DSMSnapshot snapshot();
+
+    /**
+     * Beginnt eine optimistische Transaktion über mehrere Schlüssel.
+     */
+    DSMTransaction beginTransaction();
+
+    /**
+     * Liest höchstens {@code limit} Einträge aus [fromKey, toKey) in Schlüsselreihenfolge.
+     *
+     * @param toKey exklusive Obergrenze oder null für offen
+     * @return die Einträge oder null, wenn nicht genügend Replikate geantwortet haben
+     */
+    SortedMap<String, String> scan(String fromKey, String toKey, int limit);
+
+    default SortedMap<String, String> scanPrefix(String prefix, int limit) {
+        return scan(prefix, ScanIterator.prefixEnd(prefix), limit);
+    }
+
+    /**
+     * Liest alle Schlüssel mit dem Präfix als Strom von Seiten zu je {@code pageSize} Einträgen.
+     */
+    default ScanIterator scanAll(String prefix, int pageSize) {
+        return new ScanIterator(this, prefix, ScanIterator.prefixEnd(prefix), pageSize);
+    }
+
+    /**
+     * Beobachtet Änderungen am lokalen Replikat. Da alle Varianten Schreibzugriffe an alle
+     * Knoten verteilen, kommt eine Änderung nach einem Hop beim Beobachter an. Reicht das
+     * Änderungsprotokoll nicht bis {@code fromRevision} zurück, kommt zuerst ein Ereignis mit
+     * {@link ChangeEvent#isReset()} und danach der vollständige aktuelle Stand.
+     *
+     * @param prefix       true: alle Schlüssel mit diesem Präfix, false: genau dieser Schlüssel
+     * @param fromRevision zuletzt gesehene Revision zum Wiederaufsetzen, negativ für nur künftige Änderungen
+     */
+    Watch watch(String keyOrPrefix, boolean prefix, long fromRevision, ChangeListener listener);
+
+    default Watch watch(String key, ChangeListener listener) {
+        return watch(key, false, -1, listener);
+    }
+
+    default Watch watchPrefix(String prefix, ChangeListener listener) {
+        return watch(prefix, true, -1, listener);
+    }
 }
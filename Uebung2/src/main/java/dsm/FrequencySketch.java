@@ -0,0 +1,88 @@
+package main.java.dsm;
+
+/**
+ * Count-Min-Sketch mit 4-Bit-Zählern zur Schätzung, wie oft ein Schlüssel zuletzt gebraucht wurde.
+ * <p>
+ * Jeder Schlüssel belegt vier Zähler in unterschiedlichen Zeilen; die Schätzung ist deren
+ * Minimum. Nach {@code 10 * Breite} Erhöhungen werden alle Zähler halbiert, sodass alte
+ * Zugriffe an Gewicht verlieren. Nicht threadsicher, der Aufrufer synchronisiert.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+    // 2^26 Zähler pro Zeile (128 MiB); darüber wird die Schätzung nicht genauer, aber teuer
+    private static final int MAX_WIDTH = 1 << 26;
+
+    // 16 Zähler à 4 Bit pro long
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedKeys ungefähre Zahl gleichzeitig gehaltener Schlüssel, Breite höchstens {@link #MAX_WIDTH}
+     */
+    FrequencySketch(int expectedKeys) {
+        // vor dem Verdoppeln begrenzen, sonst läuft highestOneBit(...) << 1 ab 2^30 über
+        int width = Integer.highestOneBit(Math.min(MAX_WIDTH / 2, Math.max(16, expectedKeys - 1))) << 1;
+        this.table = new long[width / 16 * DEPTH];
+        this.mask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    void increment(String key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            added |= incrementAt(row, indexOf(hash, row));
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(String key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counterAt(row, indexOf(hash, row)));
+        }
+        return frequency;
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private boolean incrementAt(int row, int index) {
+        int slot = row * (table.length / DEPTH) + (index >>> 4);
+        int shift = (index & 15) << 2;
+        if (((table[slot] >>> shift) & 0xF) == MAX_COUNT) {
+            return false;
+        }
+        table[slot] += 1L << shift;
+        return true;
+    }
+
+    private int counterAt(int row, int index) {
+        int slot = row * (table.length / DEPTH) + (index >>> 4);
+        return (int) ((table[slot] >>> ((index & 15) << 2)) & 0xF);
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,142 @@
+package main.java.dsm;
+
+import java.util.Arrays;
+
+/**
+ * Unveränderlicher Eintrag eines Schlüssels im lokalen Replikat: Wert, Version, Löschmarke,
+ * Revision der letzten Änderung im {@link ChangeFeed}, optionaler Ablaufzeitpunkt und eine
+ * begrenzte Historie früherer Werte (neuester zuerst).
+ * <p>
+ * Ein Eintrag ersetzt die früher parallel geführten Tabellen für Werte, Versionen bzw.
+ * Zeitstempel und alte Werte. Änderungen erzeugen einen neuen Eintrag und werden unter der
+ * Sperre des Schlüssels eingesetzt, sodass alle Felder eines Schlüssels gemeinsam und atomar
+ * wechseln. Die Historie wird nur angelegt, wenn die Variante eine verlangt.
+ */
+public final class KeyEntry {
+
+    private static final String[] NO_HISTORY = new String[0];
+
+    private final String value;
+    private final long version;
+    private final long revision;
+    private final boolean tombstone;
+    private final long expiresAt;
+    private final String[] history;
+
+    private KeyEntry(String value, long version, long revision, boolean tombstone, long expiresAt, String[] history) {
+        this.value = value;
+        this.version = version;
+        this.revision = revision;
+        this.tombstone = tombstone;
+        this.expiresAt = expiresAt;
+        this.history = history;
+    }
+
+    public static KeyEntry of(String value, long version) {
+        return new KeyEntry(value, version, 0, false, 0, NO_HISTORY);
+    }
+
+    /**
+     * Nachfolger des Eintrags mit neuem Wert. Der bisherige Wert wandert in die Historie,
+     * sofern er sich unterscheidet und {@code historyLimit} größer 0 ist.
+     *
+     * @param current   bisheriger Eintrag oder null
+     * @param revision  Revision der Änderung im ChangeFeed
+     * @param expiresAt Ablaufzeitpunkt in Millisekunden, 0 für unbegrenzt
+     */
+    public static KeyEntry update(KeyEntry current, String value, long version, long revision, int historyLimit,
+                                  long expiresAt) {
+        return new KeyEntry(value, version, revision, false, expiresAt, pushHistory(current, value, historyLimit));
+    }
+
+    /**
+     * Nachfolger des Eintrags als Löschmarke; der letzte Wert bleibt in der Historie.
+     */
+    public static KeyEntry delete(KeyEntry current, long version, long revision, int historyLimit) {
+        return new KeyEntry(null, version, revision, true, 0, pushHistory(current, null, historyLimit));
+    }
+
+    /**
+     * Derselbe Eintrag mit neuem Ablaufzeitpunkt (0 für unbegrenzt).
+     */
+    public KeyEntry withExpiry(long expiresAt) {
+        return new KeyEntry(value, version, revision, tombstone, expiresAt, history);
+    }
+
+    private static String[] pushHistory(KeyEntry current, String value, int historyLimit) {
+        if (current == null || historyLimit <= 0) {
+            return NO_HISTORY;
+        }
+        if (current.tombstone || current.value.equals(value)) {
+            return current.history.length <= historyLimit ? current.history
+                    : Arrays.copyOf(current.history, historyLimit);
+        }
+        int size = Math.min(current.history.length + 1, historyLimit);
+        String[] history = new String[size];
+        history[0] = current.value;
+        System.arraycopy(current.history, 0, history, 1, size - 1);
+        return history;
+    }
+
+    /**
+     * Last-Writer-Wins wie bei {@link VersionedValue#isNewerThan}: höhere Version gewinnt, bei
+     * gleicher Version der größere Wert. Eine Löschmarke verliert bei gleicher Version.
+     */
+    public boolean isSupersededBy(String candidateValue, long candidateVersion) {
+        if (candidateVersion != version) {
+            return candidateVersion > version;
+        }
+        return tombstone || candidateValue.compareTo(value) > 0;
+    }
+
+    /**
+     * @return der Wert oder null bei einer Löschmarke
+     */
+    public String getValue() {
+        return value;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Revision der letzten Änderung im ChangeFeed dieses Knotens, 0 für Einträge außerhalb davon.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    public boolean isTombstone() {
+        return tombstone;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(long nowMs) {
+        return expiresAt != 0 && nowMs >= expiresAt;
+    }
+
+    /**
+     * Früherer Wert, 0 ist der zuletzt überschriebene.
+     *
+     * @return der Wert oder null, wenn die Historie nicht so weit reicht
+     */
+    public String getPreviousValue(int index) {
+        return index < history.length ? history[index] : null;
+    }
+
+    /**
+     * @return Wert und Version oder null bei einer Löschmarke
+     */
+    public VersionedValue toVersionedValue() {
+        return tombstone ? null : new VersionedValue(value, version);
+    }
+
+    @Override
+    public String toString() {
+        return (tombstone ? "<gelöscht>" : value) + "@" + version;
+    }
+}
@@ -0,0 +1,276 @@
+package main.java.dsm;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Mehrversionen-Speicher eines Knotens für konsistente Snapshot-Lesezugriffe.
+ * <p>
+ * Der aktuelle Stand steht nur im lokalen Replikat: jeder {@link KeyEntry} trägt die Revision
+ * seiner letzten Änderung. Ältere Versionen werden nur aufbewahrt, solange ein Snapshot offen
+ * ist; wer dann einen Eintrag ersetzt, legt den bisherigen unter der Sperre des Schlüssels als
+ * Vorgänger ab ({@link #retain}). Lesen zu einer Snapshot-Revision nimmt den Eintrag, wenn er
+ * nicht jünger als der Snapshot ist, sonst den neuesten passenden Vorgänger; beides ohne
+ * Sperren. Ohne offene Snapshots kostet ein Schreibzugriff damit nichts zusätzlich.
+ * Vorgänger zählen zum Speicherbudget ihres Schlüssels ({@link #retainedBytes}) und gehen mit
+ * ihm, wenn er verdrängt wird ({@link #discard}). Ein Hintergrund-Thread besucht nur Schlüssel
+ * mit Vorgängern, schneidet ab, was kein offener Snapshot mehr sehen kann, und meldet die
+ * geschrumpften Schlüssel zurück.
+ */
+public class MultiVersionStore {
+
+    private static final long GC_INTERVAL_MS = 100;
+    private static final ScheduledExecutorService GC = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DSM-VersionGC");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final NavigableMap<String, KeyEntry> localStore;
+    private final Function<String, Object> keyLock;
+    private final Consumer<String> onShrink;
+    // nur Schlüssel, die seit dem Öffnen eines Snapshots ersetzt wurden
+    private final ConcurrentSkipListMap<String, Version> predecessors = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Long, Integer> openSnapshots = new TreeMap<>();
+    private final LongAdder collectedVersions = new LongAdder();
+    private final ScheduledFuture<?> gcTask;
+    private volatile int openCount;
+
+    /**
+     * @param keyLock  liefert die Sperre, unter der ein Schlüssel im Replikat geändert wird
+     * @param onShrink wird unter dieser Sperre aufgerufen, wenn die Speicherbereinigung Vorgänger
+     *                 eines Schlüssels entfernt hat
+     */
+    public MultiVersionStore(NavigableMap<String, KeyEntry> localStore, Function<String, Object> keyLock,
+                             Consumer<String> onShrink) {
+        this.localStore = localStore;
+        this.keyLock = keyLock;
+        this.onShrink = onShrink;
+        gcTask = GC.scheduleWithFixedDelay(this::collectGarbage, GC_INTERVAL_MS, GC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Meldet die Speicherbereinigung ab; ohne diesen Aufruf hält der gemeinsame GC-Thread
+     * den Speicher für immer erreichbar.
+     */
+    public void close() {
+        gcTask.cancel(false);
+    }
+
+    /**
+     * Bewahrt den bisherigen Eintrag für offene Snapshots auf, bevor er ersetzt oder entfernt
+     * wird. Nur unter der Sperre des Schlüssels aufzurufen.
+     *
+     * @param previous     bisheriger Eintrag oder null
+     * @param supersededAt Revision des Nachfolgers
+     */
+    void retain(String key, KeyEntry previous, long supersededAt) {
+        if (openCount == 0) {
+            // Vorgänger aus einem Rennen mit dem Schließen des letzten Snapshots gleich mit entfernen
+            if (!predecessors.isEmpty()) {
+                predecessors.remove(key);
+            }
+            return;
+        }
+        if (previous != null) {
+            predecessors.compute(key, (k, older) -> new Version(previous.getRevision(),
+                    previous.isTombstone() ? null : previous.getValue(), previous.getVersion(), supersededAt, older));
+        }
+    }
+
+    /**
+     * Verwirft alle Vorgänger eines Schlüssels, der lokal verdrängt wird oder abläuft; offene
+     * Snapshots sehen ihn danach nicht mehr. Nur unter der Sperre des Schlüssels aufzurufen.
+     */
+    void discard(String key) {
+        if (!predecessors.isEmpty()) {
+            Version head = predecessors.remove(key);
+            if (head != null) {
+                count(head);
+            }
+        }
+    }
+
+    /**
+     * Geschätzter Speicherbedarf der Vorgänger eines Schlüssels, 0 ohne offene Snapshots.
+     */
+    long retainedBytes(String key) {
+        if (predecessors.isEmpty()) {
+            return 0;
+        }
+        Version head = predecessors.get(key);
+        if (head == null) {
+            return 0;
+        }
+        long bytes = 64 + 2L * key.length();
+        for (Version v = head; v != null; v = v.older) {
+            bytes += 56 + (v.value == null ? 0 : 48 + 2L * v.value.length());
+        }
+        return bytes;
+    }
+
+    /**
+     * Öffnet einen Snapshot auf der angegebenen Revision. Der Aufrufer garantiert, dass alle
+     * Änderungen bis dahin im Replikat stehen und keine weitere dazwischenkommt (alle
+     * Schlüsselsperren gehalten). Muss geschlossen werden, sonst hält er die Speicherbereinigung auf.
+     */
+    synchronized DSMSnapshot openSnapshot(long revision) {
+        openSnapshots.merge(revision, 1, Integer::sum);
+        openCount++;
+        return new DSMSnapshot(this, revision);
+    }
+
+    synchronized void closeSnapshot(long revision) {
+        Integer count = openSnapshots.get(revision);
+        if (count == null) {
+            return;
+        }
+        if (count == 1) {
+            openSnapshots.remove(revision);
+        } else {
+            openSnapshots.put(revision, count - 1);
+        }
+        openCount--;
+    }
+
+    /**
+     * Version eines Schlüssels zum Snapshot oder null, wenn er dort nicht existierte.
+     */
+    VersionedValue get(String key, long snapshotRevision) {
+        return visible(key, localStore.get(key), snapshotRevision);
+    }
+
+    /**
+     * Höchstens {@code limit} Einträge aus [fromKey, toKey) zum Snapshot.
+     */
+    SortedMap<String, VersionedValue> scan(String fromKey, String toKey, int limit, long snapshotRevision) {
+        NavigableMap<String, KeyEntry> range = toKey == null
+                ? localStore.tailMap(fromKey, true)
+                : localStore.subMap(fromKey, true, toKey, false);
+        SortedMap<String, VersionedValue> result = new TreeMap<>();
+        for (Map.Entry<String, KeyEntry> entry : range.entrySet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            VersionedValue value = visible(entry.getKey(), entry.getValue(), snapshotRevision);
+            if (value != null) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    public int getOpenSnapshots() {
+        return openCount;
+    }
+
+    /**
+     * Anzahl aktuell aufbewahrter Vorgänger über alle Schlüssel.
+     */
+    public int getRetainedVersions() {
+        int count = 0;
+        for (Version head : predecessors.values()) {
+            for (Version v = head; v != null; v = v.older) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getCollectedVersions() {
+        return collectedVersions.sum();
+    }
+
+    /**
+     * Besucht nur Schlüssel mit Vorgängern: ohne offene Snapshots fallen sie ganz weg, sonst alle
+     * unterhalb des ältesten noch sichtbaren. Ist schon der Eintrag selbst für jeden offenen
+     * Snapshot sichtbar, braucht der Schlüssel keine Vorgänger mehr.
+     */
+    void collectGarbage() {
+        if (predecessors.isEmpty()) {
+            return;
+        }
+        for (String key : predecessors.keySet()) {
+            synchronized (keyLock.apply(key)) {
+                Version head = predecessors.get(key);
+                if (head == null) {
+                    continue;
+                }
+                long watermark = oldestSnapshot();
+                KeyEntry entry = localStore.get(key);
+                if (watermark < 0 || entry != null && entry.getRevision() <= watermark) {
+                    predecessors.remove(key);
+                    count(head);
+                    onShrink.accept(key);
+                    continue;
+                }
+                Version oldestNeeded = head;
+                while (oldestNeeded != null && oldestNeeded.revision > watermark) {
+                    oldestNeeded = oldestNeeded.older;
+                }
+                if (oldestNeeded != null && oldestNeeded.older != null) {
+                    count(oldestNeeded.older);
+                    oldestNeeded.older = null;
+                    onShrink.accept(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Revision des ältesten offenen Snapshots oder -1, wenn keiner offen ist
+     */
+    private synchronized long oldestSnapshot() {
+        return openSnapshots.isEmpty() ? -1 : openSnapshots.firstKey();
+    }
+
+    private void count(Version first) {
+        for (Version v = first; v != null; v = v.older) {
+            collectedVersions.increment();
+        }
+    }
+
+    /**
+     * Der Eintrag gilt, wenn er nicht jünger als der Snapshot ist. Sonst der neueste Vorgänger
+     * bis zur Snapshot-Revision, sofern sein Nachfolger erst danach kam; fehlt ein solcher, war
+     * der Schlüssel lokal nicht vorhanden.
+     */
+    private VersionedValue visible(String key, KeyEntry entry, long snapshotRevision) {
+        if (entry != null && entry.getRevision() <= snapshotRevision) {
+            return entry.toVersionedValue();
+        }
+        for (Version version = predecessors.get(key); version != null; version = version.older) {
+            if (version.revision <= snapshotRevision) {
+                return version.value == null || version.supersededAt <= snapshotRevision ? null
+                        : new VersionedValue(version.value, version.dataVersion);
+            }
+        }
+        return null;
+    }
+
+    private static final class Version {
+        final long revision;
+        final String value;
+        final long dataVersion;
+        final long supersededAt;
+        volatile Version older;
+
+        Version(long revision, String value, long dataVersion, long supersededAt, Version older) {
+            this.revision = revision;
+            this.value = value;
+            this.dataVersion = dataVersion;
+            this.supersededAt = supersededAt;
+            this.older = older;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package main.java.dsm;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * TCP-Transport auf nicht blockierenden NIO-Kanälen, z.B. für Knoten in getrennten Prozessen
+ * auf localhost.
+ * <p>
+ * Ein Selector-Thread nimmt Verbindungen an, liest Rahmen im {@link DSMCodec}-Format und
+ * schreibt die Warteschlangen der ausgehenden Verbindungen. Pro Zielknoten gibt es eine
+ * ausgehende Verbindung, die beim ersten Senden aufgebaut wird; Sender kodieren selbst und
+ * reihen nur ein, der Selector wird lediglich geweckt, wenn die Warteschlange bisher leer war.
+ * Schlägt eine Verbindung fehl, gehen ihre Nachrichten verloren (wie bei einem Netzwerkfehler)
+ * und die nächste Nachricht baut sie neu auf. Eingehende Nachrichten werden auf einem eigenen
+ * Thread in Empfangsreihenfolge zugestellt, damit langsame Empfänger den Selector nicht aufhalten.
+ */
+public class NioTransport implements DSMTransport {
+
+    private static final Logger logger = Logger.getLogger(NioTransport.class.getName());
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_GATHER = 64;
+
+    private final Map<String, InetSocketAddress> addresses;
+    private final Map<String, Connection> outgoing = new ConcurrentHashMap<>();
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private volatile boolean running;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private ExecutorService dispatcher;
+    private Consumer<DSMMessage> handler;
+
+    /**
+     * @param addresses Adressen aller Knoten einschließlich des eigenen
+     */
+    public NioTransport(Map<String, InetSocketAddress> addresses) {
+        this.addresses = Map.copyOf(addresses);
+    }
+
+    @Override
+    public synchronized void start(String nodeName, Consumer<DSMMessage> handler) throws IOException {
+        if (running) {
+            throw new IllegalStateException("Transport läuft bereits");
+        }
+        InetSocketAddress own = addresses.get(nodeName);
+        if (own == null) {
+            throw new IllegalArgumentException("Keine Adresse für " + nodeName);
+        }
+        this.handler = handler;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(own);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DSM-NIO-Dispatch-" + nodeName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        Thread selectorThread = new Thread(this::runSelector, "DSM-NIO-" + nodeName);
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        logger.info("NIO-Transport für " + nodeName + " lauscht auf " + own);
+    }
+
+    @Override
+    public boolean send(DSMMessage message, String nodeId) {
+        InetSocketAddress address = addresses.get(nodeId);
+        if (address == null || !running) {
+            return false;
+        }
+        ByteBuffer frame = DSMCodec.encode(message);
+        Connection connection = outgoing.computeIfAbsent(nodeId, id -> new Connection(id, address));
+        connection.outbound.add(frame);
+        if (connection.writeScheduled.compareAndSet(false, true)) {
+            pendingWrites.add(connection);
+            selector.wakeup();
+        }
+        return true;
+    }
+
+    /**
+     * Wartet, bis alle angegebenen Knoten Verbindungen annehmen (z.B. beim Start eines Clusters).
+     *
+     * @return true, wenn alle rechtzeitig erreichbar waren
+     */
+    public boolean awaitReachable(Collection<String> nodeIds, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<String> missing = new ArrayList<>(nodeIds);
+        while (!missing.isEmpty()) {
+            missing.removeIf(nodeId -> {
+                try (SocketChannel probe = SocketChannel.open(addresses.get(nodeId))) {
+                    return probe.isConnected();
+                } catch (IOException e) {
+                    return false;
+                }
+            });
+            if (missing.isEmpty()) {
+                break;
+            }
+            if (System.nanoTime() > deadline) {
+                logger.warning("Nicht erreichbar: " + missing);
+                return false;
+            }
+            Thread.sleep(100);
+        }
+        return true;
+    }
+
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    public long getFramesReceived() {
+        return framesReceived.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            selector.close();
+            server.close();
+        } catch (IOException e) {
+            logger.warning("Fehler beim Schließen: " + e.getMessage());
+        }
+        for (Connection connection : outgoing.values()) {
+            connection.close();
+        }
+        dispatcher.shutdownNow();
+    }
+
+    private void runSelector() {
+        try {
+            while (running) {
+                selector.select();
+                Connection connection;
+                while ((connection = pendingWrites.poll()) != null) {
+                    scheduleWrite(connection);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handleKey(key);
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // close() während select
+        } catch (IOException e) {
+            logger.severe("NIO-Selector beendet: " + e.getMessage());
+        }
+    }
+
+    private void handleKey(SelectionKey key) {
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept();
+            } else if (key.isConnectable()) {
+                connection.channel.finishConnect();
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else {
+                if (key.isReadable()) {
+                    read(connection);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    write(connection, key);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warning("Verbindung " + (connection == null || connection.peer == null ? "eingehend" : connection.peer)
+                    + " fehlgeschlagen: " + e.getMessage());
+            if (connection != null) {
+                fail(connection);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection inbound = new Connection(null, null);
+        inbound.channel = channel;
+        inbound.readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        channel.register(selector, SelectionKey.OP_READ, inbound);
+    }
+
+    private void scheduleWrite(Connection connection) {
+        try {
+            if (connection.channel == null) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connection.channel = channel;
+                if (channel.connect(connection.address)) {
+                    channel.register(selector, SelectionKey.OP_WRITE, connection);
+                } else {
+                    channel.register(selector, SelectionKey.OP_CONNECT, connection);
+                }
+            } else {
+                SelectionKey key = connection.channel.keyFor(selector);
+                if (key != null && key.isValid() && (key.interestOps() & SelectionKey.OP_CONNECT) == 0) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Verbindung zu " + connection.peer + " fehlgeschlagen: " + e.getMessage());
+            fail(connection);
+        }
+    }
+
+    private void write(Connection connection, SelectionKey key) throws IOException {
+        ByteBuffer[] batch = connection.batch;
+        while (true) {
+            int count = 0;
+            for (ByteBuffer frame : connection.outbound) {
+                if (count == MAX_GATHER) {
+                    break;
+                }
+                batch[count++] = frame;
+            }
+            if (count == 0) {
+                key.interestOps(0);
+                connection.writeScheduled.set(false);
+                // Sender, die zwischen Leerlauf und Zurücksetzen eingereiht haben, nicht verlieren
+                if (!connection.outbound.isEmpty() && connection.writeScheduled.compareAndSet(false, true)) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                }
+                return;
+            }
+            long written = connection.channel.write(batch, 0, count);
+            bytesSent.add(written);
+            for (int i = 0; i < count; i++) {
+                if (batch[i].hasRemaining()) {
+                    // Socket-Puffer voll: auf das nächste OP_WRITE warten
+                    return;
+                }
+                connection.outbound.poll();
+                batch[i] = null;
+                framesSent.increment();
+            }
+        }
+    }
+
+    private void read(Connection connection) throws IOException {
+        int read = connection.channel.read(connection.readBuffer);
+        if (read < 0) {
+            connection.close();
+            return;
+        }
+        bytesReceived.add(read);
+        ByteBuffer buffer = connection.readBuffer.flip();
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt(buffer.position());
+            if (length < 0 || length > DSMCodec.MAX_FRAME_BYTES) {
+                throw new IllegalArgumentException("Ungültige Rahmenlänge " + length);
+            }
+            if (buffer.remaining() < Integer.BYTES + length) {
+                break;
+            }
+            buffer.position(buffer.position() + Integer.BYTES);
+            ByteBuffer body = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            DSMMessage message = DSMCodec.decode(body);
+            framesReceived.increment();
+            dispatcher.execute(() -> deliver(message));
+        }
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            // Rahmen größer als der Puffer
+            connection.readBuffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+        }
+    }
+
+    private void deliver(DSMMessage message) {
+        try {
+            handler.accept(message);
+        } catch (RuntimeException e) {
+            logger.warning("Fehler bei der Zustellung von " + message.getType() + ": " + e.getMessage());
+        }
+    }
+
+    private void fail(Connection connection) {
+        connection.close();
+        if (connection.peer != null) {
+            outgoing.remove(connection.peer, connection);
+            int dropped = connection.outbound.size();
+            connection.outbound.clear();
+            if (dropped > 0) {
+                logger.warning(dropped + " Nachrichten an " + connection.peer + " verworfen");
+            }
+        }
+    }
+
+    /**
+     * Eine TCP-Verbindung; ausgehende tragen Ziel und Warteschlange, eingehende einen Lesepuffer.
+     */
+    private static final class Connection {
+        private final String peer;
+        private final InetSocketAddress address;
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean writeScheduled = new AtomicBoolean();
+        private final ByteBuffer[] batch = new ByteBuffer[MAX_GATHER];
+        private SocketChannel channel;
+        private ByteBuffer readBuffer;
+
+        private Connection(String peer, InetSocketAddress address) {
+            this.peer = peer;
+            this.address = address;
+        }
+
+        private void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // bereits geschlossen
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package main.java.dsm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verfolgt die Antwortzeiten der Nachbarknoten als exponentiell gleitenden Mittelwert (EWMA)
+ * und liefert daraus die schnellsten Replikate sowie eine perzentilbasierte Hedging-Verzögerung.
+ */
+public class PeerLatencyTracker {
+
+    private static final double ALPHA = 0.2;
+    private static final double EXPLORATION_RATE = 0.05;
+    private static final double HEDGE_PERCENTILE = 95.0;
+    private static final long MIN_HEDGE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long PERCENTILE_REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Map<String, Double> ewmaNanos = new ConcurrentHashMap<>();
+    private final LatencyHistogram responseTimes = new LatencyHistogram();
+    private final Random random = new Random();
+    private volatile long cachedPercentileNanos = -1;
+    private volatile long percentileComputedAt;
+
+    /**
+     * Erfasst eine gemessene Antwortzeit.
+     */
+    public void record(String peer, long nanos) {
+        responseTimes.record(nanos);
+        updateEwma(peer, nanos);
+    }
+
+    /**
+     * Bestraft ein Replikat, das innerhalb der Wartezeit nicht geantwortet hat.
+     * Die Wartezeit fließt in den EWMA ein, aber nicht in das Perzentil-Histogramm.
+     */
+    public void recordMissing(String peer, long waitedNanos) {
+        updateEwma(peer, waitedNanos);
+    }
+
+    /**
+     * Sortiert die Replikate nach geschätzter Antwortzeit (unbekannte zuerst, damit sie
+     * gemessen werden). Gelegentlich wird zufällig gemischt, damit sich langsame Replikate
+     * wieder erholen können.
+     */
+    public List<String> rankPeers(Collection<String> peers) {
+        List<String> ranked = new ArrayList<>(peers);
+        if (random.nextDouble() < EXPLORATION_RATE) {
+            Collections.shuffle(ranked, random);
+        } else {
+            ranked.sort(Comparator.comparingDouble(peer -> ewmaNanos.getOrDefault(peer, 0.0)));
+        }
+        return ranked;
+    }
+
+    /**
+     * Verzögerung bis zur Hedging-Anfrage: p95 der bisherigen Antwortzeiten, nach unten begrenzt.
+     *
+     * @param maxNanos Obergrenze (z.B. ein Teil des Timeouts)
+     */
+    public long hedgeDelayNanos(long maxNanos) {
+        if (responseTimes.getCount() == 0) {
+            return maxNanos;
+        }
+        // Perzentil nur periodisch neu berechnen, der Histogramm-Scan ist nicht ganz billig
+        long now = System.nanoTime();
+        if (cachedPercentileNanos < 0 || now - percentileComputedAt > PERCENTILE_REFRESH_NANOS) {
+            cachedPercentileNanos = responseTimes.getValueAtPercentile(HEDGE_PERCENTILE);
+            percentileComputedAt = now;
+        }
+        return Math.min(maxNanos, Math.max(MIN_HEDGE_DELAY_NANOS, cachedPercentileNanos));
+    }
+
+    public double getEwmaMillis(String peer) {
+        return ewmaNanos.getOrDefault(peer, 0.0) / 1e6;
+    }
+
+    private void updateEwma(String peer, long nanos) {
+        ewmaNanos.merge(peer, (double) nanos, (old, sample) -> old + ALPHA * (sample - old));
+    }
+}
@@ -0,0 +1,309 @@
+package main.java.dsm;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gemeinsame Tabelle für laufende Anfragen eines Knotens (Quorum-Lesen, Schreib-ACKs, Sync).
+ * <p>
+ * Anfragen werden über primitive long-IDs adressiert; die ID bestimmt direkt den Slot
+ * ({@code id & mask}), Slots werden wiederverwendet. Jede Anfrage ist zusätzlich im
+ * {@link TimerWheel} eingetragen: Läuft sie ab, wird der wartende Thread geweckt. Der Besitzer
+ * gibt den Slot in einem finally-Block mit {@link Request#release()} frei, sodass auch bei
+ * Fehlern nichts liegen bleibt. Antworten auf bereits freigegebene IDs werden verworfen.
+ */
+public class RequestRegistry {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private final Request[] slots;
+    private final int mask;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final TimerWheel timerWheel;
+
+    public RequestRegistry() {
+        this(DEFAULT_CAPACITY, TimerWheel.shared());
+    }
+
+    public RequestRegistry(int capacity, TimerWheel timerWheel) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Request[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Request(this);
+        }
+        this.mask = size - 1;
+        this.timerWheel = timerWheel;
+    }
+
+    /**
+     * Legt eine neue Anfrage an.
+     *
+     * @param expectedResponses Anzahl unterschiedlicher Antwortender bis zum Abschluss
+     * @param timeoutMs         spätester Ablauf der Anfrage
+     */
+    public Request register(int expectedResponses, long timeoutMs) {
+        for (int attempt = 0; attempt <= slots.length; attempt++) {
+            long id = nextId.getAndIncrement();
+            Request request = slots[(int) (id & mask)];
+            if (request.claim(id, expectedResponses)) {
+                timerWheel.schedule(request, TimeUnit.MILLISECONDS.toNanos(timeoutMs), id);
+                return request;
+            }
+        }
+        throw new IllegalStateException("Zu viele offene Anfragen (" + slots.length + ")");
+    }
+
+    /**
+     * Liefert die Anfrage zur ID oder null, wenn sie nicht (mehr) offen ist.
+     * Da Slots wiederverwendet werden, prüfen alle Methoden von {@link Request} die ID erneut.
+     */
+    public Request get(long id) {
+        if (id <= 0) {
+            return null;
+        }
+        Request request = slots[(int) (id & mask)];
+        return request.id == id ? request : null;
+    }
+
+    /**
+     * Anzahl der derzeit belegten Slots.
+     */
+    public int getOpenRequests() {
+        int open = 0;
+        for (Request request : slots) {
+            if (request.id != 0) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Eine laufende Anfrage. Alle Zustandsänderungen laufen unter dem Monitor des Slots.
+     */
+    public static final class Request extends TimerWheel.Timeout {
+        private static final int PENDING = 0;
+        private static final int COMPLETED = 1;
+        private static final int EXPIRED = 2;
+
+        private final RequestRegistry registry;
+        private final BitSet responders = new BitSet();
+        private volatile long id;
+        private int state;
+        private int remaining;
+        private long[] responderVersions = new long[8];
+        private long[] sentAt = new long[8];
+        private VersionedValue newest;
+        private TreeMap<String, VersionedValue> page;
+        private String pageBoundary;
+        private Object result;
+
+        private Request(RequestRegistry registry) {
+            this.registry = registry;
+        }
+
+        private synchronized boolean claim(long newId, int expectedResponses) {
+            if (id != 0) {
+                return false;
+            }
+            id = newId;
+            remaining = expectedResponses;
+            state = expectedResponses <= 0 ? COMPLETED : PENDING;
+            return true;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Zählt eine Antwort; doppelte Antworten desselben Knotens zählen nur einmal.
+         *
+         * @return true, wenn die Antwort zur offenen Anfrage gehörte
+         */
+        public synchronized boolean respond(long requestId, int peer) {
+            if (id != requestId || responders.get(peer)) {
+                return false;
+            }
+            responders.set(peer);
+            if (state == PENDING && --remaining <= 0) {
+                state = COMPLETED;
+                notifyAll();
+            }
+            return true;
+        }
+
+        /**
+         * Zählt eine Leseantwort und führt den Wert nach höchster Version zusammen.
+         *
+         * @param value   gelieferter Wert oder null, wenn das Replikat den Schlüssel nicht kennt
+         * @param version Version des Replikats (-1 für unbekannt)
+         */
+        public synchronized boolean respond(long requestId, int peer, VersionedValue value, long version) {
+            if (id != requestId || responders.get(peer)) {
+                return false;
+            }
+            ensureCapacity(peer);
+            responderVersions[peer] = version;
+            offer(value);
+            return respond(requestId, peer);
+        }
+
+        /**
+         * Übernimmt einen Wert, falls er neuer als der bisher beste ist (z.B. den lokalen Wert).
+         */
+        public synchronized void offer(VersionedValue value) {
+            if (value != null && value.isNewerThan(newest)) {
+                newest = value;
+            }
+        }
+
+        /**
+         * Zählt eine Antwort mit Ergebnis (z.B. einer atomaren Operation oder Transaktionsphase).
+         */
+        public synchronized boolean respond(long requestId, int peer, Object result) {
+            if (id != requestId || responders.get(peer)) {
+                return false;
+            }
+            this.result = result;
+            return respond(requestId, peer);
+        }
+
+        public synchronized Object getResult() {
+            return result;
+        }
+
+        /**
+         * Zählt eine Seitenantwort einer Bereichsabfrage und führt sie pro Schlüssel nach Version zusammen.
+         *
+         * @param truncated true, wenn das Replikat hinter dem letzten Schlüssel weitere Einträge hat
+         */
+        public synchronized boolean respond(long requestId, int peer, SortedMap<String, VersionedValue> entries,
+                                            boolean truncated) {
+            if (id != requestId || responders.get(peer)) {
+                return false;
+            }
+            offerPage(entries, truncated);
+            return respond(requestId, peer);
+        }
+
+        /**
+         * Übernimmt eine Seite ohne sie als Antwort zu zählen (z.B. die lokale Seite).
+         */
+        public synchronized void offerPage(SortedMap<String, VersionedValue> entries, boolean truncated) {
+            if (page == null) {
+                page = new TreeMap<>();
+            }
+            for (Map.Entry<String, VersionedValue> entry : entries.entrySet()) {
+                page.merge(entry.getKey(), entry.getValue(), (current, candidate) ->
+                        candidate.isNewerThan(current) ? candidate : current);
+            }
+            // Nur bis zum kleinsten abgeschnittenen Seitenende sind alle Antworten vollständig
+            if (truncated && !entries.isEmpty()
+                    && (pageBoundary == null || entries.lastKey().compareTo(pageBoundary) < 0)) {
+                pageBoundary = entries.lastKey();
+            }
+        }
+
+        /**
+         * Zusammengeführte Seite, begrenzt auf den Bereich, den alle Antworten vollständig abdecken.
+         */
+        public synchronized SortedMap<String, VersionedValue> getPage() {
+            if (page == null) {
+                return new TreeMap<>();
+            }
+            return new TreeMap<>(pageBoundary == null ? page : page.headMap(pageBoundary, true));
+        }
+
+        public synchronized VersionedValue getNewest() {
+            return newest;
+        }
+
+        public synchronized boolean hasResponded(int peer) {
+            return responders.get(peer);
+        }
+
+        public synchronized long getResponderVersion(int peer) {
+            return peer < responderVersions.length ? responderVersions[peer] : -1;
+        }
+
+        public synchronized int getResponseCount() {
+            return responders.cardinality();
+        }
+
+        /**
+         * Merkt sich den Sendezeitpunkt an einen Knoten (für Latenzmessungen).
+         */
+        public synchronized void markSent(int peer) {
+            ensureCapacity(peer);
+            sentAt[peer] = System.nanoTime();
+        }
+
+        /**
+         * @return Sendezeitpunkt an den Knoten oder 0, wenn nichts gesendet wurde
+         */
+        public synchronized long getSentAt(int peer) {
+            return peer < sentAt.length ? sentAt[peer] : 0;
+        }
+
+        public synchronized boolean isCompleted() {
+            return state == COMPLETED;
+        }
+
+        /**
+         * Wartet höchstens {@code maxNanos} auf den Abschluss. Kehrt auch zurück, wenn die
+         * Anfrage über das Timer-Rad abgelaufen ist.
+         *
+         * @return true, wenn alle erwarteten Antworten eingetroffen sind
+         */
+        public synchronized boolean await(long maxNanos) throws InterruptedException {
+            long deadline = System.nanoTime() + maxNanos;
+            long remainingNanos = maxNanos;
+            while (state == PENDING && remainingNanos > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+                remainingNanos = deadline - System.nanoTime();
+            }
+            return state == COMPLETED;
+        }
+
+        /**
+         * Gibt den Slot frei. Muss vom Besitzer genau einmal aufgerufen werden (finally).
+         */
+        public void release() {
+            registry.timerWheel.cancel(this);
+            synchronized (this) {
+                id = 0;
+                state = PENDING;
+                remaining = 0;
+                responders.clear();
+                Arrays.fill(sentAt, 0);
+                newest = null;
+                page = null;
+                pageBoundary = null;
+                result = null;
+                notifyAll();
+            }
+        }
+
+        @Override
+        protected synchronized void onExpire(long token) {
+            if (id == token && state == PENDING) {
+                state = EXPIRED;
+                notifyAll();
+            }
+        }
+
+        private void ensureCapacity(int peer) {
+            if (peer >= sentAt.length) {
+                int size = Math.max(peer + 1, sentAt.length * 2);
+                sentAt = Arrays.copyOf(sentAt, size);
+                responderVersions = Arrays.copyOf(responderVersions, size);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package main.java.dsm;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+
+/**
+ * Liest einen Schlüsselbereich seitenweise über {@link DistributedSharedMemory#scan}.
+ * Jede Seite ist eine eigene Abfrage; die nächste beginnt direkt hinter dem letzten Schlüssel.
+ * Liefert eine Seite null (Replikate nicht erreichbar), endet die Iteration und
+ * {@link #isComplete()} ist false.
+ */
+public class ScanIterator implements Iterator<Map.Entry<String, String>> {
+
+    private final DistributedSharedMemory dsm;
+    private final String toKey;
+    private final int pageSize;
+    private Iterator<Map.Entry<String, String>> page;
+    private String nextFrom;
+    private boolean exhausted;
+    private boolean complete = true;
+
+    public ScanIterator(DistributedSharedMemory dsm, String fromKey, String toKey, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize muss positiv sein: " + pageSize);
+        }
+        this.dsm = dsm;
+        this.toKey = toKey;
+        this.pageSize = pageSize;
+        this.nextFrom = fromKey;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ((page == null || !page.hasNext()) && !exhausted) {
+            fetchPage();
+        }
+        return page != null && page.hasNext();
+    }
+
+    @Override
+    public Map.Entry<String, String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    /**
+     * false, wenn eine Seite nicht gelesen werden konnte und der Bereich daher unvollständig ist.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private void fetchPage() {
+        SortedMap<String, String> result = dsm.scan(nextFrom, toKey, pageSize);
+        if (result == null) {
+            complete = false;
+            exhausted = true;
+            page = null;
+            return;
+        }
+        if (result.size() < pageSize) {
+            exhausted = true;
+        } else {
+            // Kleinster Schlüssel, der größer als der letzte ist
+            nextFrom = result.lastKey() + '\0';
+        }
+        page = result.entrySet().iterator();
+    }
+
+    /**
+     * Exklusive Obergrenze aller Schlüssel mit dem Präfix, null wenn es keine gibt.
+     */
+    public static String prefixEnd(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char c = prefix.charAt(i);
+            if (c != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (c + 1);
+            }
+        }
+        return null;
+    }
+}
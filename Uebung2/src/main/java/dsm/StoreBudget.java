@@ -0,0 +1,248 @@
+package main.java.dsm;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Speicherbilanz und Verdrängungsreihenfolge des lokalen Replikats nach W-TinyLFU.
+ * <p>
+ * Neue Schlüssel landen in einem kleinen LRU-Fenster (1 % des Budgets). Wer aus dem Fenster
+ * fällt, bewirbt sich um den Hauptbereich, ein segmentiertes LRU aus Probe- und geschütztem
+ * Segment (80 %). Mit Zulassungsfilter gewinnt der Bewerber nur, wenn ihn der
+ * {@link FrequencySketch} häufiger gesehen hat als das LRU-Opfer der Probe; sonst wird er selbst
+ * verdrängt. So verdrängen einmalige Zugriffe bei schiefer Last nicht die heißen Schlüssel.
+ * Ohne Filter verhält sich der Hauptbereich wie ein reines SLRU.
+ * <p>
+ * Die Klasse entscheidet nur, welche Schlüssel gehen; entfernt werden sie vom Aufrufer. Alle
+ * Methoden sind synchronisiert.
+ */
+public class StoreBudget {
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+    private static final int AVERAGE_ENTRY_BYTES = 128;
+
+    private final long maxBytes;
+    private final long windowMax;
+    private final long protectedMax;
+    private final boolean admissionFilter;
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<String, Long> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowBytes;
+    private long probationBytes;
+    private long protectedBytes;
+    private long evictions;
+    private long rejections;
+
+    /**
+     * @param admissionFilter true: Bewerber müssen häufiger sein als das Opfer (Cache-Knoten)
+     */
+    public StoreBudget(long maxBytes, boolean admissionFilter) {
+        this.maxBytes = maxBytes;
+        this.windowMax = Math.max(1, (long) (maxBytes * WINDOW_SHARE));
+        this.protectedMax = (long) ((maxBytes - windowMax) * PROTECTED_SHARE);
+        this.admissionFilter = admissionFilter;
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, maxBytes / AVERAGE_ENTRY_BYTES));
+    }
+
+    /**
+     * Geschätzter Speicherbedarf eines Eintrags inklusive Schlüssel und Tabellenknoten.
+     */
+    public static long estimateBytes(String key, KeyEntry entry) {
+        long bytes = 96 + 2L * key.length();
+        if (entry.getValue() != null) {
+            bytes += 48 + 2L * entry.getValue().length();
+        }
+        for (int i = 0; entry.getPreviousValue(i) != null; i++) {
+            bytes += 56 + 2L * entry.getPreviousValue(i).length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Ein Lesezugriff auf einen vorhandenen Schlüssel.
+     */
+    public synchronized void recordAccess(String key) {
+        sketch.increment(key);
+        if (window.get(key) != null || protectedSegment.get(key) != null) {
+            return;
+        }
+        Long bytes = probation.remove(key);
+        if (bytes != null) {
+            probationBytes -= bytes;
+            protectedSegment.put(key, bytes);
+            protectedBytes += bytes;
+            demoteProtected();
+        }
+    }
+
+    /**
+     * Ein Schlüssel wurde geschrieben; neue Schlüssel beginnen im Fenster.
+     */
+    public synchronized void recordWrite(String key, long bytes) {
+        sketch.increment(key);
+        Long old = window.replace(key, bytes);
+        if (old != null) {
+            windowBytes += bytes - old;
+            return;
+        }
+        old = probation.replace(key, bytes);
+        if (old != null) {
+            probationBytes += bytes - old;
+            return;
+        }
+        old = protectedSegment.replace(key, bytes);
+        if (old != null) {
+            protectedBytes += bytes - old;
+            return;
+        }
+        window.put(key, bytes);
+        windowBytes += bytes;
+    }
+
+    /**
+     * Der Speicherbedarf eines vorhandenen Schlüssels hat sich ohne Zugriff geändert (z.B.
+     * aufbewahrte Versionen für Snapshots wurden freigegeben); zählt nicht als Zugriff.
+     */
+    public synchronized void recordResize(String key, long bytes) {
+        Long old = window.replace(key, bytes);
+        if (old != null) {
+            windowBytes += bytes - old;
+            return;
+        }
+        old = probation.replace(key, bytes);
+        if (old != null) {
+            probationBytes += bytes - old;
+            return;
+        }
+        old = protectedSegment.replace(key, bytes);
+        if (old != null) {
+            protectedBytes += bytes - old;
+        }
+    }
+
+    /**
+     * Ein Schlüssel wurde aus anderem Grund entfernt (Ablauf, Löschung).
+     */
+    public synchronized void recordRemoval(String key) {
+        Long bytes = window.remove(key);
+        if (bytes != null) {
+            windowBytes -= bytes;
+            return;
+        }
+        bytes = probation.remove(key);
+        if (bytes != null) {
+            probationBytes -= bytes;
+            return;
+        }
+        bytes = protectedSegment.remove(key);
+        if (bytes != null) {
+            protectedBytes -= bytes;
+        }
+    }
+
+    /**
+     * Bestimmt die Schlüssel, die gehen müssen, damit das Budget wieder eingehalten wird, und
+     * trägt sie aus der Bilanz aus.
+     */
+    public synchronized List<String> selectVictims() {
+        List<String> victims = new ArrayList<>();
+        if (getUsedBytes() <= maxBytes && windowBytes <= windowMax) {
+            return victims;
+        }
+        // Überläufer des Fensters bewerben sich in Reihenfolge ihres letzten Zugriffs
+        LinkedHashMap<String, Long> candidates = new LinkedHashMap<>();
+        long candidateBytes = 0;
+        while (windowBytes > windowMax && !window.isEmpty()) {
+            Map.Entry<String, Long> eldest = removeEldest(window);
+            windowBytes -= eldest.getValue();
+            candidates.put(eldest.getKey(), eldest.getValue());
+            candidateBytes += eldest.getValue();
+        }
+
+        while (windowBytes + probationBytes + protectedBytes + candidateBytes > maxBytes) {
+            Iterator<Map.Entry<String, Long>> candidateIterator = candidates.entrySet().iterator();
+            Map.Entry<String, Long> candidate = candidateIterator.hasNext() ? candidateIterator.next() : null;
+            LinkedHashMap<String, Long> victimSegment = !probation.isEmpty() ? probation
+                    : !protectedSegment.isEmpty() ? protectedSegment : null;
+
+            if (candidate != null && (victimSegment == null
+                    || (admissionFilter && sketch.frequency(candidate.getKey())
+                    <= sketch.frequency(victimSegment.keySet().iterator().next())))) {
+                candidateIterator.remove();
+                candidateBytes -= candidate.getValue();
+                victims.add(candidate.getKey());
+                if (victimSegment != null) {
+                    rejections++;
+                }
+                continue;
+            }
+            if (victimSegment == null) {
+                victimSegment = window;
+                if (window.isEmpty()) {
+                    break;
+                }
+            }
+            Map.Entry<String, Long> victim = removeEldest(victimSegment);
+            if (victimSegment == probation) {
+                probationBytes -= victim.getValue();
+            } else if (victimSegment == protectedSegment) {
+                protectedBytes -= victim.getValue();
+            } else {
+                windowBytes -= victim.getValue();
+            }
+            victims.add(victim.getKey());
+        }
+
+        for (Map.Entry<String, Long> admitted : candidates.entrySet()) {
+            probation.put(admitted.getKey(), admitted.getValue());
+            probationBytes += admitted.getValue();
+        }
+        evictions += victims.size();
+        return victims;
+    }
+
+    public synchronized long getUsedBytes() {
+        return windowBytes + probationBytes + protectedBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Anzahl verdrängter Schlüssel insgesamt.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Anzahl der Bewerber, die der Zulassungsfilter zugunsten häufigerer Schlüssel abgewiesen hat.
+     */
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    private void demoteProtected() {
+        while (protectedBytes > protectedMax && protectedSegment.size() > 1) {
+            Map.Entry<String, Long> eldest = removeEldest(protectedSegment);
+            protectedBytes -= eldest.getValue();
+            probation.put(eldest.getKey(), eldest.getValue());
+            probationBytes += eldest.getValue();
+        }
+    }
+
+    private static Map.Entry<String, Long> removeEldest(LinkedHashMap<String, Long> segment) {
+        Iterator<Map.Entry<String, Long>> iterator = segment.entrySet().iterator();
+        Map.Entry<String, Long> eldest = iterator.next();
+        Map.Entry<String, Long> copy = Map.entry(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        return copy;
+    }
+}
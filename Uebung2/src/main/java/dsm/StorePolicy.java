@@ -0,0 +1,53 @@
+package main.java.dsm;
+
+/**
+ * Speicherregeln für das lokale Replikat eines Knotens.
+ * <p>
+ * Ohne Budget und TTL wächst der Speicher unbegrenzt (Standard). Mit Budget werden Einträge
+ * verdrängt, sobald die geschätzte Größe es überschreitet; Cache-Knoten lassen neue Schlüssel
+ * dabei nur zu, wenn sie häufiger gebraucht werden als das Opfer (W-TinyLFU), und holen
+ * Fehlzugriffe von anderen Knoten nach.
+ */
+public final class StorePolicy {
+
+    public static final StorePolicy UNBOUNDED = new StorePolicy(0, 0, false);
+
+    private final long maxBytes;
+    private final long defaultTtlMs;
+    private final boolean cacheRole;
+
+    /**
+     * @param maxBytes     Budget in Byte (geschätzt), 0 für unbegrenzt
+     * @param defaultTtlMs Lebensdauer neu geschriebener Einträge, 0 für unbegrenzt
+     * @param cacheRole    true für Cache-Knoten: Zulassungsfilter und Nachladen bei Fehlzugriffen
+     */
+    public StorePolicy(long maxBytes, long defaultTtlMs, boolean cacheRole) {
+        if (maxBytes < 0 || defaultTtlMs < 0) {
+            throw new IllegalArgumentException("Budget und TTL dürfen nicht negativ sein");
+        }
+        this.maxBytes = maxBytes;
+        this.defaultTtlMs = defaultTtlMs;
+        this.cacheRole = cacheRole;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getDefaultTtlMs() {
+        return defaultTtlMs;
+    }
+
+    public boolean isCacheRole() {
+        return cacheRole;
+    }
+
+    public boolean isBounded() {
+        return maxBytes > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "StorePolicy{maxBytes=" + maxBytes + ", defaultTtlMs=" + defaultTtlMs + ", cacheRole=" + cacheRole + "}";
+    }
+}
@@ -0,0 +1,68 @@
+package main.java.dsm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Gleitender Operationszähler mit Sekunden-Slots in einem Ringpuffer.
+ * Beim Wechsel in eine neue Sekunde wird der Slot zurückgesetzt; Inkremente,
+ * die genau in dieses Zeitfenster fallen, können verloren gehen (bewusst in Kauf genommen).
+ */
+public class ThroughputCounter {
+
+    private static final int SLOTS = 64;
+
+    private final AtomicLongArray seconds = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+
+    public void increment() {
+        long second = currentSecond();
+        int slot = (int) (second & (SLOTS - 1));
+        long stamp = seconds.get(slot);
+        if (stamp != second && seconds.compareAndSet(slot, stamp, second)) {
+            counts.set(slot, 0);
+        }
+        counts.incrementAndGet(slot);
+    }
+
+    /**
+     * Übernimmt die Zählerstände eines anderen Zählers (Slot für Slot, gleiche Sekunde vorausgesetzt).
+     */
+    public void add(ThroughputCounter other) {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            long otherStamp = other.seconds.get(slot);
+            long otherCount = other.counts.get(slot);
+            if (otherCount == 0) {
+                continue;
+            }
+            long stamp = seconds.get(slot);
+            if (stamp == otherStamp) {
+                counts.addAndGet(slot, otherCount);
+            } else if (stamp < otherStamp && seconds.compareAndSet(slot, stamp, otherStamp)) {
+                counts.set(slot, otherCount);
+            }
+        }
+    }
+
+    /**
+     * Durchschnittliche Operationen pro Sekunde über die letzten abgeschlossenen Sekunden.
+     *
+     * @param windowSeconds Fensterlänge in Sekunden (maximal 63)
+     */
+    public double getRate(int windowSeconds) {
+        int window = Math.max(1, Math.min(windowSeconds, SLOTS - 1));
+        long now = currentSecond();
+        long total = 0;
+        for (long s = now - window; s < now; s++) {
+            int slot = (int) (s & (SLOTS - 1));
+            if (seconds.get(slot) == s) {
+                total += counts.get(slot);
+            }
+        }
+        return (double) total / window;
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+}
@@ -0,0 +1,164 @@
+package main.java.dsm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Gehashtes Timer-Rad für Anfrage-Timeouts.
+ * Einträge sind intrusiv verkettet (kein Objekt pro Timer), Planen und Abbrechen kosten O(1).
+ * Ein einzelner Daemon-Thread schaltet das Rad im Takt von 10 ms weiter.
+ */
+public final class TimerWheel {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int WHEEL_SIZE = 512;
+    private static final Logger logger = Logger.getLogger(TimerWheel.class.getName());
+    private static final TimerWheel SHARED = new TimerWheel("DSM-TimerWheel");
+
+    private final Bucket[] buckets = new Bucket[WHEEL_SIZE];
+    private final long startNanos = System.nanoTime();
+    private final Thread worker;
+
+    private TimerWheel(String threadName) {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets[i] = new Bucket();
+        }
+        worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Gemeinsames Timer-Rad aller Knoten einer JVM.
+     */
+    public static TimerWheel shared() {
+        return SHARED;
+    }
+
+    /**
+     * Plant einen Eintrag. Nach Ablauf wird {@link Timeout#onExpire(long)} mit dem Token aufgerufen.
+     *
+     * @param token beliebiger Wert, der beim Ablauf zurückgegeben wird (z.B. eine Anfrage-ID)
+     */
+    public void schedule(Timeout timeout, long delayNanos, long token) {
+        cancel(timeout);
+        long deadline = System.nanoTime() + Math.max(0, delayNanos);
+        long tick = Math.max(currentTick() + 1, (deadline - startNanos + TICK_NANOS - 1) / TICK_NANOS);
+        Bucket bucket = buckets[(int) (tick & (WHEEL_SIZE - 1))];
+        synchronized (bucket) {
+            timeout.deadline = deadline;
+            timeout.token = token;
+            timeout.bucket = bucket;
+            timeout.prev = null;
+            timeout.next = bucket.head;
+            if (bucket.head != null) {
+                bucket.head.prev = timeout;
+            }
+            bucket.head = timeout;
+        }
+    }
+
+    /**
+     * Entfernt einen geplanten Eintrag; ohne Wirkung, wenn er nicht (mehr) geplant ist.
+     */
+    public void cancel(Timeout timeout) {
+        Bucket bucket = timeout.bucket;
+        if (bucket == null) {
+            return;
+        }
+        synchronized (bucket) {
+            if (timeout.bucket == bucket) {
+                bucket.unlink(timeout);
+            }
+        }
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / TICK_NANOS;
+    }
+
+    private void run() {
+        List<Timeout> expired = new ArrayList<>();
+        long[] tokens = new long[64];
+        long tick = currentTick();
+
+        while (true) {
+            long wakeUp = startNanos + (tick + 1) * TICK_NANOS;
+            long now;
+            while ((now = System.nanoTime()) < wakeUp) {
+                LockSupport.parkNanos(wakeUp - now);
+            }
+            long targetTick = currentTick();
+
+            // Verpasste Ticks nachholen, höchstens eine Umdrehung
+            for (long t = Math.max(tick + 1, targetTick - WHEEL_SIZE + 1); t <= targetTick; t++) {
+                Bucket bucket = buckets[(int) (t & (WHEEL_SIZE - 1))];
+                synchronized (bucket) {
+                    Timeout current = bucket.head;
+                    while (current != null) {
+                        Timeout next = current.next;
+                        if (current.deadline <= now) {
+                            bucket.unlink(current);
+                            if (expired.size() == tokens.length) {
+                                tokens = Arrays.copyOf(tokens, tokens.length * 2);
+                            }
+                            tokens[expired.size()] = current.token;
+                            expired.add(current);
+                        }
+                        current = next;
+                    }
+                }
+            }
+            tick = targetTick;
+
+            for (int i = 0; i < expired.size(); i++) {
+                try {
+                    expired.get(i).onExpire(tokens[i]);
+                } catch (RuntimeException e) {
+                    logger.warning("Fehler im Timeout-Handler: " + e.getMessage());
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    /**
+     * Basisklasse für planbare Einträge. Die Verkettungsfelder werden vom Rad verwaltet.
+     */
+    public abstract static class Timeout {
+        private Timeout prev;
+        private Timeout next;
+        private volatile Bucket bucket;
+        private long deadline;
+        private long token;
+
+        /**
+         * Wird vom Timer-Thread aufgerufen; darf nicht blockieren.
+         *
+         * @param token das beim Planen übergebene Token
+         */
+        protected abstract void onExpire(long token);
+    }
+
+    private static final class Bucket {
+        private Timeout head;
+
+        private void unlink(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package main.java.dsm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heimatknoten-Seite der Transaktionen: Validierung der Lesemenge, Sperren vorbereiteter
+ * Schlüssel und Anwenden der Schreibmenge.
+ * <p>
+ * Läuft ausschließlich auf dem Atomic-Executor des Knotens und ist damit mit allen atomaren
+ * Operationen serialisiert; deshalb genügen einfache Maps. Ein Lesezugriff merkt sich die Revision
+ * des Heimatknotens beim Lesen; die Validierung scheitert, wenn die letzte Änderung des Schlüssels
+ * ({@link AbstractDSM#keyRevision}) danach liegt.
+ * <p>
+ * Sperren aus PREPARE bleiben bis zur Entscheidung bestehen, sonst könnte ein Heimatknoten seine
+ * Schreibmenge verwerfen, während andere sie anwenden. Kommt innerhalb der Frist keine
+ * Entscheidung, fragt der Teilnehmer den Koordinator (OUTCOME) und verlängert die Frist. Hat der
+ * Koordinator noch nicht entschieden, legt die Nachfrage den Abbruch fest (presumed abort).
+ * Umgesetzte Entscheidungen werden gemerkt, damit ein verspätetes DECIDE_COMMIT dasselbe
+ * Ergebnis bekommt.
+ */
+final class TransactionParticipant {
+
+    static final long PREPARE_LEASE_MS = 5000;
+    private static final int MAX_OUTCOMES = 10_000;
+
+    private final AbstractDSM dsm;
+    private final String nodeName;
+    private final Map<String, String> lockOwners = new HashMap<>();
+    private final Map<String, Prepared> prepared = new HashMap<>();
+    // Teilnehmerseite: Ergebnis bereits umgesetzter Entscheidungen
+    private final Map<String, Boolean> resolved = boundedMap();
+    // Koordinatorseite: Ausgang eigener Transaktionen; auch vom aufrufenden Thread geschrieben
+    private final Map<String, Boolean> outcomes = Collections.synchronizedMap(boundedMap());
+
+    TransactionParticipant(AbstractDSM dsm, String nodeName) {
+        this.dsm = dsm;
+        this.nodeName = nodeName;
+    }
+
+    DSMTransactionMessage handle(DSMTransactionMessage request) {
+        expireLeases();
+        String transactionId = request.getTransactionId();
+        switch (request.getPhase()) {
+            case READ: {
+                VersionedValue read = dsm.transactionalRead(request.getReadKeys()[0]);
+                return response(request, true, read.getValue(), read.getVersion());
+            }
+            case COMMIT:
+                if (!validate(request)) {
+                    return response(request, false, null, 0);
+                }
+                dsm.commitWrites(transactionId, request.getWriteKeys(), request.getWriteValues());
+                return response(request, true, null, 0);
+            case PREPARE:
+                if (!validate(request)) {
+                    return response(request, false, null, 0);
+                }
+                List<String> keys = new ArrayList<>(List.of(request.getReadKeys()));
+                keys.addAll(List.of(request.getWriteKeys()));
+                for (String key : keys) {
+                    lockOwners.put(key, transactionId);
+                }
+                prepared.put(transactionId, new Prepared(keys, request.getWriteKeys(), request.getWriteValues(),
+                        request.getSenderId(), System.currentTimeMillis() + PREPARE_LEASE_MS));
+                return response(request, true, null, 0);
+            case DECIDE_COMMIT: {
+                if (!prepared.containsKey(transactionId)) {
+                    // Schon über OUTCOME entschieden oder nie vorbereitet
+                    return response(request, Boolean.TRUE.equals(resolved.get(transactionId)), null, 0);
+                }
+                return response(request, resolve(transactionId, true), null, 0);
+            }
+            case ABORT:
+                resolve(transactionId, false);
+                return response(request, true, null, 0);
+            case OUTCOME:
+                return response(request, decide(transactionId, false), null, 0);
+            default:
+                return response(request, false, null, 0);
+        }
+    }
+
+    /**
+     * Legt den Ausgang einer Transaktion fest, die dieser Knoten koordiniert. Hat ein Teilnehmer
+     * schon nachgefragt, bleibt es beim dadurch festgelegten Abbruch.
+     *
+     * @return der gültige Ausgang
+     */
+    boolean decide(String transactionId, boolean commit) {
+        return outcomes.computeIfAbsent(transactionId, id -> commit);
+    }
+
+    /**
+     * Setzt die Entscheidung für eine vorbereitete Transaktion um. Die Schreibmenge wird als
+     * Einheit angewendet ({@link AbstractDSM#commitWrites}) und kann danach nicht mehr scheitern.
+     *
+     * @return true, wenn die Schreibmenge angewendet wurde
+     */
+    boolean resolve(String transactionId, boolean commit) {
+        Prepared transaction = prepared.remove(transactionId);
+        if (transaction == null) {
+            return Boolean.TRUE.equals(resolved.get(transactionId));
+        }
+        unlock(transactionId, transaction);
+        if (commit) {
+            dsm.commitWrites(transactionId, transaction.writeKeys, transaction.writeValues);
+        }
+        resolved.put(transactionId, commit);
+        return commit;
+    }
+
+    /**
+     * @param transactionId eigene Transaktion oder null für atomare Einzeloperationen
+     * @return true, wenn eine andere vorbereitete Transaktion den Schlüssel hält
+     */
+    boolean isLocked(String key, String transactionId) {
+        expireLeases();
+        String owner = lockOwners.get(key);
+        return owner != null && !owner.equals(transactionId);
+    }
+
+    /**
+     * Prüft Lesemenge und Sperren. Ein Knoten, der gerade keine Schreibzugriffe annimmt
+     * (Partition der CA-Variante), lehnt hier ab, solange noch nichts geschrieben ist.
+     */
+    private boolean validate(DSMTransactionMessage request) {
+        if (dsm.isPartitioned()) {
+            return false;
+        }
+        String transactionId = request.getTransactionId();
+        String[] readKeys = request.getReadKeys();
+        long[] readRevisions = request.getReadRevisions();
+        for (int i = 0; i < readKeys.length; i++) {
+            if (isLocked(readKeys[i], transactionId) || dsm.keyRevision(readKeys[i]) > readRevisions[i]) {
+                return false;
+            }
+        }
+        for (String key : request.getWriteKeys()) {
+            if (isLocked(key, transactionId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void unlock(String transactionId, Prepared transaction) {
+        for (String key : transaction.keys) {
+            lockOwners.remove(key, transactionId);
+        }
+    }
+
+    /**
+     * Fragt für jede vorbereitete Transaktion mit abgelaufener Frist den Koordinator nach dem
+     * Ausgang; die Sperren bleiben bis zur Antwort bestehen.
+     */
+    private void expireLeases() {
+        if (prepared.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<String> local = new ArrayList<>();
+        for (Map.Entry<String, Prepared> entry : prepared.entrySet()) {
+            Prepared transaction = entry.getValue();
+            if (transaction.deadline >= now) {
+                continue;
+            }
+            transaction.deadline = now + PREPARE_LEASE_MS;
+            if (transaction.coordinator.equals(nodeName)) {
+                local.add(entry.getKey());
+            } else {
+                dsm.requestOutcome(entry.getKey(), transaction.coordinator);
+            }
+        }
+        for (String transactionId : local) {
+            resolve(transactionId, decide(transactionId, false));
+        }
+    }
+
+    private DSMTransactionMessage response(DSMTransactionMessage request, boolean success, String value, long revision) {
+        return new DSMTransactionMessage(request, success, value, revision, nodeName);
+    }
+
+    private static <V> Map<String, V> boundedMap() {
+        return new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > MAX_OUTCOMES;
+            }
+        };
+    }
+
+    private static final class Prepared {
+        final List<String> keys;
+        final String[] writeKeys;
+        final String[] writeValues;
+        final String coordinator;
+        long deadline;
+
+        Prepared(List<String> keys, String[] writeKeys, String[] writeValues, String coordinator, long deadline) {
+            this.keys = keys;
+            this.writeKeys = writeKeys;
+            this.writeValues = writeValues;
+            this.coordinator = coordinator;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package main.java.dsm;
+
+import java.util.ArrayList;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Einheitliche Replikations-Engine mit wählbarer Konsistenzstufe pro Operation.
+ * Jeder Schreibzugriff wird an alle Replikate verteilt; die Stufe bestimmt nur, auf wie viele
+ * Bestätigungen bzw. Antworten gewartet wird. Werte tragen Versionen (hybride Uhr), Leseantworten
+ * werden nach der höchsten Version zusammengeführt. Mit {@code enforceOverlap} werden Lesezugriffe
+ * so weit angehoben, dass R + W > N gegenüber der Standard-Schreibstufe gilt.
+ */
+public class TunableDSM extends AbstractDSM {
+
+    private static final long TIMEOUT_MS = 200;
+
+    private volatile ConsistencyLevel defaultReadLevel;
+    private volatile ConsistencyLevel defaultWriteLevel;
+    private volatile boolean enforceOverlap;
+
+    public TunableDSM(String nodeName) {
+        this(nodeName, ConsistencyLevel.QUORUM, ConsistencyLevel.QUORUM);
+    }
+
+    public TunableDSM(String nodeName, ConsistencyLevel defaultReadLevel, ConsistencyLevel defaultWriteLevel) {
+        super(nodeName);
+        this.defaultReadLevel = defaultReadLevel;
+        this.defaultWriteLevel = defaultWriteLevel;
+    }
+
+    public void setDefaultLevels(ConsistencyLevel readLevel, ConsistencyLevel writeLevel) {
+        this.defaultReadLevel = readLevel;
+        this.defaultWriteLevel = writeLevel;
+    }
+
+    /**
+     * Erzwingt R + W > N: Lesestufen unterhalb der nötigen Überschneidung mit der
+     * Standard-Schreibstufe werden automatisch angehoben.
+     */
+    public void setEnforceOverlap(boolean enforceOverlap) {
+        this.enforceOverlap = enforceOverlap;
+    }
+
+    @Override
+    protected boolean doWrite(String key, String value) {
+        return replicateWrite(key, value, defaultWriteLevel);
+    }
+
+    @Override
+    protected String doRead(String key) {
+        return quorumRead(key, effectiveReadLevel(defaultReadLevel));
+    }
+
+    /**
+     * Bereichsabfragen verwenden die Standard-Lesestufe.
+     */
+    @Override
+    protected SortedMap<String, String> doScan(String fromKey, String toKey, int limit) {
+        int required = effectiveReadLevel(defaultReadLevel).requiredReplicas(knownNodes.size() + 1);
+        if (required <= 1) {
+            return super.doScan(fromKey, toKey, limit);
+        }
+        return replicaScan(fromKey, toKey, limit, new ArrayList<>(knownNodes), required - 1, TIMEOUT_MS);
+    }
+
+    /**
+     * Schreibt mit der angegebenen Konsistenzstufe.
+     *
+     * @return true, wenn genügend Replikate bestätigt haben
+     */
+    public boolean write(String key, String value, ConsistencyLevel level) {
+        DSMEvents.Operation event = new DSMEvents.Operation();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return replicateWrite(key, value, level);
+        } finally {
+            metrics.record(DSMMetrics.Operation.WRITE, System.nanoTime() - start);
+            event.commit(NodeName(), "WRITE", key);
+        }
+    }
+
+    /**
+     * Liest mit der angegebenen Konsistenzstufe.
+     *
+     * @return den neuesten Wert der befragten Replikate, "" falls unbekannt,
+     * oder null, wenn nicht genügend Replikate geantwortet haben
+     */
+    public String read(String key, ConsistencyLevel level) {
+        DSMEvents.Operation event = new DSMEvents.Operation();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return quorumRead(key, effectiveReadLevel(level));
+        } finally {
+            metrics.record(DSMMetrics.Operation.READ, System.nanoTime() - start);
+            event.commit(NodeName(), "READ", key);
+        }
+    }
+
+    private ConsistencyLevel effectiveReadLevel(ConsistencyLevel requested) {
+        int replicaCount = knownNodes.size() + 1;
+        if (enforceOverlap && !ConsistencyLevel.overlaps(requested, defaultWriteLevel, replicaCount)) {
+            return ConsistencyLevel.minimalOverlappingRead(defaultWriteLevel, replicaCount);
+        }
+        return requested;
+    }
+
+    private boolean replicateWrite(String key, String value, ConsistencyLevel level) {
+        VersionedValue versioned = new VersionedValue(value, nextVersion());
+        applyIfNewer(key, versioned);
+
+        int required = level.requiredReplicas(knownNodes.size() + 1);
+        if (required <= 1) {
+            // Stufe ONE: lokal bestätigt, Replikation läuft ohne Warten
+            broadcastMessage(new DSMMessage(DSMMessage.Type.WRITE, key + ":0", value, NodeName(), versioned.getVersion()));
+            return true;
+        }
+
+        RequestRegistry.Request request = pendingRequests.register(required - 1, TIMEOUT_MS);
+        try {
+            broadcastMessage(new DSMMessage(DSMMessage.Type.WRITE, key + ":" + request.getId(), value, NodeName(),
+                    versioned.getVersion()));
+            boolean reached = awaitQuorum(key, request);
+            if (!reached) {
+                logger.warning("Write-Stufe " + level + " nicht erreicht für " + key);
+            }
+            return reached;
+        } finally {
+            request.release();
+        }
+    }
+
+    private String quorumRead(String key, ConsistencyLevel level) {
+        VersionedValue local = localVersioned(key);
+        int required = level.requiredReplicas(knownNodes.size() + 1);
+        if (required <= 1) {
+            return local == null ? "" : local.getValue();
+        }
+
+        VersionedValue newest;
+        RequestRegistry.Request request = pendingRequests.register(required - 1, TIMEOUT_MS);
+        try {
+            request.offer(local);
+            broadcastMessage(new DSMMessage(DSMMessage.Type.READ_REQUEST, key + ":" + request.getId(), NodeName()));
+            if (!awaitQuorum(key, request)) {
+                logger.warning("Read-Stufe " + level + " nicht erreicht für " + key);
+                return null;
+            }
+            newest = request.getNewest();
+        } finally {
+            request.release();
+        }
+
+        if (newest == null) {
+            return "";
+        }
+        applyIfNewer(key, newest);
+        return newest.getValue();
+    }
+
+    private boolean awaitQuorum(String key, RequestRegistry.Request request) {
+        DSMEvents.QuorumWait quorumEvent = DSMEvents.QuorumWait.start();
+        long waitStart = System.nanoTime();
+        boolean reached = false;
+        try {
+            reached = request.await(TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        recordQuorum(quorumEvent, key, request, System.nanoTime() - waitStart, reached);
+        return reached;
+    }
+
+    @Override
+    protected void doReceive(DSMMessage dsmMessage) {
+        if (handleSharedMessage(dsmMessage)) {
+            return;
+        }
+
+        String[] keyParts = dsmMessage.getKey().split(":");
+        if (keyParts.length != 2) {
+            return;
+        }
+        String key = keyParts[0];
+        long requestId = parseRequestId(keyParts[1]);
+
+        switch (dsmMessage.getType()) {
+            case WRITE:
+                applyIfNewer(key, new VersionedValue(dsmMessage.getValue(), dsmMessage.getTimestamp()));
+                if (requestId > 0) {
+                    sendMessage(new DSMMessage(DSMMessage.Type.WRITE_ACK, dsmMessage.getKey(), NodeName()),
+                            dsmMessage.getSenderId());
+                }
+                break;
+            case WRITE_ACK:
+                RequestRegistry.Request writeRequest = pendingRequests.get(requestId);
+                if (writeRequest != null) {
+                    writeRequest.respond(requestId, peerIndex(dsmMessage.getSenderId()));
+                }
+                break;
+            case READ_REQUEST:
+                VersionedValue local = localVersioned(key);
+                sendMessage(new DSMMessage(DSMMessage.Type.READ_RESPONSE, dsmMessage.getKey(),
+                                local == null ? null : local.getValue(), NodeName(),
+                                local == null ? -1 : local.getVersion()),
+                        dsmMessage.getSenderId());
+                break;
+            case READ_RESPONSE:
+                RequestRegistry.Request readRequest = pendingRequests.get(requestId);
+                if (readRequest != null) {
+                    VersionedValue value = dsmMessage.getValue() == null ? null
+                            : new VersionedValue(dsmMessage.getValue(), dsmMessage.getTimestamp());
+                    readRequest.respond(requestId, peerIndex(dsmMessage.getSenderId()), value,
+                            dsmMessage.getTimestamp());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
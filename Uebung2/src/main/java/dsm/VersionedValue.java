@@ -0,0 +1,40 @@
+package main.java.dsm;
+
+/**
+ * Wert mit Version für Last-Writer-Wins-Replikation.
+ * Bei gleicher Version entscheidet der lexikographisch größere Wert, damit alle Replikate
+ * unabhängig voneinander zum selben Ergebnis kommen.
+ */
+public final class VersionedValue {
+
+    private final String value;
+    private final long version;
+
+    public VersionedValue(String value, long version) {
+        this.value = value;
+        this.version = version;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isNewerThan(VersionedValue other) {
+        if (other == null) {
+            return true;
+        }
+        if (version != other.version) {
+            return version > other.version;
+        }
+        return value.compareTo(other.value) > 0;
+    }
+
+    @Override
+    public String toString() {
+        return value + "@" + version;
+    }
+}
@@ -0,0 +1,15 @@
+package main.java.dsm;
+
+/**
+ * Laufende Beobachtung eines Schlüssels oder Präfixes.
+ */
+public interface Watch {
+
+    /**
+     * Revision des zuletzt zugestellten Ereignisses; nach einem Abbruch kann damit
+     * über {@link DistributedSharedMemory#watch(String, boolean, long, ChangeListener)} wieder aufgesetzt werden.
+     */
+    long getLastRevision();
+
+    void cancel();
+}
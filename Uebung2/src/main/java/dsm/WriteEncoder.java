@@ -0,0 +1,330 @@
+package main.java.dsm;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Kodiert replizierte Schreibzugriffe für große Werte.
+ * <p>
+ * Für jeden Schlüssel merkt sich der Kodierer den zuletzt replizierten Wert samt Version und welche
+ * Knoten genau diese Version bestätigt haben. Bestätigte Knoten erhalten den nächsten Wert als
+ * Delta dagegen, alle anderen den ganzen Wert. Das Delta trägt Länge und CRC32C der Basis, der
+ * Empfänger wendet es nur auf genau diesen Wert an. Ab {@link #DEFAULT_THRESHOLD} Byte wird zusätzlich mit Deflate
+ * komprimiert; gewählt wird die kleinste Form, kleine Werte bleiben unverändert. Die Basis wird
+ * für höchstens {@link #MAX_TRACKED_KEYS} Schlüssel gehalten; ein neuer Schlüssel verdrängt den
+ * am längsten nicht benutzten, dessen nächster Wert dann wieder vollständig rausgeht.
+ */
+public class WriteEncoder {
+
+    public static final int DEFAULT_THRESHOLD = 1024;
+    /** Wert einer WRITE_ACK-Nachricht, mit der ein Empfänger den vollständigen Wert anfordert. */
+    public static final String RESEND_FULL = "\u0000resend-full";
+
+    private static final int MAX_TRACKED_KEYS = 4096;
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    // Zugriffsreihenfolge: encode, recordReplicated und acknowledge halten eine Basis frisch
+    private final Map<String, Base> bases = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Base> eldest) {
+                    return size() > MAX_TRACKED_KEYS;
+                }
+            });
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder encodedBytes = new LongAdder();
+    private final LongAdder deltaMessages = new LongAdder();
+    private final LongAdder compressedMessages = new LongAdder();
+    private final LongAdder resendRequests = new LongAdder();
+    private volatile int threshold = DEFAULT_THRESHOLD;
+    private volatile boolean enabled = true;
+
+    /**
+     * Schaltet die Kodierung ab (alle Werte vollständig) oder wieder an.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            bases.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param threshold Mindestgröße in Byte, ab der komprimiert bzw. als Delta verschickt wird
+     */
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Baut die WRITE-Nachricht für einen Knoten.
+     *
+     * @param messageKey Schlüssel der Nachricht ("key:requestId")
+     * @param peer       Index des Empfängers oder -1, wenn kein Delta in Frage kommt (z.B. Broadcast)
+     */
+    public DSMMessage encode(String key, String messageKey, String value, long version, String senderId, int peer) {
+        if (!enabled || value.length() * 3L < threshold) {
+            // Selbst im ungünstigsten UTF-8-Fall unter der Schwelle
+            return new DSMMessage(DSMMessage.Type.WRITE, messageKey, value, senderId, version);
+        }
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        rawBytes.add(raw.length);
+        if (raw.length < threshold) {
+            encodedBytes.add(raw.length);
+            return new DSMMessage(DSMMessage.Type.WRITE, messageKey, value, senderId, version);
+        }
+
+        DSMMessage best = null;
+        int bestSize = raw.length;
+        Base base = peer < 0 ? null : bases.get(key);
+        if (base != null && base.isAcknowledged(peer) && !base.value.equals(value)) {
+            String baseValue = base.value;
+            int prefix = commonPrefix(baseValue, value);
+            int suffix = commonSuffix(baseValue, value, prefix);
+            byte[] middle = value.substring(prefix, value.length() - suffix).getBytes(StandardCharsets.UTF_8);
+            DSMWriteMessage.Encoding encoding = DSMWriteMessage.Encoding.DELTA;
+            byte[] payload = middle;
+            if (middle.length >= threshold) {
+                byte[] deflated = deflate(middle);
+                if (deflated.length < middle.length) {
+                    encoding = DSMWriteMessage.Encoding.DELTA_DEFLATE;
+                    payload = deflated;
+                }
+            }
+            // Präfix, Suffix, Basislänge und Prüfsumme kosten 16 Byte
+            if (payload.length + 16 < bestSize) {
+                best = new DSMWriteMessage(messageKey, senderId, version, encoding, payload, prefix, suffix,
+                        baseValue.length(), base.checksum);
+                bestSize = payload.length + 16;
+            }
+        }
+        if (best == null) {
+            byte[] deflated = deflate(raw);
+            if (deflated.length < bestSize) {
+                best = new DSMWriteMessage(messageKey, senderId, version, DSMWriteMessage.Encoding.DEFLATE, deflated,
+                        0, 0, 0, 0);
+                bestSize = deflated.length;
+                compressedMessages.increment();
+            }
+        } else {
+            deltaMessages.increment();
+        }
+        encodedBytes.add(bestSize);
+        return best != null ? best : new DSMMessage(DSMMessage.Type.WRITE, messageKey, value, senderId, version);
+    }
+
+    /**
+     * Merkt sich einen neu replizierten Wert als künftige Delta-Basis. Wird derselbe Wert erneut
+     * verschickt (Wiederholung), bleiben die Bestätigungen erhalten und nur die Version wandert mit.
+     * Ein Wert mit älterer Version als die aktuelle Basis wird ignoriert.
+     */
+    public void recordReplicated(String key, String value, long version) {
+        if (!enabled || value.length() * 3L < threshold) {
+            bases.remove(key);
+            return;
+        }
+        bases.compute(key, (k, current) -> {
+            if (current != null && current.version > version) {
+                return current;
+            }
+            if (current != null && current.value.equals(value)) {
+                current.version = version;
+                return current;
+            }
+            return new Base(value, version);
+        });
+    }
+
+    /**
+     * Ein Knoten hat den Wert mit {@code version} bestätigt. Gilt nur, wenn das noch die aktuelle
+     * Basis ist; eine verspätete Bestätigung eines älteren Werts markiert keinen neueren.
+     */
+    public void acknowledge(String key, int peer, long version) {
+        Base base = bases.get(key);
+        if (base != null) {
+            base.acknowledge(peer, version);
+        }
+    }
+
+    /**
+     * Vollständiger Wert des replizierten Schreibzugriffs mit {@code version}, solange er noch die
+     * Basis des Schlüssels ist.
+     *
+     * @return der Wert oder null, wenn inzwischen ein neuerer Wert repliziert oder die Basis verdrängt wurde
+     */
+    public String replicatedValue(String key, long version) {
+        Base base = bases.get(key);
+        return base != null && base.version == version ? base.value : null;
+    }
+
+    /**
+     * Ein Knoten konnte ein Delta nicht anwenden; er ist für diesen Schlüssel nicht mehr aktuell.
+     */
+    public void resendRequested(String key, int peer) {
+        resendRequests.increment();
+        Base base = bases.get(key);
+        if (base != null) {
+            base.forget(peer);
+        }
+    }
+
+    /**
+     * Dekodiert den Wert einer WRITE-Nachricht.
+     *
+     * @param base aktueller lokaler Wert des Empfängers ("" wenn keiner)
+     * @return der Wert oder null, wenn das Delta nicht auf {@code base} passt
+     */
+    public static String decode(DSMMessage message, String base) {
+        if (!(message instanceof DSMWriteMessage encoded)) {
+            return message.getValue();
+        }
+        try {
+            if (!encoded.isDelta()) {
+                return new String(inflate(encoded.getPayload()), StandardCharsets.UTF_8);
+            }
+            if (base.length() != encoded.getBaseLength() || checksum(base) != encoded.getBaseChecksum()) {
+                return null;
+            }
+            byte[] middle = encoded.getEncoding() == DSMWriteMessage.Encoding.DELTA_DEFLATE
+                    ? inflate(encoded.getPayload()) : encoded.getPayload();
+            return base.substring(0, encoded.getPrefixLength())
+                    + new String(middle, StandardCharsets.UTF_8)
+                    + base.substring(base.length() - encoded.getSuffixLength());
+        } catch (DataFormatException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Unkodierte Größe aller großen Werte in Byte.
+     */
+    public long getRawBytes() {
+        return rawBytes.sum();
+    }
+
+    /**
+     * Tatsächlich verschickte Größe derselben Werte in Byte.
+     */
+    public long getEncodedBytes() {
+        return encodedBytes.sum();
+    }
+
+    public long getDeltaMessages() {
+        return deltaMessages.sum();
+    }
+
+    public long getCompressedMessages() {
+        return compressedMessages.sum();
+    }
+
+    public long getResendRequests() {
+        return resendRequests.sum();
+    }
+
+    /**
+     * CRC32C über die UTF-8-Bytes eines Werts, Prüfsumme der Delta-Basis.
+     */
+    static int checksum(String value) {
+        CRC32C crc = new CRC32C();
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue();
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        // Ersatzpaare nicht auseinanderreißen, sonst ist das Mittelstück kein gültiges UTF-16
+        if (i > 0 && Character.isHighSurrogate(b.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static int commonSuffix(String a, String b, int prefix) {
+        int max = Math.min(a.length(), b.length()) - prefix;
+        int i = 0;
+        while (i < max && a.charAt(a.length() - 1 - i) == b.charAt(b.length() - 1 - i)) {
+            i++;
+        }
+        if (i > 0 && Character.isLowSurrogate(b.charAt(b.length() - i))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] input) throws DataFormatException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(input);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+        byte[] chunk = new byte[4096];
+        while (!inflater.finished()) {
+            int count = inflater.inflate(chunk);
+            if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                throw new DataFormatException("Unvollständige Deflate-Daten");
+            }
+            out.write(chunk, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Zuletzt replizierter Wert eines Schlüssels, seine Version und die Knoten, die ihn bestätigt haben.
+     */
+    private static final class Base {
+        private final String value;
+        private final int checksum;
+        private final BitSet acknowledged = new BitSet();
+        private volatile long version;
+
+        private Base(String value, long version) {
+            this.value = value;
+            this.checksum = checksum(value);
+            this.version = version;
+        }
+
+        private synchronized boolean isAcknowledged(int peer) {
+            return acknowledged.get(peer);
+        }
+
+        private synchronized void acknowledge(int peer, long version) {
+            if (version == this.version) {
+                acknowledged.set(peer);
+            }
+        }
+
+        private synchronized void forget(int peer) {
+            acknowledged.clear(peer);
+        }
+    }
+}
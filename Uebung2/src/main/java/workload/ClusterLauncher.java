@@ -0,0 +1,59 @@
+package main.java.workload;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Startet einen DSM-Cluster aus getrennten JVM-Prozessen auf localhost, je Knoten ein
+ * {@link ClusterNode}. Die Knoten sprechen über NIO-Sockets miteinander, sodass Serialisierung,
+ * Systemaufrufe und TCP-Stack in die Messung eingehen. Die Ausgaben der Prozesse erscheinen
+ * auf der Konsole des Launchers.
+ * Aufruf: {@code ClusterLauncher <AP|CP|CA|TUNABLE> [knoten=5] [basisport=47000] [dauerMs=10000]}
+ */
+public class ClusterLauncher {
+
+    private static final Logger logger = Logger.getLogger(ClusterLauncher.class.getName());
+    private static final int DEFAULT_NODES = 5;
+    private static final int DEFAULT_BASE_PORT = 47000;
+    private static final long DEFAULT_DURATION_MS = 10_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Aufruf: ClusterLauncher <AP|CP|CA|TUNABLE> [knoten] [basisport] [dauerMs]");
+            System.exit(2);
+        }
+        String variant = args[0].toUpperCase();
+        int nodeCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_NODES;
+        int basePort = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BASE_PORT;
+        long durationMs = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_DURATION_MS;
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("java.class.path");
+        List<Process> processes = new ArrayList<>();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> processes.forEach(Process::destroy)));
+
+        for (int i = 0; i < nodeCount; i++) {
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", classPath, ClusterNode.class.getName(),
+                    variant, String.valueOf(i), String.valueOf(nodeCount), String.valueOf(basePort),
+                    String.valueOf(durationMs));
+            builder.inheritIO();
+            processes.add(builder.start());
+        }
+        logger.info(nodeCount + " Knoten für " + variant + " gestartet (Ports " + basePort + "-"
+                + (basePort + nodeCount - 1) + ")");
+
+        int failed = 0;
+        for (Process process : processes) {
+            if (process.waitFor() != 0) {
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            logger.warning(failed + " von " + nodeCount + " Knoten mit Fehler beendet");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package main.java.workload;
+
+import main.java.dsm.AbstractDSM;
+import main.java.dsm.NioTransport;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Ein DSM-Knoten als eigener Prozess, verbunden über {@link NioTransport} auf localhost.
+ * Wartet, bis alle anderen Knoten erreichbar sind, misst dann eine Last in geschlossener
+ * Schleife auf dem eigenen Knoten und gibt das Ergebnis samt Transportstatistik aus.
+ * Wird normalerweise vom {@link ClusterLauncher} gestartet.
+ * Aufruf: {@code ClusterNode <AP|CP|CA|TUNABLE> <index> <knoten> <basisport> <dauerMs>}
+ */
+public class ClusterNode {
+
+    private static final Logger logger = Logger.getLogger(ClusterNode.class.getName());
+    private static final long STARTUP_TIMEOUT_MS = 30_000;
+    // Nach der eigenen Messung weiter antworten, bis die übrigen Knoten fertig sind
+    private static final long LINGER_MS = 3000;
+    private static final int CLIENTS = 2;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("Aufruf: ClusterNode <AP|CP|CA|TUNABLE> <index> <knoten> <basisport> <dauerMs>");
+            System.exit(2);
+        }
+        String variant = args[0].toUpperCase();
+        int index = Integer.parseInt(args[1]);
+        int nodeCount = Integer.parseInt(args[2]);
+        int basePort = Integer.parseInt(args[3]);
+        long durationMs = Long.parseLong(args[4]);
+
+        Map<String, InetSocketAddress> addresses = addresses(variant, nodeCount, basePort);
+        String nodeId = nodeId(variant, index);
+        AbstractDSM node = WorkloadSimulation.createNode(variant, nodeId);
+        List<String> peers = new ArrayList<>();
+        for (String peer : addresses.keySet()) {
+            if (!peer.equals(nodeId)) {
+                node.addKnownNode(peer);
+                peers.add(peer);
+            }
+        }
+
+        NioTransport transport = new NioTransport(addresses);
+        node.setTransport(transport);
+        if (!transport.awaitReachable(peers, STARTUP_TIMEOUT_MS)) {
+            logger.severe("Cluster nicht vollständig, " + nodeId + " bricht ab");
+            System.exit(1);
+        }
+
+        WorkloadConfig config = new WorkloadConfig().clients(CLIENTS).durationMs(durationMs).seed(1000L * index);
+        WorkloadResult result = new WorkloadRunner().run(List.of(node), config);
+        System.out.println(WorkloadSimulation.formatResult(variant + "/" + nodeId, result));
+        System.out.printf("[%s/%s] Transport: %d Rahmen gesendet (%d Byte), %d empfangen (%d Byte)%n",
+                variant, nodeId, transport.getFramesSent(), transport.getBytesSent(),
+                transport.getFramesReceived(), transport.getBytesReceived());
+
+        Thread.sleep(LINGER_MS);
+        transport.close();
+        System.exit(0);
+    }
+
+    private static Map<String, InetSocketAddress> addresses(String variant, int nodeCount, int basePort) {
+        Map<String, InetSocketAddress> addresses = new LinkedHashMap<>();
+        for (int i = 0; i < nodeCount; i++) {
+            addresses.put(nodeId(variant, i), new InetSocketAddress("127.0.0.1", basePort + i));
+        }
+        return addresses;
+    }
+
+    private static String nodeId(String variant, int index) {
+        return "nio-" + variant + "-" + index;
+    }
+}
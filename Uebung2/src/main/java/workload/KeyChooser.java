@@ -0,0 +1,10 @@
+package main.java.workload;
+
+import java.util.SplittableRandom;
+
+/**
+ * Wählt den nächsten Schlüsselindex aus dem Schlüsselraum [0, keyCount).
+ */
+public interface KeyChooser {
+    int nextKey(SplittableRandom random);
+}
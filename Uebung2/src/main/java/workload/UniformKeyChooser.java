@@ -0,0 +1,20 @@
+package main.java.workload;
+
+import java.util.SplittableRandom;
+
+/**
+ * Gleichverteilte Schlüsselwahl.
+ */
+public class UniformKeyChooser implements KeyChooser {
+
+    private final int keyCount;
+
+    public UniformKeyChooser(int keyCount) {
+        this.keyCount = keyCount;
+    }
+
+    @Override
+    public int nextKey(SplittableRandom random) {
+        return random.nextInt(keyCount);
+    }
+}
@@ -0,0 +1,159 @@
+package main.java.workload;
+
+/**
+ * Konfiguration einer YCSB-artigen Last für den {@link WorkloadRunner}.
+ * Die Setter geben die Instanz zurück und lassen sich verketten.
+ */
+public class WorkloadConfig {
+
+    public enum KeyDistribution {
+        UNIFORM, ZIPFIAN
+    }
+
+    private int keyCount = 1000;
+    private String keyPrefix = "key_";
+    private KeyDistribution distribution = KeyDistribution.ZIPFIAN;
+    private double zipfianConstant = ZipfianKeyChooser.DEFAULT_CONSTANT;
+    private double readProportion = 0.5;
+    private double writeProportion = 0.5;
+    private double readModifyWriteProportion = 0.0;
+    private int valueSize = 16;
+    private int clients = 4;
+    private double targetRate = 0;
+    private long durationMs = 5000;
+    private long warmupMs = 500;
+    private long seed = 42;
+
+    public WorkloadConfig keyCount(int keyCount) {
+        this.keyCount = keyCount;
+        return this;
+    }
+
+    public WorkloadConfig keyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+        return this;
+    }
+
+    public WorkloadConfig distribution(KeyDistribution distribution) {
+        this.distribution = distribution;
+        return this;
+    }
+
+    public WorkloadConfig zipfianConstant(double zipfianConstant) {
+        this.zipfianConstant = zipfianConstant;
+        return this;
+    }
+
+    /**
+     * Setzt den Operationsmix. Die Anteile werden normiert und müssen nicht 1 ergeben.
+     */
+    public WorkloadConfig mix(double read, double write, double readModifyWrite) {
+        double total = read + write + readModifyWrite;
+        if (total <= 0) {
+            throw new IllegalArgumentException("Operationsmix ohne Anteile");
+        }
+        this.readProportion = read / total;
+        this.writeProportion = write / total;
+        this.readModifyWriteProportion = readModifyWrite / total;
+        return this;
+    }
+
+    public WorkloadConfig valueSize(int valueSize) {
+        this.valueSize = valueSize;
+        return this;
+    }
+
+    public WorkloadConfig clients(int clients) {
+        this.clients = clients;
+        return this;
+    }
+
+    /**
+     * Zielrate in Operationen pro Sekunde über alle Clients. 0 bedeutet geschlossene Schleife.
+     */
+    public WorkloadConfig targetRate(double targetRate) {
+        this.targetRate = targetRate;
+        return this;
+    }
+
+    public WorkloadConfig durationMs(long durationMs) {
+        this.durationMs = durationMs;
+        return this;
+    }
+
+    public WorkloadConfig warmupMs(long warmupMs) {
+        this.warmupMs = warmupMs;
+        return this;
+    }
+
+    public WorkloadConfig seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    KeyChooser createKeyChooser() {
+        return switch (distribution) {
+            case UNIFORM -> new UniformKeyChooser(keyCount);
+            case ZIPFIAN -> new ZipfianKeyChooser(keyCount, zipfianConstant, true);
+        };
+    }
+
+    public boolean isOpenLoop() {
+        return targetRate > 0;
+    }
+
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public KeyDistribution getDistribution() {
+        return distribution;
+    }
+
+    public double getReadProportion() {
+        return readProportion;
+    }
+
+    public double getWriteProportion() {
+        return writeProportion;
+    }
+
+    public double getReadModifyWriteProportion() {
+        return readModifyWriteProportion;
+    }
+
+    public int getValueSize() {
+        return valueSize;
+    }
+
+    public int getClients() {
+        return clients;
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public long getWarmupMs() {
+        return warmupMs;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("keys=%d, %s, read=%.2f, write=%.2f, rmw=%.2f, value=%dB, clients=%d, %s",
+                keyCount, distribution, readProportion, writeProportion, readModifyWriteProportion,
+                valueSize, clients, isOpenLoop() ? String.format("open-loop %.0f ops/s", targetRate) : "closed-loop");
+    }
+}
@@ -0,0 +1,102 @@
+package main.java.workload;
+
+import main.java.dsm.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Messergebnis eines Lastlaufs.
+ * Im offenen Betrieb enthalten die Antwortzeiten die Wartezeit seit dem geplanten Startzeitpunkt
+ * (Korrektur der "Coordinated Omission"); die reine Bedienzeit wird getrennt erfasst.
+ */
+public class WorkloadResult {
+
+    private final WorkloadConfig config;
+    private final Map<WorkloadRunner.OperationType, LatencyHistogram> responseTimes =
+            new EnumMap<>(WorkloadRunner.OperationType.class);
+    private final LatencyHistogram totalResponseTime = new LatencyHistogram();
+    private final LatencyHistogram totalServiceTime = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder completions = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+    private long measuredNanos;
+
+    WorkloadResult(WorkloadConfig config) {
+        this.config = config;
+        for (WorkloadRunner.OperationType type : WorkloadRunner.OperationType.values()) {
+            responseTimes.put(type, new LatencyHistogram());
+        }
+    }
+
+    void record(WorkloadRunner.OperationType type, long responseNanos, long serviceNanos, boolean success) {
+        responseTimes.get(type).record(responseNanos);
+        totalResponseTime.record(responseNanos);
+        totalServiceTime.record(serviceNanos);
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    void recordCompletion() {
+        completions.increment();
+    }
+
+    void recordMissed(long slots) {
+        missed.add(slots);
+    }
+
+    void setMeasuredNanos(long measuredNanos) {
+        this.measuredNanos = measuredNanos;
+    }
+
+    public WorkloadConfig getConfig() {
+        return config;
+    }
+
+    public long getOperations() {
+        return totalResponseTime.getCount();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Im offenen Betrieb geplante Operationen des Messfensters, die bis zu seinem Ende nicht
+     * mehr begonnen wurden; sie fehlen in den Antwortzeiten.
+     */
+    public long getMissed() {
+        return missed.sum();
+    }
+
+    /**
+     * Erreichter Durchsatz in Operationen pro Sekunde: innerhalb des Messfensters abgeschlossene
+     * Operationen. Was vor dem Fensterende begonnen und erst danach fertig wird, geht in die
+     * Antwortzeiten ein, aber nicht in den Durchsatz.
+     */
+    public double getThroughput() {
+        return measuredNanos == 0 ? 0 : completions.sum() * 1e9 / measuredNanos;
+    }
+
+    public LatencyHistogram getResponseTime(WorkloadRunner.OperationType type) {
+        return responseTimes.get(type);
+    }
+
+    public LatencyHistogram getTotalResponseTime() {
+        return totalResponseTime;
+    }
+
+    public LatencyHistogram getTotalServiceTime() {
+        return totalServiceTime;
+    }
+
+    /**
+     * Gilt als gesättigt, wenn im offenen Betrieb weniger als 90 % der Zielrate erreicht wurden
+     * oder Termine verpasst wurden.
+     */
+    public boolean isSaturated() {
+        return config.isOpenLoop() && (getThroughput() < 0.9 * config.getTargetRate() || getMissed() > 0);
+    }
+}
@@ -0,0 +1,164 @@
+package main.java.workload;
+
+import main.java.dsm.DistributedSharedMemory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Lastgenerator im Stil von YCSB für beliebige {@link DistributedSharedMemory}-Implementierungen.
+ * <p>
+ * Geschlossene Schleife: jeder Client startet die nächste Operation sofort nach der vorherigen.
+ * Offene Schleife: jeder Client arbeitet einen festen Fahrplan ab (Zielrate / Clients). Die
+ * Antwortzeit wird ab dem geplanten Startzeitpunkt gemessen, sodass Rückstau bei Überlast in
+ * die Latenzen eingeht, statt durch ausgelassene Messungen zu verschwinden. Am Fensterende hört
+ * ein Client auf; Termine, die er bis dahin nicht mehr begonnen hat, zählen als verpasst.
+ */
+public class WorkloadRunner {
+
+    public enum OperationType {
+        READ, WRITE, READ_MODIFY_WRITE
+    }
+
+    private static final Logger logger = Logger.getLogger(WorkloadRunner.class.getName());
+    private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+    /**
+     * Führt die Last aus. Die Clients werden reihum auf die Knoten verteilt.
+     *
+     * @param nodes  DSM-Knoten, auf denen die Clients arbeiten
+     * @param config Lastkonfiguration
+     * @return Messergebnis des Laufs (ohne Aufwärmphase)
+     */
+    public WorkloadResult run(List<? extends DistributedSharedMemory> nodes, WorkloadConfig config)
+            throws InterruptedException {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Keine Knoten für die Last angegeben");
+        }
+
+        KeyChooser keyChooser = config.createKeyChooser();
+        WorkloadResult result = new WorkloadResult(config);
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.MILLISECONDS.toNanos(config.getWarmupMs());
+        long end = measureStart + TimeUnit.MILLISECONDS.toNanos(config.getDurationMs());
+
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < config.getClients(); i++) {
+            int clientIndex = i;
+            DistributedSharedMemory dsm = nodes.get(i % nodes.size());
+            SplittableRandom random = new SplittableRandom(config.getSeed() + i);
+            Thread client = new Thread(() -> runClient(clientIndex, dsm, config, keyChooser, random,
+                    result, start, measureStart, end));
+            client.setName("Workload-Client-" + i);
+            client.setDaemon(true);
+            clients.add(client);
+        }
+
+        logger.info("Starte Last: " + config);
+        for (Thread client : clients) {
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        result.setMeasuredNanos(Math.max(0, Math.min(System.nanoTime(), end) - measureStart));
+        return result;
+    }
+
+    private void runClient(int clientIndex, DistributedSharedMemory dsm, WorkloadConfig config, KeyChooser keyChooser,
+                           SplittableRandom random, WorkloadResult result, long start, long measureStart, long end) {
+        boolean openLoop = config.isOpenLoop();
+        long intervalNanos = openLoop ? (long) (1e9 * config.getClients() / config.getTargetRate()) : 0;
+        // Fahrpläne der Clients gegeneinander versetzen
+        long intendedStart = start + (intervalNanos * clientIndex) / Math.max(1, config.getClients());
+        char[] valueBuffer = new char[config.getValueSize()];
+
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+            if (openLoop) {
+                if (intendedStart >= end) {
+                    break;
+                }
+                if (now >= end) {
+                    // Rückstau über das Fensterende: nichts mehr ausführen, die Termine bleiben verpasst
+                    result.recordMissed(slotsInWindow(intendedStart, intervalNanos, measureStart, end));
+                    break;
+                }
+                while (now < intendedStart) {
+                    LockSupport.parkNanos(intendedStart - now);
+                    now = System.nanoTime();
+                }
+            } else if (now >= end) {
+                break;
+            }
+
+            OperationType type = chooseOperation(config, random);
+            String key = config.getKeyPrefix() + keyChooser.nextKey(random);
+            long serviceStart = System.nanoTime();
+            boolean success = execute(dsm, type, key, random, valueBuffer);
+            long done = System.nanoTime();
+
+            long scheduledStart = openLoop ? intendedStart : serviceStart;
+            if (scheduledStart >= measureStart && scheduledStart < end) {
+                result.record(type, done - scheduledStart, done - serviceStart, success);
+            }
+            // Durchsatz aus den Abschlüssen im Fenster; was danach fertig wird, zählt nicht mit
+            if (done >= measureStart && done < end) {
+                result.recordCompletion();
+            }
+            if (openLoop) {
+                intendedStart += intervalNanos;
+            }
+        }
+    }
+
+    /**
+     * Anzahl der Termine ab {@code from} im Abstand {@code intervalNanos}, die im Messfenster liegen.
+     */
+    private static long slotsInWindow(long from, long intervalNanos, long measureStart, long end) {
+        if (from < measureStart) {
+            from += (measureStart - from + intervalNanos - 1) / intervalNanos * intervalNanos;
+        }
+        return from >= end ? 0 : (end - from + intervalNanos - 1) / intervalNanos;
+    }
+
+    private static OperationType chooseOperation(WorkloadConfig config, SplittableRandom random) {
+        double r = random.nextDouble();
+        if (r < config.getReadProportion()) {
+            return OperationType.READ;
+        }
+        if (r < config.getReadProportion() + config.getWriteProportion()) {
+            return OperationType.WRITE;
+        }
+        return OperationType.READ_MODIFY_WRITE;
+    }
+
+    private static boolean execute(DistributedSharedMemory dsm, OperationType type, String key,
+                                   SplittableRandom random, char[] valueBuffer) {
+        switch (type) {
+            case READ:
+                return dsm.read(key) != null;
+            case WRITE:
+                dsm.write(key, randomValue(random, valueBuffer));
+                return true;
+            case READ_MODIFY_WRITE:
+                String current = dsm.read(key);
+                dsm.write(key, randomValue(random, valueBuffer));
+                return current != null;
+            default:
+                return false;
+        }
+    }
+
+    private static String randomValue(SplittableRandom random, char[] buffer) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(buffer);
+    }
+}
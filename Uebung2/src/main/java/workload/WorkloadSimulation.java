@@ -0,0 +1,130 @@
+package main.java.workload;
+
+import main.java.dsm.APDSM;
+import main.java.dsm.AbstractDSM;
+import main.java.dsm.CADSM;
+import main.java.dsm.CPDSM;
+import main.java.dsm.DSMLogger;
+import main.java.dsm.LatencyHistogram;
+import main.java.dsm.StorePolicy;
+import main.java.dsm.TunableDSM;
+import org.oxoo2a.sim4da.Simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Lastmessung der DSM-Varianten mit dem {@link WorkloadRunner}.
+ * Pro Variante: Messung in geschlossener Schleife, danach eine Ratenreihe in offener Schleife,
+ * bis der Sättigungspunkt erreicht ist (Zielrate verfehlt oder p99 über dem Grenzwert).
+ * Aufruf: {@code WorkloadSimulation [AP|CP|CA|TUNABLE]} (ohne Argument alle Varianten).
+ */
+public class WorkloadSimulation {
+
+    private static final Logger logger = Logger.getLogger(WorkloadSimulation.class.getName());
+    private static final int NODE_COUNT = 5;
+    private static final double[] TARGET_RATES = {25, 50, 100, 200, 400, 800, 1600, 3200};
+    private static final long P99_LIMIT_MS = 1000;
+    // z.B. new StorePolicy(4 << 20, 0, true): Cache-Knoten mit 4 MiB Budget und W-TinyLFU
+    private static final StorePolicy STORE_POLICY = StorePolicy.UNBOUNDED;
+
+    public static void main(String[] args) {
+        DSMLogger.setupLogging();
+        String[] variants = args.length > 0 ? new String[]{args[0].toUpperCase()} : new String[]{"AP", "CP", "CA", "TUNABLE"};
+
+        try {
+            for (String variant : variants) {
+                runVariant(variant);
+                Simulator.getInstance().shutdown();
+                Thread.sleep(500);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.severe("Fehler: " + e.getMessage());
+        } finally {
+            DSMLogger.closeLogging();
+            System.exit(0);
+        }
+    }
+
+    private static void runVariant(String variant) throws InterruptedException {
+        DSMLogger.startResultSection("Last: " + variant);
+        List<AbstractDSM> nodes = createNodes(variant);
+        try {
+            runLoads(variant, nodes);
+        } finally {
+            for (AbstractDSM node : nodes) {
+                node.close();
+            }
+        }
+    }
+
+    private static void runLoads(String variant, List<AbstractDSM> nodes) throws InterruptedException {
+        WorkloadRunner runner = new WorkloadRunner();
+
+        WorkloadConfig closedLoop = new WorkloadConfig().clients(NODE_COUNT * 2);
+        logResult(variant, runner.run(nodes, closedLoop));
+
+        for (double rate : TARGET_RATES) {
+            WorkloadConfig openLoop = new WorkloadConfig().clients(NODE_COUNT * 4).targetRate(rate);
+            WorkloadResult result = runner.run(nodes, openLoop);
+            logResult(variant, result);
+
+            double p99Ms = result.getTotalResponseTime().getValueAtPercentile(99.0) / 1e6;
+            if (result.isSaturated() || p99Ms > P99_LIMIT_MS) {
+                DSMLogger.logResult("[" + variant + "] Sättigung bei " + String.format("%.0f", rate)
+                        + " ops/s (erreicht " + String.format("%.1f", result.getThroughput())
+                        + " ops/s, p99 " + String.format("%.1f", p99Ms) + " ms)");
+                break;
+            }
+        }
+    }
+
+    private static List<AbstractDSM> createNodes(String variant) {
+        String[] nodeIds = new String[NODE_COUNT];
+        List<AbstractDSM> nodes = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodeIds[i] = "wl-" + variant + "-" + i;
+            nodes.add(createNode(variant, nodeIds[i]));
+        }
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodes.get(i).setStorePolicy(STORE_POLICY);
+            for (int j = 0; j < NODE_COUNT; j++) {
+                if (i != j) {
+                    nodes.get(i).addKnownNode(nodeIds[j]);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    static AbstractDSM createNode(String variant, String nodeId) {
+        AbstractDSM node = switch (variant) {
+            case "AP" -> new APDSM(nodeId);
+            case "CP" -> new CPDSM(nodeId);
+            case "CA" -> new CADSM(nodeId);
+            case "TUNABLE" -> new TunableDSM(nodeId);
+            default -> throw new IllegalArgumentException("Ungültiger Typ: " + variant);
+        };
+        node.registerMBean();
+        return node;
+    }
+
+    static void logResult(String variant, WorkloadResult result) {
+        DSMLogger.logResult(formatResult(variant, result));
+    }
+
+    static String formatResult(String variant, WorkloadResult result) {
+        LatencyHistogram total = result.getTotalResponseTime();
+        return String.format("[%s] %s: %.1f ops/s, %d Operationen, %d Fehler, %d verpasst, "
+                        + "p50=%.2f ms, p99=%.2f ms, p999=%.2f ms (Bedienzeit p99=%.2f ms)",
+                variant, result.getConfig(), result.getThroughput(), result.getOperations(), result.getErrors(),
+                result.getMissed(),
+                total.getValueAtPercentile(50.0) / 1e6,
+                total.getValueAtPercentile(99.0) / 1e6,
+                total.getValueAtPercentile(99.9) / 1e6,
+                result.getTotalServiceTime().getValueAtPercentile(99.0) / 1e6);
+    }
+}
@@ -0,0 +1,73 @@
+package main.java.workload;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zipf-verteilte Schlüsselwahl nach Gray et al. ("Quickly Generating Billion-Record Synthetic
+ * Databases"), wie im YCSB-ZipfianGenerator. Optional werden die Ränge per FNV-Hash über den
+ * Schlüsselraum gestreut, damit die heißen Schlüssel nicht nebeneinander liegen.
+ */
+public class ZipfianKeyChooser implements KeyChooser {
+
+    public static final double DEFAULT_CONSTANT = 0.99;
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 1099511628211L;
+
+    private final int keyCount;
+    private final double theta;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+    private final double halfPowTheta;
+    private final boolean scrambled;
+
+    public ZipfianKeyChooser(int keyCount, double theta, boolean scrambled) {
+        this.keyCount = keyCount;
+        this.theta = theta;
+        this.scrambled = scrambled;
+        this.zetaN = zeta(keyCount, theta);
+        double zeta2 = zeta(2, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / keyCount, 1 - theta)) / (1 - zeta2 / zetaN);
+        this.halfPowTheta = Math.pow(0.5, theta);
+    }
+
+    @Override
+    public int nextKey(SplittableRandom random) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        long rank;
+        if (uz < 1.0) {
+            rank = 0;
+        } else if (uz < 1.0 + halfPowTheta) {
+            rank = 1;
+        } else {
+            rank = (long) (keyCount * Math.pow(eta * u - eta + 1, alpha));
+        }
+        rank = Math.min(rank, keyCount - 1);
+        return scrambled ? (int) Math.floorMod(fnvHash(rank), (long) keyCount) : (int) rank;
+    }
+
+    public double getTheta() {
+        return theta;
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1.0 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+
+    private static long fnvHash(long value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < 8; i++) {
+            hash ^= value & 0xFF;
+            hash *= FNV_PRIME;
+            value >>>= 8;
+        }
+        return hash;
+    }
+}